@@ -0,0 +1,70 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do JwtAuthenticationFilter por requisicao com o mesmo bearer: verificacao completa
+ * (HMAC + JSON + authorities) contra o caminho do TokenCache (SHA-256 + lookup).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="JwtFilterBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtFilterBenchmark {
+
+  private static final String SECRET = Base64.getEncoder().encodeToString(new byte[48]);
+
+  private JwtAuthenticationFilter semCache;
+  private JwtAuthenticationFilter comCache;
+  private MockHttpServletRequest request;
+  private MockHttpServletResponse response;
+  private FilterChain chain;
+
+  @Setup
+  public void setup() {
+    JwtService jwtService = new JwtService(SECRET, "alexandria-bench", 60);
+    String token = jwtService.createToken(UUID.randomUUID().toString(), List.of("ADMIN", "VENDEDOR")).value();
+
+    RevogacaoRegistry revogacao = new RevogacaoRegistry(null, 100_000);
+    semCache = new JwtAuthenticationFilter(jwtService, new TokenCache(0), revogacao);
+    comCache = new JwtAuthenticationFilter(jwtService, new TokenCache(10_000), revogacao);
+
+    request = new MockHttpServletRequest("GET", "/api/livros");
+    request.addHeader("Authorization", "Bearer " + token);
+    response = new MockHttpServletResponse();
+    chain = (req, res) -> { };
+  }
+
+  @Benchmark
+  public void semCache(Blackhole blackhole) throws Exception {
+    filtrar(semCache, blackhole);
+  }
+
+  @Benchmark
+  public void comCache(Blackhole blackhole) throws Exception {
+    filtrar(comCache, blackhole);
+  }
+
+  private void filtrar(JwtAuthenticationFilter filter, Blackhole blackhole) throws Exception {
+    filter.doFilterInternal(request, response, chain);
+    blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+    SecurityContextHolder.clearContext();
+  }
+}
@@ -0,0 +1,53 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtService isolado: emissao (login) e verificacao completa de um token (HMAC + JSON), sem o
+ * filtro nem o TokenCache (ver {@link JwtFilterBenchmark}).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="JwtServiceBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtServiceBenchmark {
+
+  private static final String SECRET = Base64.getEncoder().encodeToString(new byte[48]);
+
+  private JwtService jwtService;
+  private String subject;
+  private List<String> roles;
+  private String token;
+
+  @Setup
+  public void setup() {
+    jwtService = new JwtService(SECRET, "alexandria-bench", 60);
+    subject = UUID.randomUUID().toString();
+    roles = List.of("ADMIN", "VENDEDOR");
+    token = jwtService.createToken(subject, roles).value();
+  }
+
+  @Benchmark
+  public JwtService.AccessToken createToken() {
+    return jwtService.createToken(subject, roles);
+  }
+
+  @Benchmark
+  public Jws<Claims> parse() {
+    return jwtService.parse(token);
+  }
+}
@@ -0,0 +1,114 @@
+package br.com.alexandria.alexandria_api.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pagina do CRUD generico lida de um H2 em memoria: queryForList + ObjectMapper (como era) contra
+ * {@link ResultSetJson} escrevendo direto do ResultSet. Rodar com {@code -prof gc} para ver a
+ * alocacao por operacao (gc.alloc.rate.norm).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="-f 1 -wi 3 -i 5 -prof gc ResultSetJsonBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResultSetJsonBenchmark {
+
+  private static final String SQL = "select * from livros order by created_at desc limit ?";
+
+  @Param({"20", "500"})
+  public int tamanho;
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcTemplate jdbcTemplate;
+  private ObjectMapper objectMapper;
+  private ResultSetJson resultSetJson;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    dataSource = new SingleConnectionDataSource("jdbc:h2:mem:rsjson;DB_CLOSE_DELAY=-1", "sa", "", true);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("""
+        create table if not exists livros (
+          id uuid primary key,
+          titulo varchar(200) not null,
+          subtitulo varchar(200),
+          isbn_13 varchar(13),
+          editora_id uuid,
+          preco numeric(12,2),
+          ano_publicacao integer,
+          ativo boolean,
+          created_at timestamp with time zone,
+          updated_at timestamp with time zone
+        )
+        """);
+    jdbcTemplate.execute("delete from livros");
+    jdbcTemplate.update("""
+        insert into livros
+        select random_uuid(), 'Livro ' || x, case when mod(x, 3) = 0 then null else 'Subtitulo do livro ' || x end,
+               '97885359' || lpad(cast(x as varchar), 5, '0'), random_uuid(), 39.90 + x,
+               1900 + mod(x, 120), true,
+               timestamp with time zone '2025-03-01 12:00:00+00' + x * interval '1' second,
+               timestamp with time zone '2025-03-01 12:00:00+00'
+        from system_range(1, 1000)
+        """);
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    resultSetJson = new ResultSetJson(objectMapper);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.destroy();
+  }
+
+  @Benchmark
+  public byte[] queryForList() throws Exception {
+    List<Map<String, Object>> linhas = jdbcTemplate.queryForList(SQL, tamanho);
+    return objectMapper.writeValueAsBytes(Map.of(
+        "content", linhas,
+        "page", 0,
+        "size", tamanho,
+        "totalElements", 12_345
+    ));
+  }
+
+  @Benchmark
+  public byte[] resultSetJson() {
+    return jdbcTemplate.query(SQL, rs -> {
+      ByteArrayBuilder buffer = new ByteArrayBuilder();
+      try (JsonGenerator json = objectMapper.createGenerator(buffer)) {
+        json.writeStartObject();
+        json.writeNumberField("page", 0);
+        json.writeNumberField("size", tamanho);
+        json.writeNumberField("totalElements", 12_345);
+        json.writeFieldName("content");
+        resultSetJson.escreverLinhas(json, rs);
+        json.writeEndObject();
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      return buffer.toByteArray();
+    }, tamanho);
+  }
+}
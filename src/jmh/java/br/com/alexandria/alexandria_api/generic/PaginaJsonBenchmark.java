@@ -0,0 +1,73 @@
+package br.com.alexandria.alexandria_api.generic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializacao da pagina do CRUD generico (Map com content = linhas de queryForList) com um
+ * ObjectMapper configurado como o do Spring Boot. As linhas tem os tipos que o driver do
+ * PostgreSQL devolve: UUID, String, BigDecimal, Integer, Boolean e Timestamp.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="PaginaJsonBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PaginaJsonBenchmark {
+
+  @Param({"20", "100"})
+  public int tamanho;
+
+  private ObjectMapper objectMapper;
+  private Map<String, Object> pagina;
+
+  @Setup
+  public void setup() {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    Timestamp criadoEm = Timestamp.from(Instant.parse("2025-03-01T12:00:00Z"));
+    List<Map<String, Object>> linhas = new ArrayList<>(tamanho);
+    for (int i = 0; i < tamanho; i++) {
+      Map<String, Object> linha = new LinkedHashMap<>();
+      linha.put("id", UUID.randomUUID());
+      linha.put("titulo", "Livro " + i);
+      linha.put("subtitulo", i % 3 == 0 ? null : "Subtitulo do livro " + i);
+      linha.put("isbn", "97885359" + String.format("%05d", i));
+      linha.put("editora_id", UUID.randomUUID());
+      linha.put("preco", new BigDecimal("39.90").add(BigDecimal.valueOf(i)));
+      linha.put("ano_publicacao", 1900 + i % 120);
+      linha.put("ativo", Boolean.TRUE);
+      linha.put("created_at", criadoEm);
+      linha.put("updated_at", criadoEm);
+      linhas.add(linha);
+    }
+    pagina = Map.of(
+        "content", linhas,
+        "page", 0,
+        "size", tamanho,
+        "totalElements", 12_345
+    );
+  }
+
+  @Benchmark
+  public byte[] serializar() throws Exception {
+    return objectMapper.writeValueAsBytes(pagina);
+  }
+}
@@ -0,0 +1,60 @@
+package br.com.alexandria.alexandria_api.generic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SqlBuilder no caminho de cada GET/POST/PUT do CRUD generico: sanitizeSort com o parametro
+ * padrao, com varias colunas (espacos extras, direcao em minusculas, coluna invalida) e
+ * filterColumns num corpo tipico de livro.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SqlBuilderBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SqlBuilderBenchmark {
+
+  private final Set<String> colunas = Set.of(
+      "id", "titulo", "subtitulo", "isbn", "editora_id", "preco", "ano_publicacao",
+      "ativo", "created_at", "updated_at"
+  );
+  private final Map<String, Object> corpo = new LinkedHashMap<>();
+
+  public SqlBuilderBenchmark() {
+    corpo.put("id", "3f1c2e1a-7a55-4a51-9d7c-0b1f4d0f8f9e");
+    corpo.put("titulo", "Dom Casmurro");
+    corpo.put("subtitulo", null);
+    corpo.put("isbn", "9788535910667");
+    corpo.put("editora_id", "6a0f3d0e-1b7e-4a3c-8a63-2f9e7c1d5b11");
+    corpo.put("preco", "39.90");
+    corpo.put("ano_publicacao", 1899);
+    corpo.put("ativo", true);
+    corpo.put("autor_nome", "Machado de Assis");
+    corpo.put("campo_desconhecido", "x");
+  }
+
+  @Benchmark
+  public String sanitizeSortPadrao() {
+    return SqlBuilder.sanitizeSort("created_at desc", colunas, "created_at desc");
+  }
+
+  @Benchmark
+  public String sanitizeSortComposto() {
+    return SqlBuilder.sanitizeSort("titulo  asc, preco desc,nao_existe desc , created_at", colunas, "created_at desc");
+  }
+
+  @Benchmark
+  public Map<String, Object> filterColumns() {
+    return SqlBuilder.filterColumns(corpo, colunas, "id");
+  }
+}
@@ -0,0 +1,55 @@
+package br.com.alexandria.alexandria_api.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversoes de JdbcUtils usadas nos servicos de venda e estoque: a partir do tipo ja certo
+ * (caso comum vindo do driver) e a partir de String (corpo JSON).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="JdbcUtilsBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JdbcUtilsBenchmark {
+
+  private final Object uuid = UUID.fromString("3f1c2e1a-7a55-4a51-9d7c-0b1f4d0f8f9e");
+  private final Object uuidTexto = "3f1c2e1a-7a55-4a51-9d7c-0b1f4d0f8f9e";
+  private final Object decimal = new BigDecimal("1234.56");
+  private final Object decimalTexto = "1234.56";
+  private final Object decimalDouble = 1234.56d;
+
+  @Benchmark
+  public UUID toUUID() {
+    return JdbcUtils.toUUID(uuid);
+  }
+
+  @Benchmark
+  public UUID toUUIDDeTexto() {
+    return JdbcUtils.toUUID(uuidTexto);
+  }
+
+  @Benchmark
+  public BigDecimal toBigDecimal() {
+    return JdbcUtils.toBigDecimal(decimal);
+  }
+
+  @Benchmark
+  public BigDecimal toBigDecimalDeTexto() {
+    return JdbcUtils.toBigDecimal(decimalTexto);
+  }
+
+  @Benchmark
+  public BigDecimal toBigDecimalDeDouble() {
+    return JdbcUtils.toBigDecimal(decimalDouble);
+  }
+}
@@ -3,6 +3,7 @@ package br.com.alexandria.alexandria_api;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.context.annotation.Bean;
 import org.springframework.boot.ApplicationRunner;
@@ -16,6 +17,7 @@ import java.util.TimeZone;
 
 @SpringBootApplication
 @EnableTransactionManagement
+@EnableScheduling
 @ConfigurationPropertiesScan
 public class AlexandriaApiApplication {
 
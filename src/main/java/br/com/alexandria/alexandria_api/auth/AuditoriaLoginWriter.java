@@ -0,0 +1,173 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gravacao assincrona de sessoes e logs_login: o login so enfileira e uma thread de fundo
+ * grava em lotes com INSERT de varias linhas, fora do caminho das requisicoes.
+ *
+ * A fila e limitada ({@code app.auth.auditoria.fila}); cheia, quem chama grava a propria linha
+ * de forma sincrona (nada e descartado e a pressao volta para os logins). No desligamento a fila
+ * e esvaziada antes de o DataSource fechar.
+ *
+ * Sessoes entram com {@code on conflict do nothing}: se um logout chegou antes do lote, a linha
+ * que ele gravou (ja revogada) prevalece.
+ */
+@Component
+public class AuditoriaLoginWriter {
+
+  private static final Logger log = LoggerFactory.getLogger(AuditoriaLoginWriter.class);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int lote;
+  private final BlockingQueue<Registro> fila;
+  private final Thread thread;
+  private final AtomicLong sincronos = new AtomicLong();
+  private volatile boolean ativo = true;
+
+  public AuditoriaLoginWriter(JdbcTemplate jdbcTemplate, AuthProperties properties) {
+    this.jdbcTemplate = jdbcTemplate;
+    // 6 parametros por linha, limite de 65535
+    this.lote = Math.min(Math.max(properties.auditoria().lote(), 1), 10_000);
+    this.fila = new ArrayBlockingQueue<>(Math.max(properties.auditoria().fila(), 1));
+    this.thread = new Thread(this::executar, "auditoria-login");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  public void sessao(UUID usuarioId, String jwtId, Instant expiraEm, String ip, String userAgent) {
+    enfileirar(new Sessao(usuarioId, jwtId, Timestamp.from(expiraEm), Timestamp.from(Instant.now()), ip, userAgent));
+  }
+
+  public void login(UUID usuarioId, boolean sucesso, String ip, String userAgent, String mensagem) {
+    enfileirar(new LogLogin(usuarioId, Timestamp.from(Instant.now()), sucesso, ip, userAgent, mensagem));
+  }
+
+  /** Grava tudo o que estiver pendente na thread atual (ex.: logout de sessao recem-criada). */
+  public void descarregar() {
+    List<Registro> pendentes = new ArrayList<>();
+    fila.drainTo(pendentes);
+    gravar(pendentes);
+  }
+
+  public int pendentes() {
+    return fila.size();
+  }
+
+  public long gravacoesSincronas() {
+    return sincronos.get();
+  }
+
+  @PreDestroy
+  void encerrar() {
+    // sem interrupt: um lote em andamento termina; o poll acorda em ate 1s
+    ativo = false;
+    try {
+      thread.join(5_000);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    descarregar();
+  }
+
+  private void enfileirar(Registro registro) {
+    if (!ativo || !fila.offer(registro)) {
+      sincronos.incrementAndGet();
+      gravar(List.of(registro));
+    }
+  }
+
+  private void executar() {
+    List<Registro> pendentes = new ArrayList<>(lote);
+    while (ativo) {
+      try {
+        Registro primeiro = fila.poll(1, TimeUnit.SECONDS);
+        if (primeiro == null) {
+          continue;
+        }
+        pendentes.add(primeiro);
+        fila.drainTo(pendentes, lote - 1);
+        gravar(pendentes);
+      } catch (InterruptedException ex) {
+        break;
+      } finally {
+        pendentes.clear();
+      }
+    }
+  }
+
+  private void gravar(List<Registro> registros) {
+    List<Sessao> sessoes = new ArrayList<>();
+    List<LogLogin> logs = new ArrayList<>();
+    for (Registro registro : registros) {
+      if (registro instanceof Sessao sessao) {
+        sessoes.add(sessao);
+      } else if (registro instanceof LogLogin logLogin) {
+        logs.add(logLogin);
+      }
+    }
+    // um logout concorrente pode ter gravado a sessao ja revogada: nao sobrescrever
+    inserir("insert into sessoes (usuario_id, jwt_id, expira_em, criado_em, ip, user_agent) values ",
+        "(?,?,?,?,cast(? as inet),?)", " on conflict (jwt_id, expira_em) do nothing", sessoes);
+    inserir("insert into logs_login (usuario_id, instante, sucesso, ip, user_agent, mensagem) values ",
+        "(?,?,?,cast(? as inet),?,?)", "", logs);
+  }
+
+  /** Um INSERT de varias linhas; se o lote falhar, tenta linha a linha para isolar a ruim. */
+  private void inserir(String prefixo, String linha, String sufixo, List<? extends Registro> registros) {
+    if (registros.isEmpty()) {
+      return;
+    }
+    StringBuilder sql = new StringBuilder(prefixo);
+    List<Object> args = new ArrayList<>();
+    for (int i = 0; i < registros.size(); i++) {
+      sql.append(i == 0 ? "" : ",").append(linha);
+      Collections.addAll(args, registros.get(i).valores());
+    }
+    sql.append(sufixo);
+    try {
+      jdbcTemplate.update(sql.toString(), args.toArray());
+    } catch (RuntimeException ex) {
+      if (registros.size() == 1) {
+        log.warn("Auditoria de login: registro descartado: {}", ex.getMessage());
+        return;
+      }
+      for (Registro registro : registros) {
+        inserir(prefixo, linha, sufixo, List.of(registro));
+      }
+    }
+  }
+
+  private sealed interface Registro permits Sessao, LogLogin {
+    Object[] valores();
+  }
+
+  private record Sessao(UUID usuarioId, String jwtId, Timestamp expiraEm, Timestamp criadoEm,
+                        String ip, String userAgent) implements Registro {
+    public Object[] valores() {
+      return new Object[] {usuarioId, jwtId, expiraEm, criadoEm, ip, userAgent};
+    }
+  }
+
+  private record LogLogin(UUID usuarioId, Timestamp instante, boolean sucesso, String ip,
+                          String userAgent, String mensagem) implements Registro {
+    public Object[] valores() {
+      return new Object[] {usuarioId, instante, sucesso, ip, userAgent, mensagem};
+    }
+  }
+}
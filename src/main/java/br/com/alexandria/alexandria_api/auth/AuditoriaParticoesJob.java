@@ -0,0 +1,62 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import br.com.alexandria.alexandria_api.util.ParticoesMensais;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Manutencao diaria de logs_login e sessoes particionadas: cria as particoes dos proximos meses,
+ * avisa se ha linhas na particao default e remove (drop ou move para o schema de arquivo) os
+ * meses alem da retencao. Em sessoes a
+ * particao e por expira_em, entao so saem meses de sessoes ja expiradas (nada que o
+ * {@link RevogacaoRegistry} ainda precise).
+ */
+@Component
+@RequiredArgsConstructor
+public class AuditoriaParticoesJob {
+
+  private static final Logger log = LoggerFactory.getLogger(AuditoriaParticoesJob.class);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final AuthProperties properties;
+
+  @Scheduled(cron = "${app.auth.retencao.cron:0 45 3 * * *}", zone = "UTC")
+  public void executar() {
+    AuthProperties.Retencao retencao = properties.retencao();
+    String schemaArquivo = retencao.schemaArquivo() == null || retencao.schemaArquivo().isBlank()
+        ? null
+        : retencao.schemaArquivo();
+    manter("logs_login", retencao.mesesFuturos(), retencao.logsLoginMeses(), schemaArquivo);
+    manter("sessoes", retencao.mesesFuturos(), retencao.sessoesMeses(), schemaArquivo);
+  }
+
+  private void manter(String tabela, int mesesFuturos, int retencaoMeses, String schemaArquivo) {
+    List<String> particoes = ParticoesMensais.criarFuturas(jdbcTemplate, tabela, mesesFuturos);
+    log.info("Auditoria: particoes de {} garantidas {}", tabela, particoes);
+    long foraDosMeses = ParticoesMensais.linhasNoDefault(jdbcTemplate, tabela);
+    if (foraDosMeses > 0) {
+      log.warn("Auditoria: {} linhas de {} na particao default (meses sem particao); "
+          + "crie as particoes com criar_particao_mensal para move-las", foraDosMeses, tabela);
+    }
+
+    if (retencaoMeses <= 0) {
+      return;
+    }
+    LocalDate limite = LocalDate.now(ZoneOffset.UTC)
+        .withDayOfMonth(1)
+        .minusMonths(retencaoMeses);
+    List<String> removidas = ParticoesMensais.desanexarAntigas(jdbcTemplate, tabela, limite, schemaArquivo);
+    if (!removidas.isEmpty()) {
+      log.info("Auditoria: particoes de {} anteriores a {} removidas {} (destino={})",
+          tabela, limite, removidas, schemaArquivo == null ? "descartadas" : schemaArquivo);
+    }
+  }
+}
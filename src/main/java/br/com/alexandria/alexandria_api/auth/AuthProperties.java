@@ -0,0 +1,64 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Parametros de login (prefixo {@code app.auth}).
+ *
+ * @param auditoria gravacao em lote de sessoes e logs_login
+ * @param hash      executor dedicado ao bcrypt
+ * @param limites   limites de tentativas de login por IP e por username
+ * @param retencao  particoes mensais de logs_login e sessoes
+ */
+@ConfigurationProperties("app.auth")
+public record AuthProperties(@DefaultValue Auditoria auditoria,
+                             @DefaultValue Hash hash,
+                             @DefaultValue Limites limites,
+                             @DefaultValue Retencao retencao) {
+
+  /**
+   * @param fila linhas pendentes em memoria; cheia, o login grava de forma sincrona
+   * @param lote linhas por INSERT do writer de fundo
+   */
+  public record Auditoria(@DefaultValue("10000") int fila,
+                          @DefaultValue("500") int lote) {
+  }
+
+  /**
+   * @param fracaoCpu     fracao dos nucleos usada por threads de bcrypt (minimo 1 thread)
+   * @param fila          verificacoes aguardando thread; acima disso responde 429 na hora
+   * @param esperaMaxima  tempo maximo de fila + hash antes de desistir com 429
+   */
+  public record Hash(@DefaultValue("0.5") double fracaoCpu,
+                     @DefaultValue("64") int fila,
+                     @DefaultValue("2s") Duration esperaMaxima) {
+  }
+
+  /**
+   * Baldes de tentativas por IP e por username: repostos a {@code *PorMinuto} por minuto e com
+   * ate {@code *Rajada} tentativas seguidas quando cheios.
+   *
+   * @param maxChaves chaves mantidas por balde; acima disso chaves novas dividem um balde comum
+   */
+  public record Limites(@DefaultValue("30") int ipPorMinuto,
+                        @DefaultValue("10") int ipRajada,
+                        @DefaultValue("10") int usuarioPorMinuto,
+                        @DefaultValue("5") int usuarioRajada,
+                        @DefaultValue("100000") int maxChaves) {
+  }
+
+  /**
+   * @param mesesFuturos     particoes criadas a frente (sessoes usam expira_em, logs o instante)
+   * @param logsLoginMeses   meses de logs_login mantidos (0 = nunca remover)
+   * @param sessoesMeses     meses de sessoes ja expiradas mantidos (0 = nunca remover)
+   * @param schemaArquivo    destino das particoes removidas; vazio = descartar (drop)
+   */
+  public record Retencao(@DefaultValue("3") int mesesFuturos,
+                         @DefaultValue("12") int logsLoginMeses,
+                         @DefaultValue("3") int sessoesMeses,
+                         @DefaultValue("") String schemaArquivo) {
+  }
+}
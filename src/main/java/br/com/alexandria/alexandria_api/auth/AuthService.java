@@ -1,17 +1,16 @@
 package br.com.alexandria.alexandria_api.auth;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.sql.Timestamp;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -21,50 +20,60 @@ import java.util.UUID;
 public class AuthService {
 
   private final JdbcTemplate jdbcTemplate;
-  private final PasswordEncoder passwordEncoder;
+  private final SenhaExecutor senhaExecutor;
+  private final LimitadorTentativas limitador;
   private final JwtService jwtService;
+  private final RevogacaoRegistry revogacaoRegistry;
+  private final AuditoriaLoginWriter auditoria;
 
   public String login(String username, String password, HttpServletRequest request) {
-    Map<String, Object> user = jdbcTemplate.queryForMap(
-        "select id, senha_hash, ativo from usuarios where username=?",
+    limitador.verificar(request != null ? request.getRemoteAddr() : null, username);
+
+    // usuario e perfis numa unica ida ao banco
+    Usuario user = jdbcTemplate.query(
+        """
+            select u.id, u.senha_hash, u.ativo,
+                   coalesce(array_agg(distinct p.nome) filter (where p.nome is not null), '{}') as perfis
+            from usuarios u
+            left join usuarios_perfis up on up.usuario_id = u.id
+            left join perfis p on p.id = up.perfil_id
+            where u.username = ?
+            group by u.id
+            """,
+        rs -> rs.next()
+            ? new Usuario(
+                rs.getObject("id", UUID.class),
+                rs.getString("senha_hash"),
+                rs.getBoolean("ativo"),
+                List.of((String[]) rs.getArray("perfis").getArray()))
+            : null,
         username
     );
-
-    boolean active = Boolean.TRUE.equals(user.get("ativo"));
-    String hash = (String) user.get("senha_hash");
-    if (!active || !passwordEncoder.matches(password, hash)) {
-      UUID userId = (UUID) user.get("id");
-      logLogin(userId, false, request, "credenciais invalidas");
+    if (user == null) {
       throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Credenciais invalidas");
     }
 
-    List<String> roles = jdbcTemplate.queryForList(
-        """
-            select distinct p.nome
-            from perfis p
-            join usuarios_perfis up on up.perfil_id = p.id
-            where up.usuario_id = ?
-            """,
-        String.class,
-        user.get("id")
-    );
+    if (!user.ativo() || !senhaExecutor.matches(password, user.senhaHash())) {
+      logLogin(user.id(), false, request, "credenciais invalidas");
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Credenciais invalidas");
+    }
 
-    UUID userId = (UUID) user.get("id");
-    String token = jwtService.createToken(userId.toString(), roles);
+    JwtService.AccessToken token = jwtService.createToken(user.id().toString(), user.perfis());
 
-    jdbcTemplate.update(
-        "insert into sessoes (usuario_id, jwt_id, expira_em, ip, user_agent) values (?,?,?,?,?)",
-        user.get("id"),
-        Integer.toHexString(token.hashCode()),
-        Timestamp.from(Instant.now().plus(60, ChronoUnit.MINUTES)),
+    auditoria.sessao(
+        user.id(),
+        token.id(),
+        token.expiresAt(),
         request != null ? request.getRemoteAddr() : null,
         request != null ? request.getHeader("User-Agent") : null
     );
 
-    logLogin(userId, true, request, "ok");
-    return token;
+    logLogin(user.id(), true, request, "ok");
+    return token.value();
   }
 
+  private record Usuario(UUID id, String senhaHash, boolean ativo, List<String> perfis) {}
+
   public void changePassword(String oldPassword, String newPassword) {
     String subject = (String) SecurityContextHolder.getContext()
         .getAuthentication()
@@ -76,13 +85,13 @@ public class AuthService {
         userId
     );
     String hash = (String) user.get("senha_hash");
-    if (!passwordEncoder.matches(oldPassword, hash)) {
+    if (!senhaExecutor.matches(oldPassword, hash)) {
       throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Senha atual incorreta");
     }
 
     jdbcTemplate.update(
         "update usuarios set senha_hash=? where id=?",
-        passwordEncoder.encode(newPassword),
+        senhaExecutor.encode(newPassword),
         userId
     );
   }
@@ -91,16 +100,39 @@ public class AuthService {
     if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
       return;
     }
-    String token = authorizationHeader.substring(7);
-    jdbcTemplate.update(
-        "update sessoes set revogado = true where jwt_id = ?",
-        Integer.toHexString(token.hashCode())
-    );
+    Claims claims;
+    try {
+      claims = jwtService.parse(authorizationHeader.substring(7)).getPayload();
+    } catch (JwtException ex) {
+      return; // invalido ou ja expirado: nada a revogar
+    }
+    if (claims.getId() == null) {
+      return;
+    }
+    String revogar = "update sessoes set revogado = true, revogado_em = clock_timestamp() where jwt_id = ? and not revogado";
+    if (jdbcTemplate.update(revogar, claims.getId()) == 0) {
+      // sessao ainda na fila do writer
+      auditoria.descarregar();
+      if (jdbcTemplate.update(revogar, claims.getId()) == 0) {
+        // lote do writer em andamento ou sessao na fila de outra instancia: grava a sessao ja
+        // revogada; o insert do writer (on conflict do nothing) nao a sobrescreve
+        jdbcTemplate.update(
+            """
+                insert into sessoes (usuario_id, jwt_id, expira_em, revogado, revogado_em)
+                values (?, ?, ?, true, clock_timestamp())
+                on conflict (jwt_id, expira_em) do update set revogado = true
+                """,
+            claims.getSubject() == null ? null : UUID.fromString(claims.getSubject()),
+            claims.getId(),
+            Timestamp.from(claims.getExpiration().toInstant())
+        );
+      }
+    }
+    revogacaoRegistry.revogar(claims.getId(), claims.getExpiration().toInstant());
   }
 
   private void logLogin(UUID userId, boolean success, HttpServletRequest request, String message) {
-    jdbcTemplate.update(
-        "insert into logs_login (usuario_id, sucesso, ip, user_agent, mensagem) values (?,?,?,?,?)",
+    auditoria.login(
         userId,
         success,
         request != null ? request.getRemoteAddr() : null,
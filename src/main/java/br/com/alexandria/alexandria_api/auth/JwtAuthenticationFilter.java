@@ -15,7 +15,9 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 
@@ -23,9 +25,15 @@ import java.util.Objects;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
   private final JwtService jwtService;
+  private final TokenCache tokenCache;
+  private final RevogacaoRegistry revogacaoRegistry;
 
-  public JwtAuthenticationFilter(JwtService jwtService) {
+  public JwtAuthenticationFilter(JwtService jwtService,
+                                 TokenCache tokenCache,
+                                 RevogacaoRegistry revogacaoRegistry) {
     this.jwtService = jwtService;
+    this.tokenCache = tokenCache;
+    this.revogacaoRegistry = revogacaoRegistry;
   }
 
   @Override
@@ -36,20 +44,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     if (header != null && header.startsWith("Bearer ")) {
       String token = header.substring(7);
       try {
-        Jws<Claims> jws = jwtService.parse(token);
-        String subject = jws.getPayload().getSubject();
-        Collection<?> rolesClaim = jws.getPayload().get("roles", Collection.class);
-
-        List<SimpleGrantedAuthority> authorities = rolesClaim == null
-            ? List.of()
-            : rolesClaim.stream()
-            .filter(Objects::nonNull)
-            .map(Object::toString)
-            .map(SimpleGrantedAuthority::new)
-            .toList();
-
-        Authentication authentication = new UsernamePasswordAuthenticationToken(subject, null, authorities);
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+        TokenCache.Entrada entrada = tokenCache.obter(token);
+        if (entrada == null) {
+          entrada = autenticar(token);
+        }
+        if (revogacaoRegistry.revogado(entrada.jti())) {
+          SecurityContextHolder.clearContext();
+        } else {
+          SecurityContextHolder.getContext().setAuthentication(entrada.authentication());
+        }
       } catch (JwtException ignored) {
         SecurityContextHolder.clearContext();
       }
@@ -57,4 +60,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     filterChain.doFilter(request, response);
   }
+
+  /** Verifica assinatura/exp e guarda a Authentication ate o exp do token. */
+  private TokenCache.Entrada autenticar(String token) {
+    Jws<Claims> jws = jwtService.parse(token);
+    String subject = jws.getPayload().getSubject();
+    Collection<?> rolesClaim = jws.getPayload().get("roles", Collection.class);
+
+    List<SimpleGrantedAuthority> authorities = rolesClaim == null
+        ? List.of()
+        : rolesClaim.stream()
+        .filter(Objects::nonNull)
+        .map(Object::toString)
+        .map(SimpleGrantedAuthority::new)
+        .toList();
+
+    Authentication authentication = new UsernamePasswordAuthenticationToken(subject, null, authorities);
+    String jti = jws.getPayload().getId();
+    Date expiration = jws.getPayload().getExpiration();
+    Instant expiraEm = expiration == null ? null : expiration.toInstant();
+    tokenCache.guardar(token, authentication, jti, expiraEm);
+    return new TokenCache.Entrada(authentication, jti, expiraEm == null ? Long.MAX_VALUE : expiraEm.toEpochMilli());
+  }
 }
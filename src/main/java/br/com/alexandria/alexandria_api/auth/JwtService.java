@@ -2,15 +2,18 @@ package br.com.alexandria.alexandria_api.auth;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
+import java.util.UUID;
 import javax.crypto.SecretKey;
 
 @Service
@@ -19,6 +22,8 @@ public class JwtService {
   private final SecretKey signingKey;
   private final String issuer;
   private final long accessTokenMinutes;
+  /** Imutavel e thread-safe: montado uma vez em vez de a cada requisicao. */
+  private final JwtParser parser;
 
   public JwtService(@Value("${app.jwt.secret}") String secret,
                     @Value("${app.jwt.issuer}") String issuer,
@@ -26,24 +31,32 @@ public class JwtService {
     this.signingKey = Keys.hmacShaKeyFor(Base64.getDecoder().decode(secret));
     this.issuer = issuer;
     this.accessTokenMinutes = accessTokenMinutes;
+    this.parser = Jwts.parser()
+        .verifyWith(signingKey)
+        .build();
   }
 
-  public String createToken(String subject, Collection<String> roles) {
+  /** Token emitido: valor compacto, jti (chave da sessao/revogacao) e expiracao. */
+  public record AccessToken(String value, String id, Instant expiresAt) {}
+
+  public AccessToken createToken(String subject, Collection<String> roles) {
     Instant now = Instant.now();
-    return Jwts.builder()
+    // exp em segundos inteiros, igual ao que o parser devolve
+    Instant expiresAt = now.plusSeconds(accessTokenMinutes * 60).truncatedTo(ChronoUnit.SECONDS);
+    String id = UUID.randomUUID().toString();
+    String value = Jwts.builder()
+        .id(id)
         .subject(subject)
         .issuer(issuer)
         .issuedAt(Date.from(now))
-        .expiration(Date.from(now.plusSeconds(accessTokenMinutes * 60)))
+        .expiration(Date.from(expiresAt))
         .claim("roles", roles)
         .signWith(signingKey)
         .compact();
+    return new AccessToken(value, id, expiresAt);
   }
 
   public Jws<Claims> parse(String token) {
-    return Jwts.parser()
-        .verifyWith(signingKey)
-        .build()
-        .parseSignedClaims(token);
+    return parser.parseSignedClaims(token);
   }
 }
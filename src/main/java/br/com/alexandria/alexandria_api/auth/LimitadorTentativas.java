@@ -0,0 +1,110 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limite de tentativas de login por IP e por username, verificado antes de qualquer consulta ou
+ * bcrypt. Estoura com 429 e Retry-After.
+ *
+ * Cada chave e um token bucket na forma GCRA: um unico long com o "instante teorico" da proxima
+ * tentativa, atualizado por CAS (sem locks). Balde cheio equivale a chave ausente, entao chaves
+ * ociosas sao removidas sem perder nada; acima de {@code maxChaves} as chaves novas dividem um
+ * balde comum ate a proxima limpeza.
+ */
+@Component
+public class LimitadorTentativas {
+
+  private final Baldes porIp;
+  private final Baldes porUsuario;
+
+  public LimitadorTentativas(AuthProperties properties) {
+    AuthProperties.Limites limites = properties.limites();
+    this.porIp = new Baldes(limites.ipPorMinuto(), limites.ipRajada(), limites.maxChaves());
+    this.porUsuario = new Baldes(limites.usuarioPorMinuto(), limites.usuarioRajada(), limites.maxChaves());
+  }
+
+  public void verificar(String ip, String username) {
+    long agora = System.nanoTime();
+    long espera = porIp.consumir(ip == null ? "-" : ip, agora);
+    if (espera == 0 && username != null) {
+      espera = porUsuario.consumir(username.trim().toLowerCase(Locale.ROOT), agora);
+    }
+    if (espera > 0) {
+      throw new MuitasTentativasException(TimeUnit.NANOSECONDS.toSeconds(espera) + 1);
+    }
+  }
+
+  @Scheduled(fixedDelay = 60_000)
+  void limpar() {
+    long agora = System.nanoTime();
+    porIp.limpar(agora);
+    porUsuario.limpar(agora);
+  }
+
+  /** 429 com Retry-After (segundos). */
+  static final class MuitasTentativasException extends ResponseStatusException {
+
+    private final HttpHeaders headers = new HttpHeaders();
+
+    MuitasTentativasException(long segundos) {
+      super(HttpStatus.TOO_MANY_REQUESTS, "Muitas tentativas de login");
+      headers.set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(segundos, 1)));
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+
+  private static final class Baldes {
+
+    private static final String COMUM = "\0";
+
+    private final long intervalo;
+    private final long tolerancia;
+    private final int maxChaves;
+    private final Map<String, AtomicLong> chaves = new ConcurrentHashMap<>();
+
+    Baldes(int porMinuto, int rajada, int maxChaves) {
+      this.intervalo = TimeUnit.MINUTES.toNanos(1) / Math.max(porMinuto, 1);
+      this.tolerancia = intervalo * Math.max(rajada - 1, 0);
+      this.maxChaves = Math.max(maxChaves, 1);
+    }
+
+    /** 0 se a tentativa foi aceita; senao, nanos ate a proxima tentativa possivel. */
+    long consumir(String chave, long agora) {
+      AtomicLong tat = chaves.get(chave);
+      if (tat == null) {
+        tat = chaves.size() < maxChaves
+            ? chaves.computeIfAbsent(chave, k -> new AtomicLong(agora))
+            : chaves.computeIfAbsent(COMUM, k -> new AtomicLong(agora));
+      }
+      while (true) {
+        long atual = tat.get();
+        long base = atual - agora < 0 ? agora : atual;
+        long proximo = base + intervalo;
+        if (proximo - agora > tolerancia + intervalo) {
+          return proximo - agora - tolerancia - intervalo;
+        }
+        if (tat.compareAndSet(atual, proximo)) {
+          return 0;
+        }
+      }
+    }
+
+    void limpar(long agora) {
+      chaves.values().removeIf(tat -> tat.get() - agora <= 0);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Aplica {@link RequerPermissao}: 403 se nenhum perfil do token tiver a permissao. */
+@Component
+@RequiredArgsConstructor
+public class PermissaoInterceptor implements HandlerInterceptor {
+
+  private final PermissaoModel permissaoModel;
+  /** Anotacao resolvida uma vez por metodo de controller. */
+  private final Map<Method, Optional<String>> codigos = new ConcurrentHashMap<>();
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    if (!(handler instanceof HandlerMethod method)) {
+      return true;
+    }
+    Optional<String> codigo = codigos.computeIfAbsent(method.getMethod(), m -> {
+      RequerPermissao anotacao = method.getMethodAnnotation(RequerPermissao.class);
+      if (anotacao == null) {
+        anotacao = method.getBeanType().getAnnotation(RequerPermissao.class);
+      }
+      return Optional.ofNullable(anotacao).map(RequerPermissao::value);
+    });
+    if (codigo.isPresent()
+        && !permissaoModel.permite(SecurityContextHolder.getContext().getAuthentication(), codigo.get())) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Sem permissao: " + codigo.get());
+    }
+    return true;
+  }
+}
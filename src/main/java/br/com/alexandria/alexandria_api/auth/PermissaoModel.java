@@ -0,0 +1,164 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import br.com.alexandria.alexandria_api.generic.TabelaAlteradaEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Modelo RBAC em memoria: cada permissoes.codigo vira um indice de bit e cada perfil (pelo nome,
+ * que e o que vai no JWT) guarda um {@code long[]} com as permissoes concedidas. Checar uma
+ * permissao e um OR/AND de bits sobre os perfis do token, sem consulta.
+ *
+ * O modelo e imutavel e trocado atomicamente: recarregado ao iniciar, apos alteracoes em perfis,
+ * permissoes ou perfis_permissoes pelo CRUD generico e periodicamente (mudancas feitas por outra
+ * instancia ou direto no banco). Ate a primeira carga nenhuma permissao e concedida; se ela falha
+ * ao iniciar, novas tentativas sao feitas com espera dobrando de 1s ate 1min, em vez de deixar
+ * tudo em 403 ate a proxima recarga periodica.
+ */
+@Component
+public class PermissaoModel {
+
+  private static final Logger log = LoggerFactory.getLogger(PermissaoModel.class);
+  private static final Set<String> TABELAS = Set.of("perfis", "permissoes", "perfis_permissoes");
+  private static final long PRIMEIRA_ESPERA_MS = 1_000;
+  private static final long ESPERA_MAXIMA_MS = 60_000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final AtomicReference<Modelo> modelo = new AtomicReference<>(new Modelo(Map.of(), Map.of()));
+  // lock em vez de synchronized: a recarga faz JDBC e, com threads virtuais, synchronized prende a carrier
+  private final ReentrantLock recarga = new ReentrantLock();
+  private final ScheduledExecutorService tentativas = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "permissoes-carga");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile boolean carregado;
+
+  public PermissaoModel(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @PreDestroy
+  void encerrar() {
+    tentativas.shutdownNow();
+  }
+
+  public boolean permite(Authentication authentication, String codigo) {
+    if (authentication == null) {
+      return false;
+    }
+    Modelo atual = modelo.get();
+    Integer bit = atual.bits().get(codigo);
+    if (bit == null) {
+      return false;
+    }
+    int palavra = bit >>> 6;
+    long mascara = 1L << bit;
+    for (GrantedAuthority authority : authentication.getAuthorities()) {
+      long[] concedidas = atual.perfis().get(authority.getAuthority());
+      if (concedidas != null && palavra < concedidas.length && (concedidas[palavra] & mascara) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int permissoes() {
+    return modelo.get().bits().size();
+  }
+
+  /** Verdadeiro depois da primeira carga bem-sucedida. */
+  public boolean carregado() {
+    return carregado;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    if (!recarregar()) {
+      tentarDeNovo(PRIMEIRA_ESPERA_MS);
+    }
+  }
+
+  @EventListener
+  public void onTabelaAlterada(TabelaAlteradaEvent event) {
+    if (TABELAS.contains(event.tabela())) {
+      recarregar();
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${app.auth.permissoes.recarga-ms:300000}", initialDelayString = "${app.auth.permissoes.recarga-ms:300000}")
+  void agendado() {
+    recarregar();
+  }
+
+  /** Recarrega o modelo; false se falhou (o anterior continua valendo). */
+  boolean recarregar() {
+    recarga.lock();
+    try {
+      Map<String, Integer> bits = new HashMap<>();
+      jdbcTemplate.query(
+          "select codigo from permissoes order by codigo",
+          (RowCallbackHandler) rs -> bits.put(rs.getString("codigo"), bits.size())
+      );
+      int palavras = Math.max(1, (bits.size() + 63) >>> 6);
+
+      Map<String, long[]> perfis = new HashMap<>();
+      jdbcTemplate.query(
+          """
+              select p.nome, pm.codigo
+              from perfis p
+              left join perfis_permissoes pp on pp.perfil_id = p.id
+              left join permissoes pm on pm.id = pp.permissao_id
+              """,
+          (RowCallbackHandler) rs -> {
+            long[] concedidas = perfis.computeIfAbsent(rs.getString("nome"), nome -> new long[palavras]);
+            Integer bit = rs.getString("codigo") == null ? null : bits.get(rs.getString("codigo"));
+            if (bit != null) {
+              concedidas[bit >>> 6] |= 1L << bit;
+            }
+          }
+      );
+      modelo.set(new Modelo(Map.copyOf(bits), Map.copyOf(perfis)));
+      carregado = true;
+      log.debug("Permissoes recarregadas: {} codigos, {} perfis", bits.size(), perfis.size());
+      return true;
+    } catch (RuntimeException ex) {
+      log.warn("Permissoes: falha ao recarregar, mantendo o modelo anterior: {}", ex.getMessage());
+      return false;
+    } finally {
+      recarga.unlock();
+    }
+  }
+
+  /** Enquanto a primeira carga nao acontece, tenta de novo com espera crescente. */
+  private void tentarDeNovo(long esperaMs) {
+    log.warn("Permissoes: nenhuma carga ainda (todas as permissoes negadas); nova tentativa em {} ms", esperaMs);
+    tentativas.schedule(() -> {
+      if (!carregado && !recarregar()) {
+        tentarDeNovo(Math.min(esperaMs * 2, ESPERA_MAXIMA_MS));
+      }
+    }, esperaMs, TimeUnit.MILLISECONDS);
+  }
+
+  /** Snapshot imutavel; os arrays nunca sao alterados apos a publicacao. */
+  private record Modelo(Map<String, Integer> bits, Map<String, long[]> perfis) {
+  }
+}
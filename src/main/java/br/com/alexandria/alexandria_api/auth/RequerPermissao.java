@@ -0,0 +1,21 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Exige que algum perfil do token tenha a permissao (permissoes.codigo) para executar o endpoint.
+ * No controller vale para todos os metodos; no metodo, prevalece sobre o do controller. Verificado
+ * pelo {@link PermissaoInterceptor} contra o {@link PermissaoModel} em memoria.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RequerPermissao {
+
+  /** Codigo da permissao, ex.: {@code "vendas.estornar"}. */
+  String value();
+}
@@ -0,0 +1,177 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Conjunto em memoria dos jti revogados (logout) ainda nao expirados, consultado pelo filtro JWT
+ * a cada requisicao sem acesso ao banco.
+ *
+ * Um Bloom filter responde "certamente nao revogado" para a quase totalidade dos tokens; so os
+ * positivos consultam o mapa exato (jti -> expiracao). Entradas saem do mapa quando o token
+ * expira, e o Bloom e reconstruido a partir do mapa, entao o tamanho fica limitado aos tokens
+ * revogados dentro de uma vida de token.
+ *
+ * Entre instancias, o conjunto e sincronizado por polling incremental de sessoes.revogado_em
+ * (LISTEN/NOTIFY nao funciona atras do pooler em modo transacao); o trigger da V13 preenche
+ * revogado_em em qualquer update que marque revogado, nao so no logout. O logout na propria
+ * instancia entra no conjunto na hora.
+ */
+@Component
+public class RevogacaoRegistry {
+
+  private static final Logger log = LoggerFactory.getLogger(RevogacaoRegistry.class);
+  /** Recuo da marca a cada leitura: cobre transacoes com revogado_em menor que commitaram depois. */
+  private static final Duration MARGEM = Duration.ofSeconds(30);
+  private static final long LIMPEZA_MS = Duration.ofMinutes(1).toMillis();
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int capacidade;
+  private final Map<String, Long> revogados = new ConcurrentHashMap<>();
+  private volatile Bloom bloom;
+  private volatile Instant marca = Instant.EPOCH;
+  private long ultimaLimpeza = System.currentTimeMillis();
+
+  public RevogacaoRegistry(JdbcTemplate jdbcTemplate,
+                           @Value("${app.jwt.revogacao.capacidade:100000}") int capacidade) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.capacidade = Math.max(capacidade, 1024);
+    this.bloom = new Bloom(this.capacidade);
+  }
+
+  public boolean revogado(String jti) {
+    if (jti == null || !bloom.talvezContem(jti)) {
+      return false;
+    }
+    Long expiraEm = revogados.get(jti);
+    return expiraEm != null && expiraEm > System.currentTimeMillis();
+  }
+
+  public synchronized void revogar(String jti, Instant expiraEm) {
+    if (jti == null || expiraEm == null || !expiraEm.isAfter(Instant.now())) {
+      return;
+    }
+    revogados.put(jti, expiraEm.toEpochMilli());
+    bloom.adicionar(jti);
+  }
+
+  public int tamanho() {
+    return revogados.size();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    sincronizar();
+  }
+
+  @Scheduled(fixedDelayString = "${app.jwt.revogacao.poll-ms:2000}", initialDelayString = "${app.jwt.revogacao.poll-ms:2000}")
+  void sincronizar() {
+    Instant desde = marca;
+    Instant[] maior = {desde};
+    try {
+      jdbcTemplate.query(
+          """
+              select jwt_id, expira_em, revogado_em
+              from sessoes
+              where revogado
+                and revogado_em > ?
+                and expira_em > now()
+              """,
+          (RowCallbackHandler) rs -> {
+            Instant revogadoEm = rs.getTimestamp("revogado_em").toInstant();
+            if (revogadoEm.isAfter(maior[0])) {
+              maior[0] = revogadoEm;
+            }
+            revogar(rs.getString("jwt_id"), rs.getTimestamp("expira_em").toInstant());
+          },
+          Timestamp.from(desde)
+      );
+      if (maior[0].isAfter(desde)) {
+        Instant recuada = maior[0].minus(MARGEM);
+        marca = recuada.isAfter(desde) ? recuada : desde;
+      }
+    } catch (RuntimeException ex) {
+      log.warn("Revogacao de tokens: falha ao sincronizar com sessoes: {}", ex.getMessage());
+    }
+    if (System.currentTimeMillis() - ultimaLimpeza >= LIMPEZA_MS) {
+      limpar();
+    }
+  }
+
+  /** Remove tokens expirados e reconstroi o Bloom so com os restantes. */
+  synchronized void limpar() {
+    long agora = System.currentTimeMillis();
+    ultimaLimpeza = agora;
+    if (revogados.values().removeIf(expiraEm -> expiraEm <= agora)) {
+      Bloom novo = new Bloom(Math.max(capacidade, revogados.size() * 2));
+      revogados.keySet().forEach(novo::adicionar);
+      bloom = novo;
+    }
+  }
+
+  /** Bloom filter com ~1% de falso positivo na capacidade; bits em AtomicLongArray. */
+  private static final class Bloom {
+
+    private static final int HASHES = 7;
+
+    private final AtomicLongArray bits;
+    private final long tamanhoBits;
+
+    Bloom(int capacidade) {
+      // m = -n ln(0,01) / ln(2)^2 ~= 9,6 bits por elemento
+      long m = Math.max(64, (long) Math.ceil(capacidade * 9.6));
+      this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+      this.tamanhoBits = bits.length() * 64L;
+    }
+
+    void adicionar(String jti) {
+      long[] h = hash(jti);
+      for (int i = 0; i < HASHES; i++) {
+        long bit = Math.floorMod(h[0] + i * h[1], tamanhoBits);
+        int palavra = (int) (bit >>> 6);
+        long mascara = 1L << bit;
+        long atual;
+        do {
+          atual = bits.get(palavra);
+        } while ((atual & mascara) == 0 && !bits.compareAndSet(palavra, atual, atual | mascara));
+      }
+    }
+
+    boolean talvezContem(String jti) {
+      long[] h = hash(jti);
+      for (int i = 0; i < HASHES; i++) {
+        long bit = Math.floorMod(h[0] + i * h[1], tamanhoBits);
+        if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** Dois hashes de 64 bits (FNV-1a e variante misturada) para double hashing. */
+    private static long[] hash(String jti) {
+      long h1 = 0xcbf29ce484222325L;
+      long h2 = 0x9e3779b97f4a7c15L;
+      for (byte b : jti.getBytes(StandardCharsets.UTF_8)) {
+        h1 = (h1 ^ (b & 0xff)) * 0x100000001b3L;
+        h2 = Long.rotateLeft(h2 ^ (b & 0xff), 27) * 0xff51afd7ed558ccdL;
+      }
+      return new long[] {h1, h2 | 1};
+    }
+  }
+}
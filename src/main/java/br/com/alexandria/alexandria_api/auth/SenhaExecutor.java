@@ -0,0 +1,138 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executa bcrypt (verificacao e geracao de hash) num pool dedicado, fora das threads do Tomcat.
+ *
+ * O pool usa uma fracao dos nucleos ({@code app.auth.hash.fracao-cpu}), entao uma rajada de
+ * logins nao consegue ocupar a CPU inteira e o restante da API segue atendendo. A fila e limitada
+ * e justa (FIFO); cheia, ou se a espera passar de {@code espera-maxima}, a requisicao recebe 429
+ * imediatamente em vez de acumular threads bloqueadas.
+ *
+ * Metricas (se houver MeterRegistry): {@code auth.hash.fila}, {@code auth.hash.ativos},
+ * {@code auth.hash.rejeitados} e o timer {@code auth.hash.duracao}.
+ */
+@Component
+public class SenhaExecutor {
+
+  private final PasswordEncoder passwordEncoder;
+  private final ThreadPoolExecutor executor;
+  private final long esperaMaximaNanos;
+  private final AtomicLong rejeitados = new AtomicLong();
+  private final Timer duracao;
+
+  public SenhaExecutor(PasswordEncoder passwordEncoder,
+                       AuthProperties properties,
+                       ObjectProvider<MeterRegistry> meterRegistry) {
+    AuthProperties.Hash config = properties.hash();
+    int threads = Math.max(1, (int) Math.round(Runtime.getRuntime().availableProcessors() * config.fracaoCpu()));
+    AtomicInteger seq = new AtomicInteger();
+    this.passwordEncoder = passwordEncoder;
+    this.esperaMaximaNanos = config.esperaMaxima().toNanos();
+    this.executor = new ThreadPoolExecutor(
+        threads,
+        threads,
+        0,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(config.fila(), 1), true),
+        runnable -> {
+          Thread thread = new Thread(runnable, "bcrypt-" + seq.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy()
+    );
+
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    if (registry != null) {
+      Gauge.builder("auth.hash.fila", executor, e -> e.getQueue().size()).register(registry);
+      Gauge.builder("auth.hash.ativos", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+      Gauge.builder("auth.hash.rejeitados", rejeitados, AtomicLong::get).register(registry);
+      this.duracao = Timer.builder("auth.hash.duracao")
+          .description("Tempo de bcrypt (sem a espera na fila)")
+          .publishPercentiles(0.5, 0.95, 0.99)
+          .register(registry);
+    } else {
+      this.duracao = null;
+    }
+  }
+
+  @PreDestroy
+  void encerrar() {
+    executor.shutdownNow();
+  }
+
+  public boolean matches(CharSequence senha, String hash) {
+    return executar(() -> passwordEncoder.matches(senha, hash));
+  }
+
+  public String encode(CharSequence senha) {
+    return executar(() -> passwordEncoder.encode(senha));
+  }
+
+  public int fila() {
+    return executor.getQueue().size();
+  }
+
+  public long rejeitados() {
+    return rejeitados.get();
+  }
+
+  private <T> T executar(Callable<T> tarefa) {
+    Future<T> future;
+    try {
+      future = executor.submit(() -> {
+        long inicio = System.nanoTime();
+        try {
+          return tarefa.call();
+        } finally {
+          if (duracao != null) {
+            duracao.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+          }
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      throw saturado();
+    }
+    try {
+      return future.get(esperaMaximaNanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException ex) {
+      future.cancel(true);
+      throw saturado();
+    } catch (InterruptedException ex) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw saturado();
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException(ex.getCause());
+    }
+  }
+
+  private ResponseStatusException saturado() {
+    rejeitados.incrementAndGet();
+    return new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Servico de autenticacao ocupado, tente novamente");
+  }
+}
@@ -0,0 +1,103 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tokens ja verificados (assinatura + exp) com a {@link Authentication} pronta e o jti, para que
+ * requisicoes repetidas com o mesmo bearer custem apenas um SHA-256 e uma consulta ao mapa. A
+ * revogacao nao e cacheada: quem usa a entrada confere o jti no {@link RevogacaoRegistry}.
+ *
+ * A chave e o digest do token (o token em si nao fica em memoria) e cada entrada vale ate o
+ * {@code exp} do token. O tamanho e limitado por {@code app.jwt.cache-max-entradas}: cheio, as
+ * entradas vencidas sao descartadas e, se ainda nao houver espaco, o token simplesmente nao e
+ * guardado (volta a ser verificado na proxima requisicao). Com limite 0 o cache fica desligado.
+ */
+@Component
+public class TokenCache {
+
+  private static final MessageDigest SHA256;
+
+  static {
+    try {
+      SHA256 = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new ExceptionInInitializerError(ex);
+    }
+  }
+
+  private final int maxEntradas;
+  private final Map<Chave, Entrada> entradas = new ConcurrentHashMap<>();
+
+  public TokenCache(@Value("${app.jwt.cache-max-entradas:10000}") int maxEntradas) {
+    this.maxEntradas = Math.max(maxEntradas, 0);
+  }
+
+  /** Entrada do token se ele ja foi verificado e ainda nao expirou; senao null. */
+  public Entrada obter(String token) {
+    if (maxEntradas == 0) {
+      return null;
+    }
+    Chave chave = chave(token);
+    Entrada entrada = entradas.get(chave);
+    if (entrada == null) {
+      return null;
+    }
+    if (entrada.expiraEm() <= System.currentTimeMillis()) {
+      entradas.remove(chave, entrada);
+      return null;
+    }
+    return entrada;
+  }
+
+  public void guardar(String token, Authentication authentication, String jti, Instant expiraEm) {
+    if (maxEntradas == 0 || expiraEm == null) {
+      return;
+    }
+    if (entradas.size() >= maxEntradas) {
+      limpar();
+      if (entradas.size() >= maxEntradas) {
+        return;
+      }
+    }
+    entradas.put(chave(token), new Entrada(authentication, jti, expiraEm.toEpochMilli()));
+  }
+
+  public int tamanho() {
+    return entradas.size();
+  }
+
+  @Scheduled(fixedDelay = 60_000)
+  void limpar() {
+    long agora = System.currentTimeMillis();
+    entradas.values().removeIf(entrada -> entrada.expiraEm() <= agora);
+  }
+
+  private static Chave chave(String token) {
+    MessageDigest digest;
+    try {
+      digest = (MessageDigest) SHA256.clone();
+    } catch (CloneNotSupportedException ex) {
+      throw new IllegalStateException(ex);
+    }
+    ByteBuffer hash = ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    return new Chave(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+  }
+
+  /** SHA-256 do token em 4 longs: equals/hashCode baratos, sem copia de arrays. */
+  private record Chave(long a, long b, long c, long d) {
+  }
+
+  public record Entrada(Authentication authentication, String jti, long expiraEm) {
+  }
+}
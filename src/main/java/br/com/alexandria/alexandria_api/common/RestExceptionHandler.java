@@ -1,7 +1,10 @@
 package br.com.alexandria.alexandria_api.common;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -29,9 +32,18 @@ public class RestExceptionHandler {
   @ExceptionHandler(ResponseStatusException.class)
   public ResponseEntity<Map<String, Object>> handleStatusException(ResponseStatusException ex) {
     return ResponseEntity.status(ex.getStatusCode())
+        .headers(ex.getHeaders())
         .body(Map.of("error", ex.getReason()));
   }
 
+  /** Sem conexao (pool ou bulkhead esgotado, banco fora): 503 para o cliente tentar de novo. */
+  @ExceptionHandler({CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class})
+  public ResponseEntity<Map<String, Object>> handleSemConexao(RuntimeException ex) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(Map.of("error", "Banco de dados indisponivel"));
+  }
+
   private Map<String, String> toError(FieldError error) {
     return Map.of(
         "field", error.getField(),
@@ -0,0 +1,225 @@
+package br.com.alexandria.alexandria_api.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Escreve linhas de um {@link ResultSet} direto num {@link JsonGenerator}, enquanto sao lidas:
+ * sem {@code queryForList} e sem a lista de mapas intermediaria. O JSON sai igual ao que o
+ * ObjectMapper gerava a partir dos mapas (timestamptz em UTC com milissegundos, date como
+ * yyyy-MM-dd, numeric pelo BigDecimal).
+ *
+ * Os nomes das colunas viram {@link SerializedString} e cada coluna ganha um escritor pelo tipo
+ * (uuid, inteiros, numeric, float, boolean, texto, date, timestamptz) uma vez por consulta;
+ * os demais tipos (jsonb, inet, arrays, timestamp sem fuso) passam pelo ObjectMapper como antes.
+ */
+@Component
+public class ResultSetJson {
+
+  /** Mesmo formato do StdDateFormat do Jackson, que o Boot usa para java.sql.Timestamp. */
+  private static final DateTimeFormatter TIMESTAMPTZ =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx");
+
+  private final ObjectMapper objectMapper;
+  /** Para os tipos sem escritor proprio; sem flush a cada valor, senao a resposta sairia aos pedacos. */
+  private final ObjectWriter valores;
+
+  public ResultSetJson(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+    this.valores = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  /** Corpo da resposta escrito a partir do ResultSet ja posicionado antes da primeira linha. */
+  @FunctionalInterface
+  public interface Corpo {
+    void escrever(JsonGenerator json, ResultSet rs) throws SQLException, IOException;
+  }
+
+  /**
+   * Extrator que so abre a resposta depois que a consulta executou: erro de SQL ainda vira a
+   * resposta de erro normal e os cabecalhos (Content-Type, Server-Timing) saem antes do primeiro byte.
+   */
+  public ResultSetExtractor<Void> resposta(HttpServletResponse response, Corpo corpo) {
+    return rs -> {
+      try {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator json = objectMapper.createGenerator(response.getOutputStream())) {
+          json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+          corpo.escrever(json, rs);
+        }
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      return null;
+    };
+  }
+
+  /** Array JSON com as linhas da consulta, para quem guarda o corpo (ex.: cache dos dashboards). */
+  public byte[] array(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+    return jdbcTemplate.query(sql, rs -> {
+      ByteArrayBuilder buffer = new ByteArrayBuilder();
+      try (JsonGenerator json = objectMapper.createGenerator(buffer)) {
+        escreverLinhas(json, rs);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      return buffer.toByteArray();
+    }, args);
+  }
+
+  /** Array com as linhas restantes do ResultSet, um objeto por linha. */
+  public void escreverLinhas(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+    Coluna[] colunas = colunas(rs.getMetaData());
+    json.writeStartArray();
+    while (rs.next()) {
+      escrever(json, rs, colunas);
+    }
+    json.writeEndArray();
+  }
+
+  /** Objeto com a linha atual. */
+  public void escreverLinha(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+    escrever(json, rs, colunas(rs.getMetaData()));
+  }
+
+  private static void escrever(JsonGenerator json, ResultSet rs, Coluna[] colunas) throws SQLException, IOException {
+    json.writeStartObject();
+    for (Coluna coluna : colunas) {
+      json.writeFieldName(coluna.nome());
+      coluna.escritor().escrever(json, rs, coluna.indice());
+    }
+    json.writeEndObject();
+  }
+
+  private Coluna[] colunas(ResultSetMetaData meta) throws SQLException {
+    Coluna[] colunas = new Coluna[meta.getColumnCount()];
+    for (int i = 1; i <= colunas.length; i++) {
+      colunas[i - 1] = new Coluna(
+          new SerializedString(JdbcUtils.lookupColumnName(meta, i)),
+          i,
+          escritor(meta.getColumnType(i), meta.getColumnTypeName(i))
+      );
+    }
+    return colunas;
+  }
+
+  private Escritor escritor(int tipo, String nomeTipo) {
+    if ("uuid".equalsIgnoreCase(nomeTipo)) {
+      return ResultSetJson::texto;
+    }
+    if ("timestamptz".equalsIgnoreCase(nomeTipo) || tipo == Types.TIMESTAMP_WITH_TIMEZONE) {
+      return ResultSetJson::timestamptz;
+    }
+    return switch (tipo) {
+      case Types.SMALLINT, Types.INTEGER, Types.BIGINT, Types.TINYINT -> ResultSetJson::inteiro;
+      case Types.NUMERIC, Types.DECIMAL -> ResultSetJson::numeric;
+      case Types.REAL -> ResultSetJson::real;
+      case Types.DOUBLE, Types.FLOAT -> ResultSetJson::duplo;
+      case Types.BOOLEAN, Types.BIT -> ResultSetJson::booleano;
+      case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR, Types.DATE -> ResultSetJson::texto;
+      default -> this::objeto;
+    };
+  }
+
+  private static void texto(JsonGenerator json, ResultSet rs, int i) throws SQLException, IOException {
+    String valor = rs.getString(i);
+    if (valor == null) {
+      json.writeNull();
+    } else {
+      json.writeString(valor);
+    }
+  }
+
+  private static void inteiro(JsonGenerator json, ResultSet rs, int i) throws SQLException, IOException {
+    long valor = rs.getLong(i);
+    if (rs.wasNull()) {
+      json.writeNull();
+    } else {
+      json.writeNumber(valor);
+    }
+  }
+
+  private static void numeric(JsonGenerator json, ResultSet rs, int i) throws SQLException, IOException {
+    BigDecimal valor = rs.getBigDecimal(i);
+    if (valor == null) {
+      json.writeNull();
+    } else {
+      json.writeNumber(valor);
+    }
+  }
+
+  private static void real(JsonGenerator json, ResultSet rs, int i) throws SQLException, IOException {
+    float valor = rs.getFloat(i);
+    if (rs.wasNull()) {
+      json.writeNull();
+    } else {
+      json.writeNumber(valor);
+    }
+  }
+
+  private static void duplo(JsonGenerator json, ResultSet rs, int i) throws SQLException, IOException {
+    double valor = rs.getDouble(i);
+    if (rs.wasNull()) {
+      json.writeNull();
+    } else {
+      json.writeNumber(valor);
+    }
+  }
+
+  private static void booleano(JsonGenerator json, ResultSet rs, int i) throws SQLException, IOException {
+    boolean valor = rs.getBoolean(i);
+    if (rs.wasNull()) {
+      json.writeNull();
+    } else {
+      json.writeBoolean(valor);
+    }
+  }
+
+  private static void timestamptz(JsonGenerator json, ResultSet rs, int i) throws SQLException, IOException {
+    OffsetDateTime valor = rs.getObject(i, OffsetDateTime.class);
+    if (valor == null) {
+      json.writeNull();
+    } else {
+      json.writeString(TIMESTAMPTZ.format(valor.withOffsetSameInstant(ZoneOffset.UTC)));
+    }
+  }
+
+  private void objeto(JsonGenerator json, ResultSet rs, int i) throws SQLException, IOException {
+    Object valor = JdbcUtils.getResultSetValue(rs, i);
+    if (valor == null) {
+      json.writeNull();
+    } else {
+      valores.writeValue(json, valor);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Escritor {
+    void escrever(JsonGenerator json, ResultSet rs, int indice) throws SQLException, IOException;
+  }
+
+  private record Coluna(SerializableString nome, int indice, Escritor escritor) {
+  }
+}
@@ -0,0 +1,170 @@
+package br.com.alexandria.alexandria_api.common;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Difusao de eventos Server-Sent Events para varios assinantes. O payload e serializado uma
+ * unica vez por evento e o mesmo texto e enviado a todos os emissores; emissores que falham
+ * no envio sao descartados.
+ *
+ * Quem publica so enfileira: cada assinante tem uma fila limitada ({@value #FILA} eventos),
+ * esvaziada por uma thread virtual propria enquanto houver eventos, entao um cliente lento nao
+ * segura a thread que publica nem os demais. Fila cheia ou um envio parado ha mais de
+ * {@value #ENVIO_MAXIMO_MS} ms (conferido no heartbeat) encerram o assinante; o cliente
+ * reconecta e recebe um snapshot novo.
+ */
+public class SseBroadcaster {
+
+  private static final Logger log = LoggerFactory.getLogger(SseBroadcaster.class);
+  static final int FILA = 256;
+  static final long ENVIO_MAXIMO_MS = 30_000;
+
+  private final String nome;
+  private final ObjectMapper objectMapper;
+  private final long timeoutMs;
+  private final Executor envios;
+  private final Map<SseEmitter, Assinante> assinantes = new ConcurrentHashMap<>();
+
+  public SseBroadcaster(String nome, ObjectMapper objectMapper, long timeoutMs) {
+    this.nome = nome;
+    this.objectMapper = objectMapper;
+    this.timeoutMs = timeoutMs;
+    this.envios = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sse-" + nome + "-", 0).factory());
+  }
+
+  /** Novo assinante; {@code inicial} (se nao nulo) e enviado somente a ele como evento "snapshot". */
+  public SseEmitter assinar(Object inicial) {
+    SseEmitter emissor = new SseEmitter(timeoutMs);
+    Assinante assinante = new Assinante(emissor);
+    emissor.onCompletion(() -> assinantes.remove(emissor));
+    emissor.onTimeout(() -> assinantes.remove(emissor));
+    emissor.onError(erro -> assinantes.remove(emissor));
+    assinantes.put(emissor, assinante);
+    if (inicial != null) {
+      assinante.enfileirar(SseEmitter.event().name("snapshot").data(serializar(inicial), MediaType.APPLICATION_JSON));
+    }
+    return emissor;
+  }
+
+  public void publicar(String evento, Object dados) {
+    if (assinantes.isEmpty()) {
+      return;
+    }
+    String json = serializar(dados);
+    for (Assinante assinante : assinantes.values()) {
+      assinante.enfileirar(SseEmitter.event().name(evento).data(json, MediaType.APPLICATION_JSON));
+    }
+  }
+
+  /** Comentario SSE periodico: mantem proxies abertos e detecta clientes desconectados ou parados. */
+  public void heartbeat() {
+    long agora = System.nanoTime();
+    for (Assinante assinante : assinantes.values()) {
+      if (assinante.parado(agora)) {
+        assinante.encerrar(null);
+      } else {
+        assinante.enfileirar(SseEmitter.event().comment("hb"));
+      }
+    }
+  }
+
+  public int assinantes() {
+    return assinantes.size();
+  }
+
+  private String serializar(Object dados) {
+    try {
+      return objectMapper.writeValueAsString(dados);
+    } catch (JsonProcessingException ex) {
+      log.warn("SSE {}: falha ao serializar evento", nome, ex);
+      throw new IllegalArgumentException(ex);
+    }
+  }
+
+  /** Fila de um emissor; no maximo uma tarefa de envio ativa por vez, na ordem de chegada. */
+  private final class Assinante {
+
+    private final SseEmitter emissor;
+    private final BlockingQueue<SseEmitter.SseEventBuilder> fila = new ArrayBlockingQueue<>(FILA);
+    private final AtomicBoolean enviando = new AtomicBoolean();
+    /** Inicio do envio em curso (nanoTime), 0 quando ocioso. */
+    private volatile long enviandoDesde;
+
+    Assinante(SseEmitter emissor) {
+      this.emissor = emissor;
+    }
+
+    void enfileirar(SseEmitter.SseEventBuilder evento) {
+      if (!fila.offer(evento)) {
+        log.debug("SSE {}: fila do assinante cheia, encerrando", nome);
+        encerrar(null);
+        return;
+      }
+      agendar();
+    }
+
+    boolean parado(long agora) {
+      long desde = enviandoDesde;
+      return desde != 0 && agora - desde > ENVIO_MAXIMO_MS * 1_000_000L;
+    }
+
+    void encerrar(Throwable erro) {
+      if (assinantes.remove(emissor) == null) {
+        return;
+      }
+      fila.clear();
+      try {
+        if (erro == null) {
+          emissor.complete();
+        } else {
+          emissor.completeWithError(erro);
+        }
+      } catch (RuntimeException ignorada) {
+        // ja encerrado pelo container
+      }
+    }
+
+    private void agendar() {
+      if (enviando.compareAndSet(false, true)) {
+        envios.execute(this::drenar);
+      }
+    }
+
+    private void drenar() {
+      try {
+        SseEmitter.SseEventBuilder evento;
+        while ((evento = fila.poll()) != null) {
+          enviandoDesde = System.nanoTime();
+          try {
+            emissor.send(evento);
+          } catch (IOException | IllegalStateException ex) {
+            encerrar(ex);
+            return;
+          } finally {
+            enviandoDesde = 0;
+          }
+        }
+      } finally {
+        enviando.set(false);
+      }
+      // evento enfileirado entre o ultimo poll e a liberacao da flag
+      if (!fila.isEmpty()) {
+        agendar();
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package br.com.alexandria.alexandria_api.concorrencia;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DataSource com bulkhead: cada conexao ocupa uma permissao de um semaforo justo (FIFO), devolvida
+ * no close. Quem nao consegue permissao espera no maximo {@code espera}, numa fila de no maximo
+ * {@code filaMax} threads, e recebe {@link BancoSaturadoException} (503 no
+ * RestExceptionHandler). Com threads virtuais a espera no semaforo nao prende thread do SO, e o
+ * banco lento vira 503 rapido em vez de acumular requisicoes presas no getConnection do pool.
+ */
+public class BulkheadDataSource extends DelegatingDataSource {
+
+  private final Semaphore permissoes;
+  private final int limite;
+  private final int filaMax;
+  private final long esperaNanos;
+  private final AtomicInteger naFila = new AtomicInteger();
+  private final LongAdder rejeitadas = new LongAdder();
+
+  public BulkheadDataSource(DataSource target, int limite, int filaMax, Duration espera) {
+    super(target);
+    this.limite = limite;
+    this.permissoes = new Semaphore(limite, true);
+    this.filaMax = filaMax;
+    this.esperaNanos = espera.toNanos();
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    adquirir();
+    try {
+      return conexao(obtainTargetDataSource().getConnection());
+    } catch (SQLException | RuntimeException ex) {
+      permissoes.release();
+      throw ex;
+    }
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    adquirir();
+    try {
+      return conexao(obtainTargetDataSource().getConnection(username, password));
+    } catch (SQLException | RuntimeException ex) {
+      permissoes.release();
+      throw ex;
+    }
+  }
+
+  public int limite() {
+    return limite;
+  }
+
+  public int emUso() {
+    return limite - permissoes.availablePermits();
+  }
+
+  public int naFila() {
+    return naFila.get();
+  }
+
+  public long rejeitadas() {
+    return rejeitadas.sum();
+  }
+
+  private void adquirir() throws SQLException {
+    int fila = naFila.incrementAndGet();
+    try {
+      if (filaMax > 0 && fila > filaMax) {
+        rejeitadas.increment();
+        throw new BancoSaturadoException("Fila de conexoes cheia (" + filaMax + ")");
+      }
+      if (!permissoes.tryAcquire(esperaNanos, TimeUnit.NANOSECONDS)) {
+        rejeitadas.increment();
+        throw new BancoSaturadoException(
+            "Sem conexao livre apos " + TimeUnit.NANOSECONDS.toMillis(esperaNanos) + " ms");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new BancoSaturadoException("Interrompido esperando conexao");
+    } finally {
+      naFila.decrementAndGet();
+    }
+  }
+
+  private Connection conexao(Connection alvo) {
+    return (Connection) Proxy.newProxyInstance(
+        getClass().getClassLoader(),
+        new Class<?>[] {Connection.class},
+        new ConexaoHandler(alvo)
+    );
+  }
+
+  /** Devolve a permissao no primeiro close; o resto vai direto para a conexao do pool. */
+  private final class ConexaoHandler implements InvocationHandler {
+
+    private final Connection alvo;
+    private final AtomicBoolean fechada = new AtomicBoolean();
+
+    ConexaoHandler(Connection alvo) {
+      this.alvo = alvo;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getName().equals("close") && fechada.compareAndSet(false, true)) {
+        try {
+          return method.invoke(alvo, args);
+        } catch (InvocationTargetException ex) {
+          throw ex.getCause();
+        } finally {
+          permissoes.release();
+        }
+      }
+      try {
+        return method.invoke(alvo, args);
+      } catch (InvocationTargetException ex) {
+        throw ex.getCause();
+      }
+    }
+  }
+
+  /** Bulkhead sem vaga dentro do tempo de espera. */
+  public static class BancoSaturadoException extends SQLTransientConnectionException {
+
+    BancoSaturadoException(String mensagem) {
+      super(mensagem);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package br.com.alexandria.alexandria_api.concorrencia;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Limites de concorrencia (prefixo {@code app.concorrencia}), pensados para o modo com threads
+ * virtuais ({@code spring.threads.virtual.enabled}), em que o pool do Tomcat deixa de limitar
+ * quantas requisicoes rodam ao mesmo tempo.
+ *
+ * @param habilitado liga o bulkhead do banco e os limites por grupo de rotas
+ * @param banco      bulkhead na obtencao de conexoes
+ * @param rotas      requisicoes simultaneas por grupo de rotas
+ */
+@ConfigurationProperties("app.concorrencia")
+public record ConcorrenciaProperties(@DefaultValue("false") boolean habilitado,
+                                     @DefaultValue Banco banco,
+                                     @DefaultValue Rotas rotas) {
+
+  /**
+   * @param permissoes conexoes simultaneas (0 = maximumPoolSize do Hikari)
+   * @param filaMax    threads esperando conexao alem das permissoes; acima disso falha na hora
+   *                   (0 = sem limite)
+   * @param espera     tempo maximo na fila antes de desistir com 503
+   */
+  public record Banco(@DefaultValue("0") int permissoes,
+                      @DefaultValue("500") int filaMax,
+                      @DefaultValue("2s") Duration espera) {
+  }
+
+  /**
+   * @param espera  tempo maximo esperando vaga no grupo antes de responder 503
+   * @param limites requisicoes simultaneas por grupo (auth, vendas, estoque, generic, dash);
+   *                grupo ausente nao tem limite
+   */
+  public record Rotas(@DefaultValue("100ms") Duration espera,
+                      Map<String, Integer> limites) {
+
+    public Rotas {
+      limites = limites == null ? Map.of() : Map.copyOf(limites);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package br.com.alexandria.alexandria_api.concorrencia;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Envolve o pool em {@link BulkheadDataSource} quando {@code app.concorrencia.habilitado}. Roda
+ * antes da instrumentacao (Ordered), entao o bulkhead fica colado ao Hikari e a espera por vaga
+ * entra no tempo de getConnection medido pelo InstrumentedDataSource.
+ *
+ * Com replica, o ReplicaConfig envolve cada pool ({@link #envolver}) abaixo do roteamento, cada
+ * um com as permissoes do proprio pool; o DataSource roteado que ja tem bulkhead por baixo nao e
+ * envolvido de novo.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.concorrencia", name = "habilitado", havingValue = "true")
+public class DataSourceBulkhead implements BeanPostProcessor, SmartInitializingSingleton, Ordered {
+
+  private static final Logger log = LoggerFactory.getLogger(DataSourceBulkhead.class);
+  // padrao do Hikari; maximumPoolSize fica -1 ate o pool validar a configuracao
+  private static final int POOL_PADRAO = 10;
+
+  private final ObjectProvider<ConcorrenciaProperties> propertiesProvider;
+  private final ObjectProvider<MeterRegistry> registryProvider;
+  private final Map<String, BulkheadDataSource> bulkheads = new ConcurrentHashMap<>();
+
+  public DataSourceBulkhead(ObjectProvider<ConcorrenciaProperties> propertiesProvider,
+                            ObjectProvider<MeterRegistry> registryProvider) {
+    this.propertiesProvider = propertiesProvider;
+    this.registryProvider = registryProvider;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (!(bean instanceof DataSource dataSource) || temBulkhead(dataSource)) {
+      return bean;
+    }
+    return envolver(beanName, dataSource);
+  }
+
+  /** Bulkhead dimensionado pelo pool {@code alvo} (permissoes explicitas valem para cada pool). */
+  public BulkheadDataSource envolver(String nome, DataSource alvo) {
+    ConcorrenciaProperties.Banco config = propertiesProvider.getObject().banco();
+    int permissoes = config.permissoes() > 0 ? config.permissoes() : tamanhoPool(alvo);
+    BulkheadDataSource bulkhead = new BulkheadDataSource(alvo, permissoes, config.filaMax(), config.espera());
+    bulkheads.put(nome, bulkhead);
+    log.info("Bulkhead do banco em '{}': {} conexoes, fila {}, espera {}",
+        nome, permissoes, config.filaMax(), config.espera());
+    return bulkhead;
+  }
+
+  private static boolean temBulkhead(DataSource dataSource) {
+    try {
+      return dataSource.isWrapperFor(BulkheadDataSource.class);
+    } catch (SQLException ex) {
+      return false;
+    }
+  }
+
+  private static int tamanhoPool(DataSource dataSource) {
+    try {
+      if (dataSource.isWrapperFor(HikariDataSource.class)) {
+        int tamanho = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        if (tamanho > 0) {
+          return tamanho;
+        }
+      }
+    } catch (SQLException ex) {
+      log.debug("Bulkhead: tamanho do pool indisponivel: {}", ex.getMessage());
+    }
+    return POOL_PADRAO;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    MeterRegistry registry = registryProvider.getIfAvailable();
+    if (registry == null) {
+      return;
+    }
+    bulkheads.forEach((nome, bulkhead) -> {
+      Gauge.builder("db.bulkhead.em_uso", bulkhead, BulkheadDataSource::emUso)
+          .description("Conexoes ocupando permissao do bulkhead")
+          .tag("pool", nome)
+          .register(registry);
+      Gauge.builder("db.bulkhead.fila", bulkhead, BulkheadDataSource::naFila)
+          .description("Threads esperando permissao do bulkhead")
+          .tag("pool", nome)
+          .register(registry);
+      FunctionCounter.builder("db.bulkhead.rejeitadas", bulkhead, BulkheadDataSource::rejeitadas)
+          .description("Pedidos de conexao recusados (fila cheia ou espera esgotada)")
+          .tag("pool", nome)
+          .register(registry);
+    });
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+}
@@ -0,0 +1,112 @@
+package br.com.alexandria.alexandria_api.concorrencia;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limite de requisicoes simultaneas por grupo de rotas (auth, vendas, estoque, dash e generic para
+ * o resto de /api), para que um subsistema sobrecarregado nao consuma a capacidade dos outros.
+ * Sem vaga dentro de {@code app.concorrencia.rotas.espera} a resposta e 503 com Retry-After, antes
+ * da autenticacao e de qualquer SQL. Rotas fora de /api (actuator, docs) nao sao limitadas.
+ *
+ * A vaga vale para a parte sincrona da requisicao: um SSE libera a vaga quando o stream comeca.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.concorrencia", name = "habilitado", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class LimiteConcorrenciaFilter extends OncePerRequestFilter {
+
+  private final Map<String, Semaphore> grupos = new HashMap<>();
+  private final Map<String, Counter> rejeitadas = new HashMap<>();
+  private final long esperaNanos;
+
+  public LimiteConcorrenciaFilter(ConcorrenciaProperties properties, MeterRegistry registry) {
+    this.esperaNanos = properties.rotas().espera().toNanos();
+    properties.rotas().limites().forEach((grupo, limite) -> {
+      if (limite == null || limite <= 0) {
+        return;
+      }
+      Semaphore vagas = new Semaphore(limite);
+      grupos.put(grupo, vagas);
+      Gauge.builder("http.concorrencia.em_uso", vagas, s -> limite - s.availablePermits())
+          .description("Requisicoes em andamento no grupo de rotas")
+          .tag("grupo", grupo)
+          .register(registry);
+      rejeitadas.put(grupo, Counter.builder("http.concorrencia.rejeitadas")
+          .description("Requisicoes recusadas com 503 por falta de vaga no grupo")
+          .tag("grupo", grupo)
+          .register(registry));
+    });
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+    String grupo = grupo(request.getRequestURI().substring(request.getContextPath().length()));
+    Semaphore vagas = grupo == null ? null : grupos.get(grupo);
+    if (vagas == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    boolean adquirida;
+    try {
+      adquirida = vagas.tryAcquire(esperaNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      adquirida = false;
+    }
+    if (!adquirida) {
+      rejeitadas.get(grupo).increment();
+      response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+      response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      response.getWriter().write("{\"error\":\"Capacidade esgotada: " + grupo + "\"}");
+      return;
+    }
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      vagas.release();
+    }
+  }
+
+  static String grupo(String caminho) {
+    if (!caminho.startsWith("/api/")) {
+      return null;
+    }
+    if (caminho.startsWith("/api/auth/")) {
+      return "auth";
+    }
+    if (caminho.equals("/api/vendas") || caminho.startsWith("/api/vendas/")) {
+      return "vendas";
+    }
+    if (caminho.startsWith("/api/estoque/")) {
+      return "estoque";
+    }
+    if (caminho.startsWith("/api/dash/")) {
+      return "dash";
+    }
+    return "generic";
+  }
+}
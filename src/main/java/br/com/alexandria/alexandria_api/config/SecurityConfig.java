@@ -1,9 +1,11 @@
 package br.com.alexandria.alexandria_api.config;
 
 import br.com.alexandria.alexandria_api.auth.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -16,9 +18,15 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
   private final JwtAuthenticationFilter jwtAuthenticationFilter;
+  private final int portaGestao;
+  private final int portaAplicacao;
 
-  public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+  public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter,
+                        @Value("${management.server.port:-1}") int portaGestao,
+                        @Value("${server.port:8080}") int portaAplicacao) {
     this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+    this.portaGestao = portaGestao;
+    this.portaAplicacao = portaAplicacao;
   }
 
   @Bean
@@ -28,17 +36,30 @@ public class SecurityConfig {
         .authorizeHttpRequests(authorize -> authorize
             .requestMatchers(
                 "/actuator/health",
+                "/livez",
+                "/readyz",
                 "/v3/api-docs/**",
                 "/swagger-ui/**",
                 "/swagger-ui.html",
                 "/api/auth/**"
             ).permitAll()
+            .requestMatchers("/actuator/prometheus").access((authentication, context) ->
+                new AuthorizationDecision(portaDeGestao(context.getRequest().getLocalPort())))
             .anyRequest().authenticated()
         )
         .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
     return http.build();
   }
 
+  /**
+   * Metricas so pela porta de gestao ({@code management.server.port}, ligada em 127.0.0.1). O
+   * endereco remoto nao serve: atras de um proxy local ele e sempre loopback. Se a porta de gestao
+   * nao for separada, o endpoint fica fechado.
+   */
+  private boolean portaDeGestao(int portaLocal) {
+    return portaGestao > 0 && portaGestao != portaAplicacao && portaLocal == portaGestao;
+  }
+
   @Bean
   PasswordEncoder passwordEncoder() {
     return new BCryptPasswordEncoder();
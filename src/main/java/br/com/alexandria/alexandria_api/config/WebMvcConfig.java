@@ -0,0 +1,22 @@
+package br.com.alexandria.alexandria_api.config;
+
+import br.com.alexandria.alexandria_api.auth.PermissaoInterceptor;
+import br.com.alexandria.alexandria_api.replica.ReplicaInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+  private final PermissaoInterceptor permissaoInterceptor;
+  private final ReplicaInterceptor replicaInterceptor;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(permissaoInterceptor).addPathPatterns("/api/**");
+    registry.addInterceptor(replicaInterceptor).addPathPatterns("/api/**");
+  }
+}
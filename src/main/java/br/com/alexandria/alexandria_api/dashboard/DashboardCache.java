@@ -0,0 +1,160 @@
+package br.com.alexandria.alexandria_api.dashboard;
+
+import br.com.alexandria.alexandria_api.estoque.EstoqueBaixoEvent;
+import br.com.alexandria.alexandria_api.vendas.VendaEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache das respostas dos dashboards, ja serializadas em JSON.
+ *
+ * Cada entrada pertence a um grupo (ex.: "vendas", "estoque"); invalidar o grupo incrementa sua
+ * versao, entao ate cargas iniciadas antes da invalidacao deixam de valer. Misses concorrentes
+ * da mesma chave compartilham uma unica carga (single-flight): o primeiro executa a consulta e os
+ * demais aguardam o mesmo future.
+ *
+ * O mapa e limitado por {@code app.dashboard.cache-max-entradas}: entradas vencidas ou de versao
+ * antiga saem na leitura da chave e numa varredura a cada minuto; cheio, as invalidas sao
+ * descartadas na hora e, se ainda nao houver espaco, a resposta e carregada sem ser guardada.
+ *
+ * As cargas leem do primario: os endpoints que usam o cache nao levam {@code @LeituraReplica}.
+ * A invalidacao chega logo depois do commit no primario e uma replica atrasada recarregaria a
+ * entrada com o valor anterior a escrita, servido ate o fim do TTL.
+ */
+@Component
+public class DashboardCache {
+
+  public static final String GRUPO_VENDAS = "vendas";
+  public static final String GRUPO_ESTOQUE = "estoque";
+
+  private final ObjectMapper objectMapper;
+  private final long ttlNanos;
+  private final int maxEntradas;
+  private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> versoes = new ConcurrentHashMap<>();
+
+  public DashboardCache(ObjectMapper objectMapper, DashboardProperties properties) {
+    this.objectMapper = objectMapper;
+    this.ttlNanos = properties.cacheTtl().toNanos();
+    this.maxEntradas = Math.max(properties.cacheMaxEntradas(), 0);
+  }
+
+  /** JSON da chave; carrega (uma unica vez entre as threads concorrentes) se ausente ou expirado. */
+  public byte[] obter(String grupo, String chave, Supplier<?> carregador) {
+    return obterJson(grupo, chave, () -> {
+      try {
+        return objectMapper.writeValueAsBytes(carregador.get());
+      } catch (JsonProcessingException ex) {
+        throw new IllegalStateException(ex);
+      }
+    });
+  }
+
+  /** Como {@link #obter}, para carregadores que ja devolvem o JSON (ex.: {@code ResultSetJson}). */
+  public byte[] obterJson(String grupo, String chave, Supplier<byte[]> carregador) {
+    String id = grupo + ':' + chave;
+    while (true) {
+      long agora = System.nanoTime();
+      long versao = versao(grupo).get();
+      Entrada atual = entradas.get(id);
+      if (atual != null && atual.valida(agora, versao)) {
+        return aguardar(atual.valor());
+      }
+      if (atual != null && atual.valor().isDone()) {
+        // vencida ou de versao antiga: sai ja, mesmo que a carga abaixo nao a substitua
+        entradas.remove(id, atual);
+        atual = null;
+      }
+      if (atual == null && entradas.size() >= maxEntradas) {
+        limpar();
+        if (entradas.size() >= maxEntradas) {
+          return carregador.get();
+        }
+      }
+
+      Entrada nova = new Entrada(grupo, new CompletableFuture<>(), agora + ttlNanos, versao);
+      boolean dono = atual == null
+          ? entradas.putIfAbsent(id, nova) == null
+          : entradas.replace(id, atual, nova);
+      if (!dono) {
+        continue;
+      }
+      try {
+        nova.valor().complete(carregador.get());
+      } catch (RuntimeException ex) {
+        entradas.remove(id, nova);
+        nova.valor().completeExceptionally(ex);
+      }
+      return aguardar(nova.valor());
+    }
+  }
+
+  public void invalidar(String grupo) {
+    versao(grupo).incrementAndGet();
+  }
+
+  public void invalidarTudo() {
+    versoes.values().forEach(AtomicLong::incrementAndGet);
+  }
+
+  public int tamanho() {
+    return entradas.size();
+  }
+
+  /** Descarta as entradas vencidas ou de versao antiga (cargas em andamento ficam). */
+  @Scheduled(fixedDelay = 60_000)
+  void limpar() {
+    long agora = System.nanoTime();
+    entradas.values().removeIf(entrada ->
+        entrada.valor().isDone() && !entrada.valida(agora, versao(entrada.grupo()).get()));
+  }
+
+  @EventListener
+  public void onDashboardRefreshed(DashboardRefreshedEvent event) {
+    invalidarTudo();
+  }
+
+  @TransactionalEventListener
+  public void onVenda(VendaEvent event) {
+    invalidar(GRUPO_VENDAS);
+  }
+
+  @EventListener
+  public void onEstoqueBaixo(EstoqueBaixoEvent event) {
+    invalidar(GRUPO_ESTOQUE);
+  }
+
+  private AtomicLong versao(String grupo) {
+    return versoes.computeIfAbsent(grupo, g -> new AtomicLong());
+  }
+
+  private static byte[] aguardar(CompletableFuture<byte[]> valor) {
+    try {
+      return valor.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw ex;
+    }
+  }
+
+  private record Entrada(String grupo, CompletableFuture<byte[]> valor, long expiraEm, long versao) {
+
+    boolean valida(long agora, long versaoAtual) {
+      // carga em andamento ainda nao tem prazo: quem chega espera por ela
+      return versao == versaoAtual && (!valor.isDone() || agora - expiraEm < 0);
+    }
+  }
+}
@@ -1,44 +1,147 @@
 package br.com.alexandria.alexandria_api.dashboard;
 
+import br.com.alexandria.alexandria_api.auth.RequerPermissao;
+import br.com.alexandria.alexandria_api.common.ResultSetJson;
+import br.com.alexandria.alexandria_api.estoque.EstoqueBaixoMonitor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/dash")
 @RequiredArgsConstructor
 public class DashboardController {
 
+  private static final Set<Long> ULTIMOS_DIAS = Set.of(7L, 30L, 90L);
+
   private final JdbcTemplate jdbcTemplate;
+  private final EstoqueBaixoMonitor estoqueBaixo;
+  private final DashboardRefreshCoordinator refreshCoordinator;
+  private final DashboardCache cache;
+  private final VendasAnaliticasService vendasAnaliticas;
+  private final TopLivrosTracker topLivrosTracker;
+  private final DashboardStream stream;
+  private final ResultSetJson resultSetJson;
 
+  @RequerPermissao("dashboard.refresh")
   @PostMapping("/refresh")
-  public void refresh() {
-    jdbcTemplate.execute("select refresh_dashboards_concurrently()");
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public Map<String, Object> refresh() {
+    return refreshCoordinator.solicitar();
+  }
+
+  @GetMapping("/refresh/status")
+  public Map<String, Object> refreshStatus() {
+    return refreshCoordinator.status();
+  }
+
+  /** Feed SSE: vendas-hoje, estoque-baixo e refresh (snapshot inicial com os totais de hoje). */
+  @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter stream() {
+    return stream.assinar();
   }
 
   @GetMapping("/vendas-dia")
-  public List<Map<String, Object>> vendasDia() {
-    return jdbcTemplate.queryForList("select * from mv_dash_vendas_dia order by dia desc limit 60");
+  public ResponseEntity<byte[]> vendasDia() {
+    return json(cache.obterJson(DashboardCache.GRUPO_VENDAS, "vendas-dia", () -> resultSetJson.array(jdbcTemplate,
+        """
+            select dia, qtde_vendas, faturamento,
+                   nullif(faturamento, 0) / nullif(qtde_vendas, 0) as ticket_medio
+            from rollup_vendas_dia
+            order by dia desc
+            limit 60
+            """
+    )));
   }
 
   @GetMapping("/top-livros")
-  public List<Map<String, Object>> topLivros() {
-    return jdbcTemplate.queryForList("select * from mv_top_livros order by qtd_vendida desc limit 20");
+  public ResponseEntity<byte[]> topLivros() {
+    // a janela de 30 dias anda com a data: na virada do dia (UTC) o valor anterior vale ate o TTL
+    return json(cache.obterJson(DashboardCache.GRUPO_VENDAS, "top-livros", () -> resultSetJson.array(jdbcTemplate,
+        """
+            select livro_id, sum(qtd_vendida) as qtd_vendida, sum(receita) as receita
+            from rollup_vendas_dia_livro
+            where dia >= (now() at time zone 'UTC')::date - 30
+            group by livro_id
+            having sum(qtd_vendida) > 0
+            order by qtd_vendida desc
+            limit 20
+            """
+    )));
+  }
+
+  /** Mais vendidos na janela (1h|24h|7d|30d), servido da memoria; localId opcional. */
+  @GetMapping("/top-livros/live")
+  public Map<String, Object> topLivrosLive(@RequestParam(defaultValue = "24h") String janela,
+                                           @RequestParam(required = false) UUID localId,
+                                           @RequestParam(defaultValue = "20") int n) {
+    return topLivrosTracker.top(janela, localId, n);
+  }
+
+  /**
+   * Vendas agregadas por dimensao no intervalo [from, to] (datas em UTC). So intervalos canonicos
+   * (um mes inteiro ou os ultimos 7/30/90 dias ate hoje) passam pelo cache; os demais consultam
+   * direto, para que intervalos arbitrarios nao criem uma entrada cada.
+   */
+  @GetMapping("/vendas")
+  public ResponseEntity<byte[]> vendas(@RequestParam LocalDate from,
+                                       @RequestParam LocalDate to,
+                                       @RequestParam(defaultValue = "dia") String groupBy) {
+    VendasAnaliticasService.Agrupamento agrupamento = VendasAnaliticasService.Agrupamento.of(groupBy);
+    if (!intervaloCanonico(from, to)) {
+      return json(vendasAnaliticas.consultar(from, to, agrupamento));
+    }
+    String chave = "vendas:" + from + ':' + to + ':' + agrupamento;
+    return json(cache.obterJson(DashboardCache.GRUPO_VENDAS, chave, () -> vendasAnaliticas.consultar(from, to, agrupamento)));
   }
 
   @GetMapping("/estoque-baixo")
-  public List<Map<String, Object>> estoqueBaixo() {
-    return jdbcTemplate.queryForList("select * from mv_estoque_baixo");
+  public ResponseEntity<byte[]> estoqueBaixo() {
+    // estado incremental; a MV so e usada enquanto o monitor nao conseguiu carregar
+    if (estoqueBaixo.carregado()) {
+      return json(cache.obter(DashboardCache.GRUPO_ESTOQUE, "estoque-baixo", estoqueBaixo::listar));
+    }
+    return json(cache.obterJson(DashboardCache.GRUPO_ESTOQUE, "estoque-baixo",
+        () -> resultSetJson.array(jdbcTemplate, "select * from mv_estoque_baixo")));
   }
 
   @GetMapping("/ticket-medio")
-  public List<Map<String, Object>> ticketMedio() {
-    return jdbcTemplate.queryForList("select * from mv_ticket_medio order by dia desc limit 60");
+  public ResponseEntity<byte[]> ticketMedio() {
+    return json(cache.obterJson(DashboardCache.GRUPO_VENDAS, "ticket-medio", () -> resultSetJson.array(jdbcTemplate,
+        """
+            select dia, nullif(faturamento, 0) / nullif(qtde_vendas, 0) as ticket_medio
+            from rollup_vendas_dia
+            order by dia desc
+            limit 60
+            """
+    )));
+  }
+
+  private static boolean intervaloCanonico(LocalDate from, LocalDate to) {
+    if (from.getDayOfMonth() == 1 && to.equals(from.with(TemporalAdjusters.lastDayOfMonth()))) {
+      return true;
+    }
+    return to.equals(LocalDate.now(ZoneOffset.UTC)) && ULTIMOS_DIAS.contains(ChronoUnit.DAYS.between(from, to) + 1);
+  }
+
+  private static ResponseEntity<byte[]> json(byte[] corpo) {
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(corpo);
   }
 }
@@ -0,0 +1,40 @@
+package br.com.alexandria.alexandria_api.dashboard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Parametros dos dashboards (prefixo {@code app.dashboard}).
+ *
+ * @param refresh   coordenador de refresh das materialized views
+ * @param cacheTtl  validade maxima das respostas em cache (invalidadas antes por eventos)
+ * @param cacheMaxEntradas respostas guardadas no cache; cheio, as novas nao sao guardadas (0 desliga)
+ * @param topLivros ranking de mais vendidos em memoria
+ */
+@ConfigurationProperties("app.dashboard")
+public record DashboardProperties(@DefaultValue Refresh refresh,
+                                  @DefaultValue("30s") Duration cacheTtl,
+                                  @DefaultValue("1000") int cacheMaxEntradas,
+                                  @DefaultValue TopLivros topLivros) {
+
+  /**
+   * @param debounceMs          janela que agrupa pedidos de refresh em uma unica execucao
+   * @param idadeMaximaMinutos  views dependentes do relogio (ex.: ultimos 30 dias) sao atualizadas
+   *                            apos esse tempo mesmo sem alteracao nas tabelas de origem
+   */
+  public record Refresh(@DefaultValue("2000") long debounceMs,
+                        @DefaultValue("60") long idadeMaximaMinutos) {
+  }
+
+  /**
+   * @param capacidade  livros monitorados por hora e por local (space-saving); acima disso as
+   *                    contagens passam a ser estimativas, com os limites do erro para cima
+   *                    e para baixo informados (erro_max / falta_max)
+   * @param threadsCarga consultas paralelas (uma por dia) na reconstrucao ao iniciar
+   */
+  public record TopLivros(@DefaultValue("128") int capacidade,
+                          @DefaultValue("4") int threadsCarga) {
+  }
+}
@@ -0,0 +1,285 @@
+package br.com.alexandria.alexandria_api.dashboard;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Coordena o refresh das materialized views dos dashboards.
+ *
+ * Pedidos sao agrupados por uma janela de debounce e executados em uma unica thread (nunca ha
+ * dois refreshes simultaneos nesta instancia); entre instancias, um advisory lock de sessao
+ * garante que so uma atualize. Cada view usa REFRESH ... CONCURRENTLY (leitores nao bloqueiam)
+ * e so e atualizada se as tabelas de origem mudaram desde o ultimo refresh, segundo os
+ * contadores de pg_stat_user_tables.
+ */
+@Component
+public class DashboardRefreshCoordinator {
+
+  private static final Logger log = LoggerFactory.getLogger(DashboardRefreshCoordinator.class);
+
+  /** Chave do advisory lock ("alexdash"). */
+  private static final long LOCK_REFRESH = 0x616c_6578_6461_7368L;
+
+  /** View -> tabelas de origem. */
+  private static final Map<String, List<String>> VIEWS = new LinkedHashMap<>();
+
+  static {
+    VIEWS.put("mv_dash_vendas_dia", List.of("vendas"));
+    VIEWS.put("mv_top_livros", List.of("vendas", "itens_venda"));
+    VIEWS.put("mv_estoque_baixo", List.of("estoques"));
+    VIEWS.put("mv_ticket_medio", List.of("vendas"));
+  }
+
+  /** Views cujo conteudo depende de now() e envelhecem sem alteracao nas origens. */
+  private static final Set<String> VIEWS_COM_RELOGIO = Set.of("mv_top_livros");
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final DashboardProperties.Refresh config;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "dash-refresh");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final AtomicBoolean agendado = new AtomicBoolean();
+  private final AtomicBoolean executando = new AtomicBoolean();
+  private final AtomicLong geracao = new AtomicLong();
+  private final AtomicReference<Instant> pendenteDesde = new AtomicReference<>();
+  private final Map<String, Estatistica> estatisticas = new ConcurrentHashMap<>();
+  /** Contadores das origens no ultimo refresh de cada view (so acessado pela thread do executor). */
+  private final Map<String, Map<String, Long>> base = new HashMap<>();
+
+  public DashboardRefreshCoordinator(JdbcTemplate jdbcTemplate,
+                                     ApplicationEventPublisher eventPublisher,
+                                     DashboardProperties properties) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.eventPublisher = eventPublisher;
+    this.config = properties.refresh();
+  }
+
+  @PreDestroy
+  void encerrar() {
+    executor.shutdownNow();
+  }
+
+  /** Agenda um refresh (agrupado pela janela de debounce) e retorna a geracao atual. */
+  public Map<String, Object> solicitar() {
+    pendenteDesde.compareAndSet(null, Instant.now());
+    if (agendado.compareAndSet(false, true)) {
+      executor.schedule(this::executar, config.debounceMs(), TimeUnit.MILLISECONDS);
+    }
+    return Map.of("geracao", geracao.get(), "agendado", true);
+  }
+
+  public long geracao() {
+    return geracao.get();
+  }
+
+  public Map<String, Object> status() {
+    Instant agora = Instant.now();
+    List<Map<String, Object>> views = new ArrayList<>();
+    for (String view : VIEWS.keySet()) {
+      Estatistica estatistica = estatisticas.get(view);
+      Map<String, Object> item = new LinkedHashMap<>();
+      item.put("view", view);
+      if (estatistica != null) {
+        item.put("geracao", estatistica.geracao());
+        item.put("atualizada_em", estatistica.atualizadaEm());
+        item.put("idade_ms", estatistica.atualizadaEm() == null
+            ? null
+            : Duration.between(estatistica.atualizadaEm(), agora).toMillis());
+        item.put("duracao_ms", estatistica.duracaoMs());
+        item.put("defasagem_ms", estatistica.defasagemMs());
+        item.put("puladas", estatistica.puladas());
+        item.put("erro", estatistica.erro());
+      }
+      views.add(item);
+    }
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("geracao", geracao.get());
+    status.put("executando", executando.get());
+    status.put("pendente_desde", pendenteDesde.get());
+    status.put("views", views);
+    return status;
+  }
+
+  // ============================== Execucao ====================================
+
+  private void executar() {
+    // pedidos que chegarem a partir daqui agendam a proxima execucao (roda depois desta)
+    agendado.set(false);
+    Instant desde = pendenteDesde.getAndSet(null);
+    executando.set(true);
+    try {
+      List<String> atualizadas = jdbcTemplate.execute(
+          (ConnectionCallback<List<String>>) con -> atualizar(con, desde == null ? Instant.now() : desde));
+      if (atualizadas != null && !atualizadas.isEmpty()) {
+        long nova = geracao.incrementAndGet();
+        log.info("Dashboards: geracao {} ({})", nova, atualizadas);
+        eventPublisher.publishEvent(new DashboardRefreshedEvent(nova, atualizadas));
+      }
+    } catch (RuntimeException ex) {
+      log.warn("Dashboards: falha no refresh: {}", ex.getMessage());
+    } finally {
+      executando.set(false);
+    }
+  }
+
+  private List<String> atualizar(Connection con, Instant desde) throws SQLException {
+    if (!tentarLock(con)) {
+      log.debug("Dashboards: refresh em andamento em outra instancia");
+      return List.of();
+    }
+    try {
+      // contadores lidos antes dos refreshes: alteracoes concorrentes disparam a proxima rodada
+      Map<String, Long> contadores = contadores(con);
+      Map<String, Boolean> populadas = populadas(con);
+      long proxima = geracao.get() + 1;
+      List<String> atualizadas = new ArrayList<>();
+
+      for (Map.Entry<String, List<String>> entry : VIEWS.entrySet()) {
+        String view = entry.getKey();
+        Boolean populada = populadas.get(view);
+        if (populada == null) {
+          continue;
+        }
+        Map<String, Long> origens = new HashMap<>();
+        entry.getValue().forEach(tabela -> origens.put(tabela, contadores.get(tabela)));
+
+        Estatistica anterior = estatisticas.get(view);
+        if (populada && !precisaAtualizar(view, origens, anterior)) {
+          estatisticas.put(view, anterior.pulada());
+          continue;
+        }
+
+        long inicio = System.nanoTime();
+        try (Statement st = con.createStatement()) {
+          st.execute((populada ? "refresh materialized view concurrently " : "refresh materialized view ") + view);
+        } catch (SQLException ex) {
+          log.warn("Dashboards: falha ao atualizar {}: {}", view, ex.getMessage());
+          estatisticas.put(view, anterior == null
+              ? new Estatistica(0, null, 0, 0, 0, ex.getMessage())
+              : anterior.comErro(ex.getMessage()));
+          continue;
+        }
+        Instant fim = Instant.now();
+        base.put(view, origens);
+        estatisticas.put(view, new Estatistica(
+            proxima,
+            fim,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio),
+            Duration.between(desde, fim).toMillis(),
+            0,
+            null
+        ));
+        atualizadas.add(view);
+      }
+      return atualizadas;
+    } finally {
+      liberarLock(con);
+    }
+  }
+
+  private boolean precisaAtualizar(String view, Map<String, Long> origens, Estatistica anterior) {
+    Map<String, Long> ultimo = base.get(view);
+    if (ultimo == null || anterior == null || anterior.atualizadaEm() == null || !ultimo.equals(origens)) {
+      return true;
+    }
+    return VIEWS_COM_RELOGIO.contains(view)
+        && anterior.atualizadaEm().isBefore(Instant.now().minus(Duration.ofMinutes(config.idadeMaximaMinutos())));
+  }
+
+  private static boolean tentarLock(Connection con) throws SQLException {
+    try (PreparedStatement ps = con.prepareStatement("select pg_try_advisory_lock(?)")) {
+      ps.setLong(1, LOCK_REFRESH);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() && rs.getBoolean(1);
+      }
+    }
+  }
+
+  private static void liberarLock(Connection con) throws SQLException {
+    try (PreparedStatement ps = con.prepareStatement("select pg_advisory_unlock(?)")) {
+      ps.setLong(1, LOCK_REFRESH);
+      ps.execute();
+    }
+  }
+
+  /** Total de linhas inseridas/alteradas/removidas por tabela de origem (cumulativo). */
+  private static Map<String, Long> contadores(Connection con) throws SQLException {
+    Set<String> tabelas = new HashSet<>();
+    VIEWS.values().forEach(tabelas::addAll);
+    Map<String, Long> contadores = new HashMap<>();
+    try (PreparedStatement ps = con.prepareStatement(
+        """
+            select relname, n_tup_ins + n_tup_upd + n_tup_del as alteracoes
+            from pg_stat_user_tables
+            where schemaname = current_schema() and relname = any(?)
+            """)) {
+      ps.setArray(1, con.createArrayOf("text", tabelas.toArray()));
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          contadores.put(rs.getString(1), rs.getLong(2));
+        }
+      }
+    }
+    return contadores;
+  }
+
+  private static Map<String, Boolean> populadas(Connection con) throws SQLException {
+    Map<String, Boolean> populadas = new HashMap<>();
+    try (PreparedStatement ps = con.prepareStatement(
+        "select matviewname, ispopulated from pg_matviews where schemaname = current_schema() and matviewname = any(?)")) {
+      ps.setArray(1, con.createArrayOf("text", VIEWS.keySet().toArray()));
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          populadas.put(rs.getString(1), rs.getBoolean(2));
+        }
+      }
+    }
+    return populadas;
+  }
+
+  private record Estatistica(long geracao,
+                             Instant atualizadaEm,
+                             long duracaoMs,
+                             long defasagemMs,
+                             long puladas,
+                             String erro) {
+
+    Estatistica pulada() {
+      return new Estatistica(geracao, atualizadaEm, duracaoMs, defasagemMs, puladas + 1, erro);
+    }
+
+    Estatistica comErro(String mensagem) {
+      return new Estatistica(geracao, atualizadaEm, duracaoMs, defasagemMs, puladas, mensagem);
+    }
+  }
+}
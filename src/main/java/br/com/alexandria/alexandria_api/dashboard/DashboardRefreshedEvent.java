@@ -0,0 +1,12 @@
+package br.com.alexandria.alexandria_api.dashboard;
+
+import java.util.List;
+
+/**
+ * Publicado apos uma execucao do coordenador que atualizou ao menos uma materialized view.
+ *
+ * @param geracao geracao resultante
+ * @param views   views atualizadas nesta execucao
+ */
+public record DashboardRefreshedEvent(long geracao, List<String> views) {
+}
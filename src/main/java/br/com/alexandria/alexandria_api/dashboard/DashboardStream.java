@@ -0,0 +1,126 @@
+package br.com.alexandria.alexandria_api.dashboard;
+
+import br.com.alexandria.alexandria_api.common.SseBroadcaster;
+import br.com.alexandria.alexandria_api.estoque.EstoqueBaixoEvent;
+import br.com.alexandria.alexandria_api.vendas.VendaEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Feed SSE dos dashboards ({@code GET /api/dash/stream}): totais de hoje (vendas, faturamento,
+ * ticket medio) a cada venda finalizada/estornada, transicoes de estoque baixo e novas geracoes
+ * das materialized views.
+ *
+ * Vendas em rajada sao agrupadas numa janela curta: uma unica leitura do rollup do dia e um
+ * unico JSON por atualizacao, independente do numero de assinantes. As conexoes sao assincronas
+ * (SseEmitter), sem thread presa por cliente.
+ */
+@Component
+public class DashboardStream {
+
+  private static final Logger log = LoggerFactory.getLogger(DashboardStream.class);
+  private static final long SSE_TIMEOUT_MS = Duration.ofMinutes(30).toMillis();
+  private static final long JANELA_VENDAS_MS = 250;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final SseBroadcaster broadcaster;
+  private final AtomicBoolean vendasPendentes = new AtomicBoolean();
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "dash-stream");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public DashboardStream(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.broadcaster = new SseBroadcaster("dash", objectMapper, SSE_TIMEOUT_MS);
+  }
+
+  @PreDestroy
+  void encerrar() {
+    executor.shutdownNow();
+  }
+
+  public SseEmitter assinar() {
+    Map<String, Object> hoje;
+    try {
+      hoje = vendasHoje();
+    } catch (DataAccessException ex) {
+      hoje = null;
+    }
+    return broadcaster.assinar(hoje);
+  }
+
+  @TransactionalEventListener
+  public void onVenda(VendaEvent event) {
+    if (broadcaster.assinantes() > 0 && vendasPendentes.compareAndSet(false, true)) {
+      executor.schedule(this::publicarVendas, JANELA_VENDAS_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @EventListener
+  public void onEstoqueBaixo(EstoqueBaixoEvent event) {
+    broadcaster.publicar("estoque-baixo", event.dados());
+  }
+
+  @EventListener
+  public void onDashboardRefreshed(DashboardRefreshedEvent event) {
+    broadcaster.publicar("refresh", Map.of("geracao", event.geracao(), "views", event.views()));
+  }
+
+  @Scheduled(fixedDelayString = "${app.sse.heartbeat-ms:15000}")
+  void heartbeat() {
+    broadcaster.heartbeat();
+  }
+
+  private void publicarVendas() {
+    vendasPendentes.set(false);
+    try {
+      broadcaster.publicar("vendas-hoje", vendasHoje());
+    } catch (DataAccessException ex) {
+      log.warn("Dashboard stream: falha ao ler vendas do dia: {}", ex.getMessage());
+    }
+  }
+
+  private Map<String, Object> vendasHoje() {
+    LocalDate hoje = LocalDate.now(ZoneOffset.UTC);
+    List<Map<String, Object>> linhas = jdbcTemplate.queryForList(
+        "select qtde_vendas, faturamento from rollup_vendas_dia where dia = ?",
+        Date.valueOf(hoje)
+    );
+    long vendas = linhas.isEmpty() ? 0 : ((Number) linhas.get(0).get("qtde_vendas")).longValue();
+    BigDecimal faturamento = linhas.isEmpty() || linhas.get(0).get("faturamento") == null
+        ? BigDecimal.ZERO
+        : (BigDecimal) linhas.get(0).get("faturamento");
+
+    Map<String, Object> dados = new LinkedHashMap<>();
+    dados.put("dia", hoje);
+    dados.put("qtde_vendas", vendas);
+    dados.put("faturamento", faturamento);
+    dados.put("ticket_medio", vendas == 0 ? null : faturamento.divide(BigDecimal.valueOf(vendas), 2, RoundingMode.HALF_UP));
+    return dados;
+  }
+}
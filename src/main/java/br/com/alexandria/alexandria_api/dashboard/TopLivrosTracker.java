@@ -0,0 +1,347 @@
+package br.com.alexandria.alexandria_api.dashboard;
+
+import br.com.alexandria.alexandria_api.vendas.VendaEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ranking de livros mais vendidos em janelas deslizantes (1h, 24h, 7d, 30d), global ou por
+ * local, respondido da memoria.
+ *
+ * O tempo e dividido em 720 buckets de uma hora (anel de 30 dias); cada bucket guarda um sketch
+ * space-saving em arrays primitivos por escopo (0 = global, demais = locais). Livros e locais sao
+ * internados como int. O ranking de uma janela soma os sketches das horas cobertas; as contagens
+ * sao exatas enquanto cada hora tiver no maximo {@code capacidade} livros distintos. Acima disso
+ * o erro vai para os dois lados: numa hora em que o livro e monitorado a contagem pode estar
+ * superestimada (soma dos erros herdados, {@code erro_max}); numa hora cheia em que ele nao e
+ * monitorado, as vendas dele ficam de fora, ate o menor contador daquela hora (soma em
+ * {@code falta_max}). A contagem real fica em [qtd_vendida - erro_max, qtd_vendida + falta_max].
+ *
+ * Alimentado pelos itens de vendas finalizadas/estornadas (apos o commit) e reconstruido de
+ * itens_venda ao iniciar, em consultas paralelas por dia.
+ */
+@Component
+public class TopLivrosTracker {
+
+  private static final Logger log = LoggerFactory.getLogger(TopLivrosTracker.class);
+
+  static final int HORAS = 720;
+  private static final Map<String, Integer> JANELAS = Map.of("1h", 1, "24h", 24, "7d", 24 * 7, "30d", HORAS);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final DashboardProperties.TopLivros config;
+  private final Map<UUID, Integer> livroIds = new ConcurrentHashMap<>();
+  private final List<UUID> livros = new ArrayList<>();
+  private final Map<UUID, Integer> escopos = new ConcurrentHashMap<>();
+  private final AtomicInteger ultimoEscopo = new AtomicInteger();
+  private final Bucket[] buckets = new Bucket[HORAS];
+
+  /** Enquanto a reconstrucao roda, eventos anteriores ao corte ficam por conta dela. */
+  private volatile Instant corte = Instant.MAX;
+  private volatile boolean completo;
+
+  public TopLivrosTracker(JdbcTemplate jdbcTemplate, DashboardProperties properties) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.config = properties.topLivros();
+    for (int i = 0; i < HORAS; i++) {
+      buckets[i] = new Bucket();
+    }
+  }
+
+  // ============================== Consulta ====================================
+
+  public Map<String, Object> top(String janela, UUID localId, int n) {
+    Integer horas = janela == null ? null : JANELAS.get(janela.toLowerCase(Locale.ROOT));
+    if (horas == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "janela invalida (use 1h|24h|7d|30d)");
+    }
+    int limite = Math.min(Math.max(n, 1), 100);
+
+    List<Map<String, Object>> itens = new ArrayList<>();
+    Integer escopo = localId == null ? Integer.valueOf(0) : escopos.get(localId);
+    if (escopo != null) {
+      Map<Integer, long[]> somas = new HashMap<>();
+      long minimos = 0;
+      long atual = horaAtual();
+      for (long hora = atual - horas + 1; hora <= atual; hora++) {
+        Bucket bucket = buckets[indice(hora)];
+        synchronized (bucket) {
+          if (bucket.hora == hora) {
+            Sketch sketch = bucket.sketch(escopo, false);
+            if (sketch != null) {
+              minimos += sketch.somarEm(somas);
+            }
+          }
+        }
+      }
+      long faltaMaxima = minimos;
+      somas.entrySet()
+          .stream()
+          .sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+          .limit(limite)
+          .forEach(entry -> {
+            long[] soma = entry.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("livro_id", livro(entry.getKey()));
+            item.put("qtd_vendida", soma[0]);
+            item.put("erro_max", soma[1]);
+            item.put("falta_max", faltaMaxima - soma[2]);
+            itens.add(item);
+          });
+    }
+
+    Map<String, Object> resposta = new LinkedHashMap<>();
+    resposta.put("janela", janela.toLowerCase(Locale.ROOT));
+    resposta.put("local_id", localId);
+    resposta.put("completo", completo);
+    resposta.put("itens", itens);
+    return resposta;
+  }
+
+  // ============================== Alimentacao =================================
+
+  @TransactionalEventListener
+  public void onVenda(VendaEvent event) {
+    long sinal = "ESTORNADA".equals(event.tipo()) ? -1 : 1;
+    if (event.dataVenda() == null || event.dataVenda().isBefore(corte)) {
+      return;
+    }
+    for (VendaEvent.ItemVendido item : event.itens()) {
+      registrar(event.dataVenda(), event.localId(), item.livroId(), sinal * item.quantidade());
+    }
+  }
+
+  void registrar(Instant quando, UUID localId, UUID livroId, long quantidade) {
+    long atual = horaAtual();
+    long hora = Math.min(Math.floorDiv(quando.getEpochSecond(), 3600L), atual);
+    if (hora <= atual - HORAS || livroId == null || quantidade == 0) {
+      return;
+    }
+    int livro = internarLivro(livroId);
+    int escopo = localId == null ? 0 : escopos.computeIfAbsent(localId, id -> ultimoEscopo.incrementAndGet());
+
+    Bucket bucket = buckets[indice(hora)];
+    synchronized (bucket) {
+      if (bucket.hora > hora) {
+        // o anel ja deu a volta (thread atrasada ou carga antiga): a hora saiu da janela
+        return;
+      }
+      if (bucket.hora < hora) {
+        bucket.reiniciar(hora);
+      }
+      bucket.sketch(0, true).adicionar(livro, quantidade);
+      if (escopo != 0) {
+        bucket.sketch(escopo, true).adicionar(livro, quantidade);
+      }
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    Thread thread = new Thread(this::reconstruir, "top-livros-carga");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void reconstruir() {
+    Instant fim = Instant.now();
+    corte = fim;
+    Instant inicio = Instant.ofEpochSecond((horaAtual() - HORAS + 1) * 3600L);
+    ExecutorService pool = Executors.newFixedThreadPool(Math.max(config.threadsCarga(), 1));
+    try {
+      List<CompletableFuture<Void>> partes = new ArrayList<>();
+      for (Instant de = inicio; de.isBefore(fim); de = de.plus(Duration.ofDays(1))) {
+        Instant ate = de.plus(Duration.ofDays(1)).isBefore(fim) ? de.plus(Duration.ofDays(1)) : fim;
+        Instant faixaDe = de;
+        partes.add(CompletableFuture.runAsync(() -> carregarFaixa(faixaDe, ate), pool));
+      }
+      CompletableFuture.allOf(partes.toArray(CompletableFuture[]::new)).join();
+      completo = true;
+      log.info("Top livros reconstruido ({} livros, desde {})", livros.size(), inicio);
+    } catch (RuntimeException ex) {
+      log.warn("Top livros: reconstrucao falhou, ranking so com vendas novas: {}", ex.getMessage());
+    } finally {
+      corte = Instant.MIN;
+      pool.shutdown();
+    }
+  }
+
+  private void carregarFaixa(Instant de, Instant ate) {
+    jdbcTemplate.query(
+        """
+            select date_trunc('hour', v.data_venda) as hora, v.local_id, iv.livro_id, sum(iv.quantidade) as qtd
+            from vendas v
+            join itens_venda iv on iv.venda_id = v.id
+            where v.status = 'FINALIZADA'
+              and v.data_venda >= ? and v.data_venda < ?
+            group by 1, 2, 3
+            """,
+        (RowCallbackHandler) rs -> registrar(
+            rs.getTimestamp("hora").toInstant(),
+            rs.getObject("local_id", UUID.class),
+            rs.getObject("livro_id", UUID.class),
+            rs.getLong("qtd")
+        ),
+        Timestamp.from(de),
+        Timestamp.from(ate)
+    );
+  }
+
+  // ============================== Internos ====================================
+
+  private int internarLivro(UUID livroId) {
+    Integer id = livroIds.get(livroId);
+    if (id != null) {
+      return id;
+    }
+    synchronized (livros) {
+      return livroIds.computeIfAbsent(livroId, novo -> {
+        livros.add(novo);
+        return livros.size() - 1;
+      });
+    }
+  }
+
+  private UUID livro(int id) {
+    synchronized (livros) {
+      return livros.get(id);
+    }
+  }
+
+  private static long horaAtual() {
+    return Math.floorDiv(Instant.now().getEpochSecond(), 3600L);
+  }
+
+  private static int indice(long hora) {
+    return (int) Math.floorMod(hora, (long) HORAS);
+  }
+
+  /** Uma hora do anel: um sketch por escopo, alocado sob demanda. Acesso sincronizado no bucket. */
+  private final class Bucket {
+
+    long hora = Long.MIN_VALUE;
+    Sketch[] sketches = new Sketch[0];
+
+    void reiniciar(long novaHora) {
+      hora = novaHora;
+      sketches = new Sketch[0];
+    }
+
+    Sketch sketch(int escopo, boolean criar) {
+      if (escopo >= sketches.length) {
+        if (!criar) {
+          return null;
+        }
+        sketches = Arrays.copyOf(sketches, escopo + 1);
+      }
+      if (sketches[escopo] == null && criar) {
+        sketches[escopo] = new Sketch(Math.max(config.capacidade(), 1));
+      }
+      return sketches[escopo];
+    }
+  }
+
+  /**
+   * Space-saving (Metwally et al.): ate {@code capacidade} contadores; um livro novo com o sketch
+   * cheio assume o contador minimo, herdando-o como erro. Estornos decrementam apenas livros
+   * ainda monitorados.
+   */
+  static final class Sketch {
+
+    private final int[] livros;
+    private final long[] contagens;
+    private final long[] erros;
+    private int tamanho;
+
+    Sketch(int capacidade) {
+      livros = new int[capacidade];
+      contagens = new long[capacidade];
+      erros = new long[capacidade];
+    }
+
+    void adicionar(int livro, long quantidade) {
+      for (int i = 0; i < tamanho; i++) {
+        if (livros[i] == livro) {
+          contagens[i] += quantidade;
+          if (contagens[i] <= 0) {
+            remover(i);
+          }
+          return;
+        }
+      }
+      if (quantidade <= 0) {
+        return;
+      }
+      if (tamanho < livros.length) {
+        livros[tamanho] = livro;
+        contagens[tamanho] = quantidade;
+        erros[tamanho] = 0;
+        tamanho++;
+        return;
+      }
+      int minimo = 0;
+      for (int i = 1; i < tamanho; i++) {
+        if (contagens[i] < contagens[minimo]) {
+          minimo = i;
+        }
+      }
+      livros[minimo] = livro;
+      erros[minimo] = contagens[minimo];
+      contagens[minimo] += quantidade;
+    }
+
+    /**
+     * Soma contagens e erros dos livros monitorados em {@code somas} ({contagem, erro, minimos das
+     * horas em que o livro estava presente}) e devolve o menor contador se o sketch estiver cheio
+     * (limite das vendas de um livro nao monitorado), senao 0.
+     */
+    long somarEm(Map<Integer, long[]> somas) {
+      long minimo = 0;
+      if (tamanho == livros.length) {
+        minimo = Long.MAX_VALUE;
+        for (int i = 0; i < tamanho; i++) {
+          minimo = Math.min(minimo, contagens[i]);
+        }
+      }
+      for (int i = 0; i < tamanho; i++) {
+        long[] soma = somas.computeIfAbsent(livros[i], k -> new long[3]);
+        soma[0] += contagens[i];
+        soma[1] += erros[i];
+        soma[2] += minimo;
+      }
+      return minimo;
+    }
+
+    private void remover(int i) {
+      tamanho--;
+      livros[i] = livros[tamanho];
+      contagens[i] = contagens[tamanho];
+      erros[i] = erros[tamanho];
+    }
+  }
+}
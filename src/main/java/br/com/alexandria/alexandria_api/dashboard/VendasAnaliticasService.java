@@ -0,0 +1,100 @@
+package br.com.alexandria.alexandria_api.dashboard;
+
+import br.com.alexandria.alexandria_api.common.ResultSetJson;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Consultas de vendas por intervalo e dimensao sobre fato_vendas_dia (grao dia x local x
+ * categoria x funcionario). O custo depende do numero de dias do intervalo, nao do historico.
+ */
+@Service
+@RequiredArgsConstructor
+public class VendasAnaliticasService {
+
+  /** Intervalo maximo aceito (dias). */
+  private static final long MAX_DIAS = 3660;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ResultSetJson resultSetJson;
+
+  /**
+   * Dimensoes aceitas em {@code groupBy}: expressao da chave, juncao do nome e medidas. Por
+   * categoria, vendas contam em cada categoria presente e o ticket usa a receita dos itens.
+   */
+  public enum Agrupamento {
+    LOCAL("f.local_id", "left join locais_estoque d on d.id = g.chave", "qtde_vendas", "faturamento"),
+    CATEGORIA("f.categoria_id", "left join categorias d on d.id = g.chave", "qtde_vendas_categoria", "receita"),
+    FUNCIONARIO("f.funcionario_id", "left join funcionarios d on d.id = g.chave", "qtde_vendas", "faturamento"),
+    DIA("f.dia", null, "qtde_vendas", "faturamento"),
+    SEMANA("date_trunc('week', f.dia)::date", null, "qtde_vendas", "faturamento"),
+    MES("date_trunc('month', f.dia)::date", null, "qtde_vendas", "faturamento");
+
+    private final String chave;
+    private final String juncao;
+    private final String vendas;
+    private final String valorTicket;
+
+    Agrupamento(String chave, String juncao, String vendas, String valorTicket) {
+      this.chave = chave;
+      this.juncao = juncao;
+      this.vendas = vendas;
+      this.valorTicket = valorTicket;
+    }
+
+    public static Agrupamento of(String valor) {
+      try {
+        return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException | NullPointerException ex) {
+        throw new ResponseStatusException(
+            HttpStatus.BAD_REQUEST,
+            "groupBy invalido (use local|categoria|funcionario|dia|semana|mes)"
+        );
+      }
+    }
+  }
+
+  /** Linhas do agrupamento ja em JSON (array), escritas direto do ResultSet. */
+  public byte[] consultar(LocalDate de, LocalDate ate, Agrupamento agrupamento) {
+    if (ate.isBefore(de)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Intervalo invalido: to < from");
+    }
+    if (ChronoUnit.DAYS.between(de, ate) > MAX_DIAS) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Intervalo maximo de " + MAX_DIAS + " dias");
+    }
+
+    // as expressoes vem do enum (nunca da requisicao)
+    String sql = """
+        select g.chave, %s as nome, g.qtde_vendas, g.qtde_itens, g.receita, g.faturamento,
+               g.%s / nullif(g.qtde_vendas, 0) as ticket_medio
+        from (
+          select %s as chave,
+                 sum(f.%s) as qtde_vendas,
+                 sum(f.qtde_itens) as qtde_itens,
+                 sum(f.receita) as receita,
+                 sum(f.faturamento) as faturamento
+          from fato_vendas_dia f
+          where f.dia between ? and ?
+          group by 1
+        ) g
+        %s
+        order by %s
+        """.formatted(
+        agrupamento.juncao == null ? "null" : "d.nome",
+        agrupamento.valorTicket,
+        agrupamento.chave,
+        agrupamento.vendas,
+        agrupamento.juncao == null ? "" : agrupamento.juncao,
+        agrupamento.juncao == null ? "g.chave" : "g.receita desc, g.chave"
+    );
+    return resultSetJson.array(jdbcTemplate, sql, Date.valueOf(de), Date.valueOf(ate));
+  }
+}
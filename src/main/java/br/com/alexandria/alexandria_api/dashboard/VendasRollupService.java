@@ -0,0 +1,112 @@
+package br.com.alexandria.alexandria_api.dashboard;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Mantem os rollups de vendas (rollup_vendas_dia_local / rollup_vendas_dia_livro) e o fato
+ * fato_vendas_dia na transacao de quem finaliza ou estorna a venda: uma venda finalizada soma,
+ * um estorno subtrai no dia original da venda. Deve ser chamado depois da mudanca de status,
+ * como ultimos statements da transacao (segura o lock das linhas de rollup pelo menor tempo
+ * possivel).
+ */
+@Service
+@RequiredArgsConstructor
+public class VendasRollupService {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void registrarFinalizada(UUID vendaId) {
+    aplicar(vendaId, 1);
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void registrarEstornada(UUID vendaId) {
+    aplicar(vendaId, -1);
+  }
+
+  private void aplicar(UUID vendaId, int sinal) {
+    jdbcTemplate.update(
+        """
+            insert into rollup_vendas_dia_local (dia, local_id, qtde_vendas, faturamento)
+            select (v.data_venda at time zone 'UTC')::date, v.local_id, ?, ? * v.total
+            from vendas v
+            where v.id = ?
+            on conflict (dia, local_id) do update
+            set qtde_vendas = rollup_vendas_dia_local.qtde_vendas + excluded.qtde_vendas,
+                faturamento = rollup_vendas_dia_local.faturamento + excluded.faturamento,
+                atualizado_em = now()
+            """,
+        sinal,
+        sinal,
+        vendaId
+    );
+    // ordem fixa por livro_id: vendas concorrentes com os mesmos livros nao entram em deadlock
+    jdbcTemplate.update(
+        """
+            insert into rollup_vendas_dia_livro (dia, livro_id, qtd_vendida, receita)
+            select (v.data_venda at time zone 'UTC')::date, iv.livro_id, ? * sum(iv.quantidade), ? * sum(iv.total)
+            from itens_venda iv
+            join vendas v on v.id = iv.venda_id
+            where v.id = ?
+            group by 1, 2
+            order by 2
+            on conflict (dia, livro_id) do update
+            set qtd_vendida = rollup_vendas_dia_livro.qtd_vendida + excluded.qtd_vendida,
+                receita = rollup_vendas_dia_livro.receita + excluded.receita,
+                atualizado_em = now()
+            """,
+        sinal,
+        sinal,
+        vendaId
+    );
+    // categoria do livro lida no momento: se mudar entre venda e estorno, o estorno sai da nova
+    jdbcTemplate.update(
+        """
+            insert into fato_vendas_dia (dia, local_id, categoria_id, funcionario_id, qtde_vendas,
+                                         qtde_vendas_categoria, qtde_itens, receita, faturamento)
+            select f.dia, f.local_id, f.categoria_id, f.funcionario_id,
+                   ? * f.principal::int,
+                   ?,
+                   ? * f.qtde_itens,
+                   ? * f.receita,
+                   ? * case when f.principal then f.total_venda else 0 end
+            from (
+              select (v.data_venda at time zone 'UTC')::date as dia,
+                     v.local_id,
+                     l.categoria_id,
+                     v.funcionario_id,
+                     v.total as total_venda,
+                     coalesce(sum(iv.quantidade), 0) as qtde_itens,
+                     coalesce(sum(iv.total), 0) as receita,
+                     row_number() over (order by coalesce(sum(iv.total), 0) desc, l.categoria_id) = 1 as principal
+              from vendas v
+              left join itens_venda iv on iv.venda_id = v.id
+              left join livros l on l.id = iv.livro_id
+              where v.id = ?
+              group by 1, 2, 3, 4, 5
+            ) f
+            order by f.categoria_id
+            on conflict (dia, local_id, categoria_id, funcionario_id) do update
+            set qtde_vendas = fato_vendas_dia.qtde_vendas + excluded.qtde_vendas,
+                qtde_vendas_categoria = fato_vendas_dia.qtde_vendas_categoria + excluded.qtde_vendas_categoria,
+                qtde_itens = fato_vendas_dia.qtde_itens + excluded.qtde_itens,
+                receita = fato_vendas_dia.receita + excluded.receita,
+                faturamento = fato_vendas_dia.faturamento + excluded.faturamento,
+                atualizado_em = now()
+            """,
+        sinal,
+        sinal,
+        sinal,
+        sinal,
+        sinal,
+        vendaId
+    );
+  }
+}
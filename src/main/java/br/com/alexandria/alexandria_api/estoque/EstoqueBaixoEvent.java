@@ -0,0 +1,12 @@
+package br.com.alexandria.alexandria_api.estoque;
+
+import java.util.Map;
+
+/**
+ * Transicao do conjunto de estoque baixo (BAIXO / ATUALIZADO / NORMALIZADO), publicada pelo
+ * {@link EstoqueBaixoMonitor} fora de transacao.
+ *
+ * @param dados transicao no mesmo formato enviado aos assinantes SSE
+ */
+public record EstoqueBaixoEvent(Map<String, Object> dados) {
+}
@@ -0,0 +1,354 @@
+package br.com.alexandria.alexandria_api.estoque;
+
+import br.com.alexandria.alexandria_api.common.SseBroadcaster;
+import br.com.alexandria.alexandria_api.generic.TabelaAlteradaEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Conjunto incremental de estoque baixo (disponivel <= minimo), substituto "ao vivo" de
+ * mv_estoque_baixo.
+ *
+ * As mutacoes de estoque registram os pares livro/local tocados na transacao corrente; apos o
+ * commit somente esses pares sao relidos (uma consulta por lote) e as transicoes
+ * (BAIXO / ATUALIZADO / NORMALIZADO) sao enviadas aos assinantes SSE. A avaliacao roda em uma
+ * unica thread, entao leituras mais novas nunca sao sobrescritas por mais antigas.
+ *
+ * Os toques so enxergam as escritas desta instancia. Com varias instancias (ou SQL fora da API),
+ * uma varredura completa periodica ({@code app.estoque.baixo.reconciliacao-ms}) compara estoques
+ * com o conjunto e publica as transicoes que faltaram, na mesma thread da avaliacao; ate la a
+ * lista pode estar atrasada em relacao a escritas de outras instancias.
+ */
+@Component
+public class EstoqueBaixoMonitor {
+
+  private static final Logger log = LoggerFactory.getLogger(EstoqueBaixoMonitor.class);
+  private static final long SSE_TIMEOUT_MS = Duration.ofMinutes(30).toMillis();
+  private static final String TABELA_ESTOQUES = "estoques";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final SseBroadcaster broadcaster;
+  private final Map<Chave, Item> baixos = new ConcurrentHashMap<>();
+  private final Set<Chave> pendentes = ConcurrentHashMap.newKeySet();
+  private final Set<UUID> locaisPendentes = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean agendado = new AtomicBoolean();
+  private final AtomicBoolean reconciliar = new AtomicBoolean();
+  private final ExecutorService avaliador = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "estoque-baixo");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile boolean carregado;
+
+  public EstoqueBaixoMonitor(JdbcTemplate jdbcTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             ObjectMapper objectMapper) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.eventPublisher = eventPublisher;
+    this.broadcaster = new SseBroadcaster("estoque-baixo", objectMapper, SSE_TIMEOUT_MS);
+  }
+
+  @PreDestroy
+  void encerrar() {
+    avaliador.shutdownNow();
+  }
+
+  // ============================== Consulta ====================================
+
+  /** Verdadeiro quando o conjunto em memoria ja foi carregado e esta sendo mantido. */
+  public boolean carregado() {
+    return carregado;
+  }
+
+  /** Estado atual, nas mesmas colunas de mv_estoque_baixo. */
+  public List<Map<String, Object>> listar() {
+    return baixos.values()
+        .stream()
+        .sorted(Comparator.comparingInt(Item::disponivel).thenComparing(item -> item.chave().livroId()))
+        .map(Item::toMap)
+        .toList();
+  }
+
+  public SseEmitter assinar() {
+    return broadcaster.assinar(carregado ? listar() : null);
+  }
+
+  @Scheduled(fixedDelayString = "${app.sse.heartbeat-ms:15000}")
+  void heartbeat() {
+    broadcaster.heartbeat();
+  }
+
+  // ============================== Registro ====================================
+
+  /**
+   * Marca o par livro/local como alterado. Dentro de uma transacao a reavaliacao acontece
+   * apos o commit (e nao acontece no rollback); fora dela, imediatamente.
+   */
+  public void tocar(UUID livroId, UUID localId) {
+    if (livroId == null || localId == null) {
+      return;
+    }
+    Chave chave = new Chave(livroId, localId);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      pendentes.add(chave);
+      agendar();
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    Set<Chave> tocadas = (Set<Chave>) TransactionSynchronizationManager.getResource(this);
+    if (tocadas == null) {
+      Set<Chave> novas = new HashSet<>();
+      TransactionSynchronizationManager.bindResource(this, novas);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(EstoqueBaixoMonitor.this);
+          if (status == STATUS_COMMITTED) {
+            pendentes.addAll(novas);
+            agendar();
+          }
+        }
+      });
+      tocadas = novas;
+    }
+    tocadas.add(chave);
+  }
+
+  /** Reavalia todos os livros de um local (ex.: fechamento de inventario). */
+  public void tocarLocal(UUID localId) {
+    locaisPendentes.add(localId);
+    agendar();
+  }
+
+  @EventListener
+  public void onTabelaAlterada(TabelaAlteradaEvent event) {
+    if (!TABELA_ESTOQUES.equals(event.tabela())) {
+      return;
+    }
+    for (Map<String, Object> linha : event.linhas()) {
+      tocar((UUID) linha.get("livro_id"), (UUID) linha.get("local_id"));
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    agendar();
+  }
+
+  /** Varredura completa: pega as escritas de outras instancias, que nao passam por {@link #tocar}. */
+  @Scheduled(fixedDelayString = "${app.estoque.baixo.reconciliacao-ms:60000}",
+      initialDelayString = "${app.estoque.baixo.reconciliacao-ms:60000}")
+  void agendarReconciliacao() {
+    reconciliar.set(true);
+    agendar();
+  }
+
+  // ============================== Avaliacao ===================================
+
+  private void agendar() {
+    if (agendado.compareAndSet(false, true)) {
+      try {
+        avaliador.execute(this::drenar);
+      } catch (RuntimeException ex) {
+        agendado.set(false);
+        log.debug("Monitor de estoque baixo indisponivel: {}", ex.getMessage());
+      }
+    }
+  }
+
+  private void drenar() {
+    agendado.set(false);
+    List<Chave> chaves = new ArrayList<>(pendentes);
+    pendentes.removeAll(chaves);
+    List<UUID> locais = new ArrayList<>(locaisPendentes);
+    locaisPendentes.removeAll(locais);
+    try {
+      if (!carregado) {
+        carregar();
+        return;
+      }
+      if (reconciliar.getAndSet(false)) {
+        carregar();
+      }
+      for (UUID localId : locais) {
+        reavaliarLocal(localId);
+      }
+      if (!chaves.isEmpty()) {
+        reavaliar(chaves);
+      }
+    } catch (DataAccessException ex) {
+      // devolve para a proxima rodada
+      pendentes.addAll(chaves);
+      locaisPendentes.addAll(locais);
+      log.warn("Falha ao reavaliar estoque baixo: {}", ex.getMessage());
+    }
+  }
+
+  /** Carga inicial ou, ja carregado, reconciliacao: publica a diferenca para o conjunto atual. */
+  private void carregar() {
+    try {
+      Map<Chave, Item> atual = new HashMap<>();
+      jdbcTemplate.query(
+          """
+              select livro_id, local_id, quantidade - reservado as saldo, minimo
+              from estoques
+              where quantidade - reservado <= minimo
+              """,
+          (RowCallbackHandler) rs -> {
+            Item item = item(rs);
+            atual.put(item.chave(), item);
+          }
+      );
+      if (carregado) {
+        Set<Chave> chaves = new HashSet<>(baixos.keySet());
+        chaves.addAll(atual.keySet());
+        for (Chave chave : chaves) {
+          aplicar(chave, atual.get(chave));
+        }
+        return;
+      }
+      baixos.clear();
+      baixos.putAll(atual);
+      carregado = true;
+      log.info("Monitor de estoque baixo carregado: {} itens", atual.size());
+    } catch (DataAccessException ex) {
+      if (carregado) {
+        log.warn("Falha ao reconciliar estoque baixo: {}", ex.getMessage());
+      } else {
+        log.warn("Monitor de estoque baixo nao carregado (usando mv_estoque_baixo): {}", ex.getMessage());
+      }
+    }
+  }
+
+  private void reavaliar(List<Chave> chaves) {
+    Map<Chave, Item> lidos = new HashMap<>();
+    jdbcTemplate.query(
+        con -> {
+          PreparedStatement ps = con.prepareStatement(
+              """
+                  select e.livro_id, e.local_id, e.quantidade - e.reservado as saldo, e.minimo
+                  from unnest(?::uuid[], ?::uuid[]) as t(livro_id, local_id)
+                  join estoques e on e.livro_id = t.livro_id and e.local_id = t.local_id
+                  """
+          );
+          ps.setArray(1, con.createArrayOf("uuid", chaves.stream().map(Chave::livroId).toArray()));
+          ps.setArray(2, con.createArrayOf("uuid", chaves.stream().map(Chave::localId).toArray()));
+          return ps;
+        },
+        (RowCallbackHandler) rs -> {
+          Item item = item(rs);
+          lidos.put(item.chave(), item);
+        }
+    );
+    for (Chave chave : chaves) {
+      aplicar(chave, lidos.get(chave));
+    }
+  }
+
+  private void reavaliarLocal(UUID localId) {
+    Map<Chave, Item> lidos = new HashMap<>();
+    jdbcTemplate.query(
+        """
+            select livro_id, local_id, quantidade - reservado as saldo, minimo
+            from estoques
+            where local_id = ? and quantidade - reservado <= minimo
+            """,
+        (RowCallbackHandler) rs -> {
+          Item item = item(rs);
+          lidos.put(item.chave(), item);
+        },
+        localId
+    );
+    Set<Chave> chaves = new HashSet<>(lidos.keySet());
+    baixos.keySet().stream().filter(chave -> chave.localId().equals(localId)).forEach(chaves::add);
+    for (Chave chave : chaves) {
+      aplicar(chave, lidos.get(chave));
+    }
+  }
+
+  /** Aplica o estado lido (null = linha inexistente) e publica a transicao, se houver. */
+  private void aplicar(Chave chave, Item lido) {
+    Item novo = lido != null && lido.baixo() ? lido : null;
+    Item anterior = novo == null ? baixos.remove(chave) : baixos.put(chave, novo);
+
+    String transicao;
+    if (anterior == null && novo == null) {
+      return;
+    } else if (anterior == null) {
+      transicao = "BAIXO";
+    } else if (novo == null) {
+      transicao = "NORMALIZADO";
+    } else if (anterior.saldo() != novo.saldo() || anterior.minimo() != novo.minimo()) {
+      transicao = "ATUALIZADO";
+    } else {
+      return;
+    }
+    Map<String, Object> evento = new LinkedHashMap<>();
+    evento.put("transicao", transicao);
+    evento.putAll((novo != null ? novo : lido != null ? lido : anterior).toMap());
+    broadcaster.publicar("estoque-baixo", evento);
+    eventPublisher.publishEvent(new EstoqueBaixoEvent(evento));
+  }
+
+  private static Item item(ResultSet rs) throws SQLException {
+    return new Item(
+        new Chave(rs.getObject("livro_id", UUID.class), rs.getObject("local_id", UUID.class)),
+        rs.getInt("saldo"),
+        rs.getInt("minimo")
+    );
+  }
+
+  private record Chave(UUID livroId, UUID localId) {}
+
+  private record Item(Chave chave, int saldo, int minimo) {
+
+    boolean baixo() {
+      return saldo <= minimo;
+    }
+
+    int disponivel() {
+      return Math.max(saldo, 0);
+    }
+
+    Map<String, Object> toMap() {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("livro_id", chave.livroId());
+      map.put("local_id", chave.localId());
+      map.put("disponivel", disponivel());
+      map.put("minimo", minimo);
+      return map;
+    }
+  }
+}
@@ -1,15 +1,26 @@
 package br.com.alexandria.alexandria_api.estoque;
 
+import br.com.alexandria.alexandria_api.auth.RequerPermissao;
+import br.com.alexandria.alexandria_api.replica.LeituraReplica;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -19,6 +30,8 @@ import java.util.UUID;
 public class EstoqueController {
 
   private final EstoqueService estoqueService;
+  private final EstoqueVerificador estoqueVerificador;
+  private final EstoqueBaixoMonitor estoqueBaixo;
 
   public record MovReq(@NotNull UUID livroId,
                        @NotNull UUID localId,
@@ -26,6 +39,7 @@ public class EstoqueController {
                        int quantidade,
                        String motivo) {}
 
+  @RequerPermissao("estoque.movimentar")
   @PostMapping("/movimentar")
   public void movimentar(@RequestBody @Valid MovReq request) {
     estoqueService.movimentar(new EstoqueService.Movimentacao(
@@ -57,13 +71,43 @@ public class EstoqueController {
     estoqueService.liberar(reservaId);
   }
 
+  public record DisponibilidadeReq(@NotEmpty @Size(max = 5000) List<@NotNull UUID> livroIds,
+                                   List<@NotNull UUID> localIds) {}
+
+  @PostMapping("/disponibilidade")
+  public Map<UUID, Map<UUID, Integer>> disponibilidade(@RequestBody @Valid DisponibilidadeReq request) {
+    return estoqueService.disponibilidade(request.livroIds(), request.localIds());
+  }
+
+  @GetMapping("/baixo")
+  public List<Map<String, Object>> estoqueBaixo() {
+    return estoqueBaixo.listar();
+  }
+
+  @GetMapping(path = "/baixo/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter estoqueBaixoStream() {
+    return estoqueBaixo.assinar();
+  }
+
+  @LeituraReplica
+  @GetMapping("/movimentacoes")
+  public Map<String, Object> extrato(@RequestParam UUID livroId,
+                                     @RequestParam UUID localId,
+                                     @RequestParam(required = false) Instant antesDe,
+                                     @RequestParam(required = false) UUID antesId,
+                                     @RequestParam(defaultValue = "50") int limite) {
+    return estoqueService.extrato(livroId, localId, antesDe, antesId, limite);
+  }
+
   public record InventarioReq(@NotNull UUID localId, String observacao) {}
 
+  @RequerPermissao("estoque.inventario")
   @PostMapping("/inventario/abrir")
   public Map<String, Object> abrirInventario(@RequestBody @Valid InventarioReq request) {
     return estoqueService.abrirInventario(request.localId(), request.observacao());
   }
 
+  @RequerPermissao("estoque.inventario")
   @PostMapping("/inventario/{id}/contar")
   public void contarInventario(@PathVariable UUID id,
                                @RequestParam UUID livroId,
@@ -71,8 +115,21 @@ public class EstoqueController {
     estoqueService.contarItem(id, livroId, quantidade);
   }
 
+  @RequerPermissao("estoque.inventario")
   @PostMapping("/inventario/{id}/fechar")
-  public void fecharInventario(@PathVariable UUID id) {
-    estoqueService.fecharInventario(id);
+  public Map<String, Object> fecharInventario(@PathVariable UUID id) {
+    return estoqueService.fecharInventario(id);
+  }
+
+  @RequerPermissao("estoque.verificar")
+  @PostMapping("/verificacao")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public Map<String, Object> iniciarVerificacao(@RequestParam(defaultValue = "false") boolean reparar) {
+    return estoqueVerificador.iniciar(reparar);
+  }
+
+  @GetMapping("/verificacao")
+  public Map<String, Object> ultimaVerificacao() {
+    return estoqueVerificador.ultima();
   }
 }
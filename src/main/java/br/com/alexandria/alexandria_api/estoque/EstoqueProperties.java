@@ -0,0 +1,39 @@
+package br.com.alexandria.alexandria_api.estoque;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Parametros do modulo de estoque (prefixo {@code app.estoque}).
+ *
+ * @param inventarioLote quantidade de livros ajustados por transacao no fechamento de inventario
+ *                       (0 = tudo em uma unica transacao)
+ * @param ledger         manutencao das particoes mensais de movimentacoes_estoque
+ * @param verificacao    verificador de consistencia estoques x ledger
+ */
+@ConfigurationProperties("app.estoque")
+public record EstoqueProperties(@DefaultValue("5000") int inventarioLote,
+                                @DefaultValue Ledger ledger,
+                                @DefaultValue Verificacao verificacao) {
+
+  /**
+   * @param mesesFuturos  particoes criadas a frente do mes corrente
+   * @param retencaoMeses meses mantidos na tabela quente (0 = nunca desanexar)
+   * @param schemaArquivo schema que recebe as particoes desanexadas (vazio = descartar)
+   */
+  public record Ledger(@DefaultValue("3") int mesesFuturos,
+                       @DefaultValue("0") int retencaoMeses,
+                       @DefaultValue("arquivo") String schemaArquivo) {
+  }
+
+  /**
+   * @param faixas          faixas de livro_id verificadas em paralelo
+   * @param threads         tamanho do pool do verificador
+   * @param atrasoSegundos  atraso da marca d'agua em relacao ao inicio (transacoes ainda abertas
+   *                        com criado_em anterior nao ficam fora do checkpoint)
+   */
+  public record Verificacao(@DefaultValue("16") int faixas,
+                            @DefaultValue("4") int threads,
+                            @DefaultValue("900") int atrasoSegundos) {
+  }
+}
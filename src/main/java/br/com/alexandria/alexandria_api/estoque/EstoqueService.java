@@ -1,15 +1,22 @@
 package br.com.alexandria.alexandria_api.estoque;
 
+import br.com.alexandria.alexandria_api.observability.MetricasNegocio;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.Array;
+import java.sql.PreparedStatement;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -19,7 +26,13 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class EstoqueService {
 
+  private static final UUID ULTIMO_UUID = new UUID(-1L, -1L);
+
   private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final EstoqueProperties properties;
+  private final EstoqueBaixoMonitor estoqueBaixo;
+  private final MetricasNegocio metricas;
 
   // ===================== Movimentacoes Manuais ===============================
 
@@ -70,6 +83,7 @@ public class EstoqueService {
       }
       default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tipo invalido: " + tipo);
     }
+    estoqueBaixo.tocar(livroId, localId);
   }
 
   // ============================= Reservas ====================================
@@ -106,6 +120,8 @@ public class EstoqueService {
         reserva.livroId(),
         reserva.localId()
     );
+    estoqueBaixo.tocar(reserva.livroId(), reserva.localId());
+    metricas.reserva();
 
     return Map.of(
         "id", id,
@@ -134,6 +150,7 @@ public class EstoqueService {
         "update reservas_estoque set status = 'CANCELADA', updated_at = now() where id = ?",
         reservaId
     );
+    estoqueBaixo.tocar((UUID) row.get("livro_id"), (UUID) row.get("local_id"));
   }
 
   @Transactional
@@ -163,6 +180,88 @@ public class EstoqueService {
         "update reservas_estoque set status = 'CONSUMIDA', updated_at = now() where id = ?",
         reservaId
     );
+    estoqueBaixo.tocar(livroId, localId);
+  }
+
+  // =========================== Disponibilidade ================================
+
+  /**
+   * Disponivel (quantidade - reservado) de varios livros em varios locais com uma unica consulta
+   * ({@code = any(?)}). Retorna livro -> local -> disponivel; livros sem estoque vem com mapa vazio.
+   * {@code localIds} nulo ou vazio considera todos os locais.
+   */
+  public Map<UUID, Map<UUID, Integer>> disponibilidade(Collection<UUID> livroIds, Collection<UUID> localIds) {
+    Map<UUID, Map<UUID, Integer>> resultado = new LinkedHashMap<>();
+    for (UUID livroId : livroIds) {
+      resultado.putIfAbsent(livroId, new LinkedHashMap<>());
+    }
+    if (resultado.isEmpty()) {
+      return resultado;
+    }
+    boolean filtraLocal = localIds != null && !localIds.isEmpty();
+
+    jdbcTemplate.query(
+        con -> {
+          PreparedStatement ps = con.prepareStatement(
+              """
+                  select livro_id, local_id, quantidade - reservado as disponivel
+                  from estoques
+                  where livro_id = any(?)
+                    and (?::uuid[] is null or local_id = any(?))
+                  """
+          );
+          ps.setArray(1, con.createArrayOf("uuid", resultado.keySet().toArray()));
+          Array locais = filtraLocal ? con.createArrayOf("uuid", localIds.toArray()) : null;
+          ps.setArray(2, locais);
+          ps.setArray(3, locais);
+          return ps;
+        },
+        (RowCallbackHandler) rs -> resultado
+            .get(rs.getObject("livro_id", UUID.class))
+            .put(rs.getObject("local_id", UUID.class), rs.getInt("disponivel"))
+    );
+    return resultado;
+  }
+
+  // ============================== Extrato =====================================
+
+  /**
+   * Extrato (ledger) de um livro em um local, do mais recente para o mais antigo, paginado por
+   * keyset em (criado_em, id). Para a proxima pagina envie o cursor "proximo" retornado.
+   */
+  public Map<String, Object> extrato(UUID livroId, UUID localId, Instant antesDe, UUID antesId, int limite) {
+    int tamanho = Math.min(Math.max(limite, 1), 500);
+    Timestamp cursor = antesDe == null ? null : Timestamp.from(antesDe);
+    List<Map<String, Object>> linhas = jdbcTemplate.queryForList(
+        """
+            select id, livro_id, local_id, tipo, quantidade, motivo,
+                   origem_venda_item_id, origem_dev_cli_item_id, origem_dev_forn_id, criado_em
+            from movimentacoes_estoque
+            where livro_id = ? and local_id = ?
+              and (?::timestamptz is null or (criado_em, id) < (?::timestamptz, ?::uuid))
+            order by criado_em desc, id desc
+            limit ?
+            """,
+        livroId,
+        localId,
+        cursor,
+        cursor,
+        antesId == null ? ULTIMO_UUID : antesId,
+        tamanho
+    );
+
+    Map<String, Object> proximo = null;
+    if (linhas.size() == tamanho) {
+      Map<String, Object> ultima = linhas.get(linhas.size() - 1);
+      proximo = Map.of(
+          "antesDe", ((Timestamp) ultima.get("criado_em")).toInstant(),
+          "antesId", ultima.get("id")
+      );
+    }
+    Map<String, Object> pagina = new LinkedHashMap<>();
+    pagina.put("content", linhas);
+    pagina.put("proximo", proximo);
+    return pagina;
   }
 
   // ============================ Inventario ====================================
@@ -199,42 +298,124 @@ public class EstoqueService {
     );
   }
 
-  @Transactional
-  public void fecharInventario(UUID inventarioId) {
-    List<Map<String, Object>> itens = jdbcTemplate.queryForList(
-        """
-            select ii.livro_id,
-                   ii.quantidade_sistema as sistema,
-                   coalesce(ii.quantidade_contada, 0) as contada,
-                   i.local_id
-            from itens_inventario ii
-            join inventarios i on i.id = ii.inventario_id
-            where ii.inventario_id = ?
-            """,
-        inventarioId
-    );
-
-    for (Map<String, Object> item : itens) {
-      UUID livroId = (UUID) item.get("livro_id");
-      UUID localId = (UUID) item.get("local_id");
-      int sistema = ((Number) item.get("sistema")).intValue();
-      int contada = ((Number) item.get("contada")).intValue();
-      int delta = contada - sistema;
-      if (delta != 0) {
-        ensureEstoqueRow(livroId, localId);
-        jdbcTemplate.update(
-            "update estoques set quantidade = quantidade + ? where livro_id = ? and local_id = ?",
-            delta,
-            livroId,
-            localId
-        );
-        registrarMovimentacao(livroId, localId, "AJUSTE", delta, "inventario", null, null, null);
+  /**
+   * Fecha o inventario aplicando as diferencas (contada - sistema) de forma set-based:
+   * cada faixa de livros e ajustada com dois statements (garante as linhas de estoque; update em
+   * estoques + insert ... select das movimentacoes AJUSTE), em transacoes curtas para nao segurar
+   * locks da loja inteira.
+   * Itens ja ajustados ficam conciliados (sistema = contada), entao reexecutar e seguro.
+   */
+  public Map<String, Object> fecharInventario(UUID inventarioId) {
+    UUID localId = getLocalInventarioAberto(inventarioId);
+    Integer lote = properties.inventarioLote() > 0 ? properties.inventarioLote() : null;
+
+    long itensLidos = 0;
+    long skusAjustados = 0;
+    long deltaLiquido = 0;
+    UUID cursor = null;
+    while (true) {
+      AjusteLote ajuste = ajustarLoteInventario(inventarioId, localId, cursor, lote);
+      itensLidos += ajuste.lidos();
+      skusAjustados += ajuste.skus();
+      deltaLiquido += ajuste.delta();
+      if (lote == null || ajuste.lidos() < lote) {
+        break;
       }
+      cursor = ajuste.ultimoLivroId();
     }
+
     jdbcTemplate.update(
-        "update inventarios set finalizado_em = now(), status = 'FECHADO', updated_at = now() where id = ?",
+        "update inventarios set finalizado_em = now(), status = 'FINALIZADO', updated_at = now() where id = ?",
         inventarioId
     );
+    estoqueBaixo.tocarLocal(localId);
+    metricas.movimentacoes("AJUSTE", skusAjustados);
+    return Map.of(
+        "inventario_id", inventarioId,
+        "status", "FINALIZADO",
+        "itens_lidos", itensLidos,
+        "skus_ajustados", skusAjustados,
+        "delta_liquido", deltaLiquido
+    );
+  }
+
+  private AjusteLote ajustarLoteInventario(UUID inventarioId, UUID localId, UUID cursor, Integer lote) {
+    return transactionTemplate.execute(status -> {
+      // 1) trava o lote (faixa de livro_id) e garante as linhas de estoque faltantes
+      Map<String, Object> faixa = jdbcTemplate.queryForMap(
+          """
+              with lote as (
+                select ii.livro_id, coalesce(ii.quantidade_contada, 0) - ii.quantidade_sistema as delta
+                from itens_inventario ii
+                where ii.inventario_id = ?
+                  and (?::uuid is null or ii.livro_id > ?)
+                order by ii.livro_id
+                limit ?
+                for update
+              ), novos as (
+                insert into estoques (id, livro_id, local_id, quantidade, reservado, minimo, created_at, updated_at)
+                select gen_random_uuid(), livro_id, ?, 0, 0, 0, now(), now()
+                from lote
+                where delta <> 0
+                on conflict (livro_id, local_id) do nothing
+              )
+              select (select count(*) from lote) as lidos,
+                     (select livro_id from lote order by livro_id desc limit 1) as ultimo_livro_id
+              """,
+          inventarioId,
+          cursor,
+          cursor,
+          lote,
+          localId
+      );
+      long lidos = ((Number) faixa.get("lidos")).longValue();
+      UUID ultimoLivroId = (UUID) faixa.get("ultimo_livro_id");
+      if (lidos == 0) {
+        return new AjusteLote(0, null, 0, 0);
+      }
+
+      // 2) aplica os deltas da faixa, grava as movimentacoes AJUSTE e concilia os itens
+      Map<String, Object> ajuste = jdbcTemplate.queryForMap(
+          """
+              with ajustes as (
+                select ii.id, ii.livro_id, coalesce(ii.quantidade_contada, 0) - ii.quantidade_sistema as delta
+                from itens_inventario ii
+                where ii.inventario_id = ?
+                  and (?::uuid is null or ii.livro_id > ?)
+                  and ii.livro_id <= ?
+                  and coalesce(ii.quantidade_contada, 0) <> ii.quantidade_sistema
+              ), saldos as (
+                update estoques e
+                set quantidade = e.quantidade + a.delta, updated_at = now()
+                from ajustes a
+                where e.livro_id = a.livro_id and e.local_id = ?
+                returning a.id, a.livro_id, a.delta
+              ), movimentos as (
+                insert into movimentacoes_estoque (id, livro_id, local_id, tipo, quantidade, motivo, criado_em)
+                select gen_random_uuid(), s.livro_id, ?, 'AJUSTE', s.delta, 'inventario', now()
+                from saldos s
+              ), conciliados as (
+                update itens_inventario ii
+                set quantidade_sistema = coalesce(ii.quantidade_contada, 0), updated_at = now()
+                from saldos s
+                where ii.id = s.id
+              )
+              select count(*) as skus, coalesce(sum(delta), 0) as delta from saldos
+              """,
+          inventarioId,
+          cursor,
+          cursor,
+          ultimoLivroId,
+          localId,
+          localId
+      );
+      return new AjusteLote(
+          lidos,
+          ultimoLivroId,
+          ((Number) ajuste.get("skus")).longValue(),
+          ((Number) ajuste.get("delta")).longValue()
+      );
+    });
   }
 
   // ================================ Helpers ===================================
@@ -251,6 +432,19 @@ public class EstoqueService {
     );
   }
 
+  private UUID getLocalInventarioAberto(UUID inventarioId) {
+    Map<String, Object> inventario;
+    try {
+      inventario = jdbcTemplate.queryForMap("select local_id, status from inventarios where id = ?", inventarioId);
+    } catch (EmptyResultDataAccessException ex) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Inventario nao encontrado");
+    }
+    if (!"ABERTO".equals(inventario.get("status"))) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "Inventario nao esta ABERTO");
+    }
+    return (UUID) inventario.get("local_id");
+  }
+
   private int getDisponivel(UUID livroId, UUID localId) {
     Integer disponivel = jdbcTemplate.queryForObject(
         """
@@ -284,7 +478,7 @@ public class EstoqueService {
     jdbcTemplate.update(
         """
             insert into movimentacoes_estoque (id, livro_id, local_id, tipo, quantidade, motivo, origem_venda_item_id, origem_dev_cli_item_id, origem_dev_forn_id, criado_em)
-            values (gen_random_uuid(), ?, ?, ?, ?, ?, ?, ?, ?, now())
+            values (gen_random_uuid(), ?, ?, ?::tipo_mov_estoque, ?, ?, ?, ?, ?, now())
             """,
         livroId,
         localId,
@@ -295,9 +489,12 @@ public class EstoqueService {
         origemDevCliItemId,
         origemDevFornId
     );
+    metricas.movimentacoes(tipo, 1);
   }
 
   public record Movimentacao(UUID livroId, UUID localId, String tipo, int quantidade, String motivo) {}
 
   public record Reserva(UUID livroId, UUID localId, UUID vendaId, int quantidade) {}
+
+  private record AjusteLote(long lidos, UUID ultimoLivroId, long skus, long delta) {}
 }
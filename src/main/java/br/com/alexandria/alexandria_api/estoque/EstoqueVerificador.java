@@ -0,0 +1,419 @@
+package br.com.alexandria.alexandria_api.estoque;
+
+import br.com.alexandria.alexandria_api.util.JdbcUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verificador de consistencia: recalcula quantidade (ledger de movimentacoes) e reservado
+ * (reservas ATIVAS) de cada livro/local e compara com estoques.
+ *
+ * O keyspace de livro_id e dividido em faixas verificadas em paralelo num pool limitado; cada
+ * faixa le um snapshot (REPEATABLE READ) e avanca os checkpoints ate a marca d'agua, entao a
+ * proxima execucao so soma as movimentacoes novas. Com {@code reparar}, as divergencias sao
+ * corrigidas com compare-and-set (linhas alteradas desde a leitura ficam para a proxima rodada).
+ *
+ * Uma execucao por vez: nesta instancia pelo flag {@code executando}; entre instancias por um
+ * advisory lock de sessao tomado numa conexao reservada ate a conclusao (duas execucoes
+ * concorrentes gravariam checkpoints da mesma faixa com marcas diferentes).
+ */
+@Component
+public class EstoqueVerificador {
+
+  private static final Logger log = LoggerFactory.getLogger(EstoqueVerificador.class);
+
+  /** Chave do advisory lock ("alexverf"). */
+  private static final long LOCK_VERIFICACAO = 0x616c_6578_7665_7266L;
+
+  private static final String SQL_FAIXA = """
+      with cp as (
+        select livro_id, local_id, saldo, ate
+        from estoque_checkpoints
+        where livro_id >= :de and (cast(:ate as uuid) is null or livro_id < :ate)
+      ), mov as (
+        select m.livro_id, m.local_id,
+               sum(case when m.tipo = 'SAIDA' then -m.quantidade else m.quantidade end) as delta,
+               coalesce(sum(case when m.tipo = 'SAIDA' then -m.quantidade else m.quantidade end)
+                        filter (where m.criado_em <= :marca), 0) as delta_marca,
+               bool_or(m.criado_em <= :marca) as avanca
+        from movimentacoes_estoque m
+        left join cp on cp.livro_id = m.livro_id and cp.local_id = m.local_id
+        where m.livro_id >= :de and (cast(:ate as uuid) is null or m.livro_id < :ate)
+          and m.criado_em > :desde
+          and m.criado_em > coalesce(cp.ate, '-infinity'::timestamptz)
+        group by m.livro_id, m.local_id
+      ), res as (
+        select livro_id, local_id, sum(quantidade) as reservado
+        from reservas_estoque
+        where status = 'ATIVA'
+          and livro_id >= :de and (cast(:ate as uuid) is null or livro_id < :ate)
+        group by livro_id, local_id
+      ), est as (
+        select livro_id, local_id, quantidade, reservado
+        from estoques
+        where livro_id >= :de and (cast(:ate as uuid) is null or livro_id < :ate)
+      ), chaves as (
+        select livro_id, local_id from est
+        union select livro_id, local_id from cp
+        union select livro_id, local_id from mov
+        union select livro_id, local_id from res
+      )
+      select k.livro_id, k.local_id,
+             est.quantidade, est.reservado,
+             coalesce(cp.saldo, 0) + coalesce(mov.delta, 0) as quantidade_ledger,
+             coalesce(res.reservado, 0) as reservado_ledger,
+             coalesce(mov.avanca, false) as avanca,
+             coalesce(cp.saldo, 0) + coalesce(mov.delta_marca, 0) as saldo_marca
+      from chaves k
+      left join est on est.livro_id = k.livro_id and est.local_id = k.local_id
+      left join cp on cp.livro_id = k.livro_id and cp.local_id = k.local_id
+      left join mov on mov.livro_id = k.livro_id and mov.local_id = k.local_id
+      left join res on res.livro_id = k.livro_id and res.local_id = k.local_id
+      where coalesce(est.quantidade, 0) <> coalesce(cp.saldo, 0) + coalesce(mov.delta, 0)
+         or coalesce(est.reservado, 0) <> coalesce(res.reservado, 0)
+         or mov.avanca
+      """;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedJdbcTemplate;
+  private final TransactionTemplate snapshot;
+  private final TransactionTemplate transacao;
+  private final EstoqueProperties.Verificacao config;
+  private final EstoqueBaixoMonitor estoqueBaixo;
+  private final ExecutorService pool;
+  private final AtomicBoolean executando = new AtomicBoolean();
+
+  public EstoqueVerificador(JdbcTemplate jdbcTemplate,
+                            NamedParameterJdbcTemplate namedJdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            EstoqueProperties properties,
+                            EstoqueBaixoMonitor estoqueBaixo) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.namedJdbcTemplate = namedJdbcTemplate;
+    this.snapshot = new TransactionTemplate(transactionManager);
+    this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    this.transacao = new TransactionTemplate(transactionManager);
+    this.config = properties.verificacao();
+    this.estoqueBaixo = estoqueBaixo;
+
+    AtomicInteger sequencia = new AtomicInteger();
+    this.pool = Executors.newFixedThreadPool(Math.max(config.threads(), 1), runnable -> {
+      Thread thread = new Thread(runnable, "estoque-verificador-" + sequencia.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  void encerrar() {
+    pool.shutdownNow();
+  }
+
+  // ============================== Execucao ====================================
+
+  /** Dispara uma verificacao assincrona; retorna o registro da execucao criada. */
+  public Map<String, Object> iniciar(boolean reparar) {
+    if (!executando.compareAndSet(false, true)) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "Verificacao de estoque ja em andamento");
+    }
+    Connection lock = null;
+    try {
+      lock = travar();
+      Connection conexaoLock = lock;
+      int quantidadeFaixas = Math.max(config.faixas(), 1);
+      Timestamp desde = ultimaMarcaConcluida()
+          .map(Timestamp::from)
+          .orElse(new Timestamp(0));
+      Map<String, Object> execucao = jdbcTemplate.queryForMap(
+          """
+              insert into estoque_verificacoes (marca_dagua, reparar, faixas)
+              values (now() - make_interval(secs => ?), ?, ?)
+              returning id, iniciada_em, marca_dagua, reparar, status, faixas
+              """,
+          config.atrasoSegundos(),
+          reparar,
+          quantidadeFaixas
+      );
+      UUID verificacaoId = (UUID) execucao.get("id");
+      Timestamp marca = (Timestamp) execucao.get("marca_dagua");
+
+      List<CompletableFuture<Resultado>> tarefas = new ArrayList<>(quantidadeFaixas);
+      for (Faixa faixa : faixas(quantidadeFaixas)) {
+        tarefas.add(CompletableFuture.supplyAsync(
+            () -> verificarFaixa(verificacaoId, faixa, desde, marca, reparar), pool));
+      }
+      CompletableFuture.allOf(tarefas.toArray(CompletableFuture[]::new))
+          .whenComplete((ignorado, erro) -> concluir(verificacaoId, tarefas, erro, conexaoLock));
+      return execucao;
+    } catch (RuntimeException ex) {
+      liberar(lock);
+      executando.set(false);
+      throw ex;
+    }
+  }
+
+  /** Ultima execucao registrada com suas divergencias (ate 1000). */
+  public Map<String, Object> ultima() {
+    Map<String, Object> execucao = JdbcUtils.queryForMapOptional(
+            jdbcTemplate,
+            "select * from estoque_verificacoes order by iniciada_em desc limit 1")
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Nenhuma verificacao executada"));
+
+    Map<String, Object> resposta = new LinkedHashMap<>(execucao);
+    resposta.put("em_andamento", executando.get());
+    resposta.put("itens", jdbcTemplate.queryForList(
+        """
+            select livro_id, local_id, quantidade_estoque, quantidade_ledger,
+                   reservado_estoque, reservado_ledger, reparada
+            from estoque_divergencias
+            where verificacao_id = ?
+            order by livro_id, local_id
+            limit 1000
+            """,
+        execucao.get("id")
+    ));
+    return resposta;
+  }
+
+  /**
+   * Marca d'agua da ultima execucao concluida: todo o ledger anterior a ela esta resumido nos
+   * checkpoints (particoes inteiramente anteriores podem ser arquivadas).
+   */
+  public Optional<Instant> ultimaMarcaConcluida() {
+    return JdbcUtils.queryForObjectOptional(
+            jdbcTemplate,
+            "select max(marca_dagua) from estoque_verificacoes where status = 'CONCLUIDA'",
+            Timestamp.class)
+        .map(Timestamp::toInstant);
+  }
+
+  // ============================== Faixas ======================================
+
+  private Resultado verificarFaixa(UUID verificacaoId, Faixa faixa, Timestamp desde, Timestamp marca, boolean reparar) {
+    List<Divergencia> divergencias = snapshot.execute(status -> {
+      MapSqlParameterSource params = new MapSqlParameterSource()
+          .addValue("de", faixa.de(), Types.OTHER)
+          .addValue("ate", faixa.ate(), Types.OTHER)
+          .addValue("desde", desde)
+          .addValue("marca", marca);
+
+      List<Divergencia> encontradas = new ArrayList<>();
+      List<Object[]> checkpoints = new ArrayList<>();
+      namedJdbcTemplate.query(SQL_FAIXA, params, (RowCallbackHandler) rs -> {
+        UUID livroId = rs.getObject("livro_id", UUID.class);
+        UUID localId = rs.getObject("local_id", UUID.class);
+        if (rs.getBoolean("avanca")) {
+          checkpoints.add(new Object[]{livroId, localId, rs.getInt("saldo_marca"), marca});
+        }
+        Integer quantidade = (Integer) rs.getObject("quantidade");
+        Integer reservado = (Integer) rs.getObject("reservado");
+        int quantidadeLedger = rs.getInt("quantidade_ledger");
+        int reservadoLedger = rs.getInt("reservado_ledger");
+        if (valor(quantidade) != quantidadeLedger || valor(reservado) != reservadoLedger) {
+          encontradas.add(new Divergencia(livroId, localId, quantidade, quantidadeLedger, reservado, reservadoLedger));
+        }
+      });
+
+      jdbcTemplate.batchUpdate(
+          """
+              insert into estoque_checkpoints (livro_id, local_id, saldo, ate, atualizado_em)
+              values (?, ?, ?, ?, now())
+              on conflict (livro_id, local_id)
+              do update set saldo = excluded.saldo, ate = excluded.ate, atualizado_em = now()
+              """,
+          checkpoints
+      );
+      jdbcTemplate.batchUpdate(
+          """
+              insert into estoque_divergencias (verificacao_id, livro_id, local_id, quantidade_estoque,
+                                                quantidade_ledger, reservado_estoque, reservado_ledger)
+              values (?, ?, ?, ?, ?, ?, ?)
+              """,
+          encontradas.stream()
+              .map(d -> new Object[]{verificacaoId, d.livroId(), d.localId(), d.quantidadeEstoque(),
+                  d.quantidadeLedger(), d.reservadoEstoque(), d.reservadoLedger()})
+              .toList()
+      );
+      return encontradas;
+    });
+
+    int reparadas = 0;
+    if (reparar) {
+      for (Divergencia divergencia : divergencias) {
+        if (reparar(verificacaoId, divergencia)) {
+          reparadas++;
+        }
+      }
+    }
+    return new Resultado(divergencias.size(), reparadas);
+  }
+
+  private boolean reparar(UUID verificacaoId, Divergencia d) {
+    try {
+      return Boolean.TRUE.equals(transacao.execute(status -> {
+        int linhas = d.quantidadeEstoque() == null
+            ? jdbcTemplate.update(
+                """
+                    insert into estoques (id, livro_id, local_id, quantidade, reservado, minimo, created_at, updated_at)
+                    values (gen_random_uuid(), ?, ?, ?, ?, 0, now(), now())
+                    on conflict (livro_id, local_id) do nothing
+                    """,
+                d.livroId(), d.localId(), d.quantidadeLedger(), d.reservadoLedger())
+            : jdbcTemplate.update(
+                """
+                    update estoques set quantidade = ?, reservado = ?, updated_at = now()
+                    where livro_id = ? and local_id = ? and quantidade = ? and reservado = ?
+                    """,
+                d.quantidadeLedger(), d.reservadoLedger(), d.livroId(), d.localId(),
+                d.quantidadeEstoque(), d.reservadoEstoque());
+        if (linhas == 0) {
+          return false; // alterado desde a leitura: fica para a proxima execucao
+        }
+        jdbcTemplate.update(
+            "update estoque_divergencias set reparada = true where verificacao_id = ? and livro_id = ? and local_id = ?",
+            verificacaoId, d.livroId(), d.localId());
+        estoqueBaixo.tocar(d.livroId(), d.localId());
+        return true;
+      }));
+    } catch (DataIntegrityViolationException ex) {
+      log.warn("Divergencia nao reparada (livro={}, local={}): {}",
+          d.livroId(), d.localId(), ex.getMostSpecificCause().getMessage());
+      return false;
+    }
+  }
+
+  private void concluir(UUID verificacaoId, List<CompletableFuture<Resultado>> tarefas, Throwable erro, Connection lock) {
+    try {
+      int divergencias = 0;
+      int reparadas = 0;
+      for (CompletableFuture<Resultado> tarefa : tarefas) {
+        if (!tarefa.isCompletedExceptionally()) {
+          Resultado resultado = tarefa.join();
+          divergencias += resultado.divergencias();
+          reparadas += resultado.reparadas();
+        }
+      }
+      String mensagem = erro == null ? null : String.valueOf(erro.getCause() != null ? erro.getCause() : erro);
+      jdbcTemplate.update(
+          """
+              update estoque_verificacoes
+              set status = ?, finalizada_em = now(), divergencias = ?, reparadas = ?, erro = ?
+              where id = ?
+              """,
+          erro == null ? "CONCLUIDA" : "FALHOU",
+          divergencias,
+          reparadas,
+          mensagem,
+          verificacaoId
+      );
+      if (erro == null) {
+        log.info("Verificacao de estoque {} concluida: {} divergencias, {} reparadas", verificacaoId, divergencias, reparadas);
+      } else {
+        log.error("Verificacao de estoque {} falhou", verificacaoId, erro);
+      }
+    } catch (RuntimeException ex) {
+      log.error("Falha ao registrar conclusao da verificacao {}", verificacaoId, ex);
+    } finally {
+      liberar(lock);
+      executando.set(false);
+    }
+  }
+
+  /** Conexao reservada com o advisory lock da verificacao; 409 se outra instancia o tem. */
+  private Connection travar() {
+    Connection con = DataSourceUtils.getConnection(jdbcTemplate.getDataSource());
+    boolean obtido = false;
+    try (PreparedStatement ps = con.prepareStatement("select pg_try_advisory_lock(?)")) {
+      ps.setLong(1, LOCK_VERIFICACAO);
+      try (ResultSet rs = ps.executeQuery()) {
+        obtido = rs.next() && rs.getBoolean(1);
+      }
+    } catch (SQLException ex) {
+      DataSourceUtils.releaseConnection(con, jdbcTemplate.getDataSource());
+      throw new CannotGetJdbcConnectionException("Verificacao de estoque: falha ao tomar o advisory lock", ex);
+    }
+    if (!obtido) {
+      DataSourceUtils.releaseConnection(con, jdbcTemplate.getDataSource());
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "Verificacao de estoque em andamento em outra instancia");
+    }
+    return con;
+  }
+
+  private void liberar(Connection con) {
+    if (con == null) {
+      return;
+    }
+    try (PreparedStatement ps = con.prepareStatement("select pg_advisory_unlock(?)")) {
+      ps.setLong(1, LOCK_VERIFICACAO);
+      ps.execute();
+    } catch (SQLException ex) {
+      log.warn("Verificacao de estoque: falha ao liberar o advisory lock: {}", ex.getMessage());
+    } finally {
+      DataSourceUtils.releaseConnection(con, jdbcTemplate.getDataSource());
+    }
+  }
+
+  /** Divide o keyspace de UUID em {@code n} faixas [de, ate) pelos 64 bits mais significativos. */
+  static List<Faixa> faixas(int n) {
+    BigInteger espaco = BigInteger.ONE.shiftLeft(64);
+    List<Faixa> faixas = new ArrayList<>(n);
+    UUID de = new UUID(0L, 0L);
+    for (int i = 1; i <= n; i++) {
+      UUID ate = i == n
+          ? null
+          : new UUID(espaco.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(n)).longValue(), 0L);
+      faixas.add(new Faixa(de, ate));
+      de = ate;
+    }
+    return faixas;
+  }
+
+  private static int valor(Integer valor) {
+    return valor == null ? 0 : valor;
+  }
+
+  record Faixa(UUID de, UUID ate) {}
+
+  private record Divergencia(UUID livroId,
+                             UUID localId,
+                             Integer quantidadeEstoque,
+                             int quantidadeLedger,
+                             Integer reservadoEstoque,
+                             int reservadoLedger) {}
+
+  private record Resultado(int divergencias, int reparadas) {}
+}
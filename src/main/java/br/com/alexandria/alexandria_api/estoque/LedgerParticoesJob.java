@@ -0,0 +1,67 @@
+package br.com.alexandria.alexandria_api.estoque;
+
+import br.com.alexandria.alexandria_api.util.ParticoesMensais;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Manutencao diaria do ledger particionado (movimentacoes_estoque): cria as particoes dos
+ * proximos meses, avisa se ha linhas na particao default e, se houver retencao configurada,
+ * desanexa/arquiva os meses antigos. Meses ainda nao resumidos nos checkpoints do verificador
+ * (marca d'agua da ultima verificacao concluida) nunca sao desanexados.
+ */
+@Component
+@RequiredArgsConstructor
+public class LedgerParticoesJob {
+
+  private static final Logger log = LoggerFactory.getLogger(LedgerParticoesJob.class);
+  private static final String TABELA = "movimentacoes_estoque";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final EstoqueProperties properties;
+  private final EstoqueVerificador verificador;
+
+  @Scheduled(cron = "${app.estoque.ledger.cron:0 30 3 * * *}", zone = "UTC")
+  public void executar() {
+    EstoqueProperties.Ledger ledger = properties.ledger();
+    List<String> particoes = ParticoesMensais.criarFuturas(jdbcTemplate, TABELA, ledger.mesesFuturos());
+    log.info("Ledger: particoes garantidas {}", particoes);
+    long foraDosMeses = ParticoesMensais.linhasNoDefault(jdbcTemplate, TABELA);
+    if (foraDosMeses > 0) {
+      log.warn("Ledger: {} movimentacoes na particao default (meses sem particao); "
+          + "crie as particoes com criar_particao_mensal para move-las", foraDosMeses);
+    }
+
+    if (ledger.retencaoMeses() <= 0) {
+      return;
+    }
+    Optional<Instant> marca = verificador.ultimaMarcaConcluida();
+    if (marca.isEmpty()) {
+      log.warn("Ledger: nenhuma verificacao de estoque concluida; particoes antigas mantidas");
+      return;
+    }
+    LocalDate retencao = LocalDate.now(ZoneOffset.UTC)
+        .withDayOfMonth(1)
+        .minusMonths(ledger.retencaoMeses());
+    LocalDate verificado = LocalDate.ofInstant(marca.get(), ZoneOffset.UTC).withDayOfMonth(1);
+    LocalDate limite = retencao.isBefore(verificado) ? retencao : verificado;
+    String schemaArquivo = ledger.schemaArquivo() == null || ledger.schemaArquivo().isBlank()
+        ? null
+        : ledger.schemaArquivo();
+    List<String> desanexadas = ParticoesMensais.desanexarAntigas(jdbcTemplate, TABELA, limite, schemaArquivo);
+    if (!desanexadas.isEmpty()) {
+      log.info("Ledger: particoes anteriores a {} desanexadas {} (destino={})",
+          limite, desanexadas, schemaArquivo == null ? "descartadas" : schemaArquivo);
+    }
+  }
+}
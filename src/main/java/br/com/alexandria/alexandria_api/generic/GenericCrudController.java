@@ -1,9 +1,16 @@
 package br.com.alexandria.alexandria_api.generic;
 
+import br.com.alexandria.alexandria_api.auth.PermissaoModel;
+import br.com.alexandria.alexandria_api.common.ResultSetJson;
+import br.com.alexandria.alexandria_api.replica.LeituraReplica;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -17,6 +24,7 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -27,13 +35,27 @@ public class GenericCrudController {
 
   private final TableRegistry tableRegistry;
   private final NamedParameterJdbcTemplate namedJdbcTemplate;
-
+  private final ApplicationEventPublisher eventPublisher;
+  private final PermissaoModel permissaoModel;
+  private final ResultSetJson resultSetJson;
+
+  /** Escrita nessas tabelas altera quem pode o que: exige a permissao {@code rbac.gerenciar}. */
+  private static final Set<String> TABELAS_RBAC = Set.of(
+      "usuarios", "perfis", "permissoes", "perfis_permissoes", "usuarios_perfis"
+  );
+
+  /**
+   * Pagina escrita direto do ResultSet ({@link ResultSetJson}): o total e contado antes, para
+   * que qualquer erro de SQL aconteca antes do primeiro byte da resposta.
+   */
+  @LeituraReplica
   @GetMapping("/{table}")
-  public Map<String, Object> list(@PathVariable String table,
-                                  @RequestParam(defaultValue = "0") int page,
-                                  @RequestParam(defaultValue = "20") int size,
-                                  @RequestParam(required = false) String q,
-                                  @RequestParam(defaultValue = "created_at desc") String sort) {
+  public void list(@PathVariable String table,
+                   @RequestParam(defaultValue = "0") int page,
+                   @RequestParam(defaultValue = "20") int size,
+                   @RequestParam(required = false) String q,
+                   @RequestParam(defaultValue = "created_at desc") String sort,
+                   HttpServletResponse response) {
     TableRegistry.TableDef definition = tableRegistry.get(table)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
@@ -46,31 +68,39 @@ public class GenericCrudController {
         .addValue("off", page * size)
         .addValue("lim", size);
 
-    List<Map<String, Object>> rows = namedJdbcTemplate.queryForList(sql, params);
     Integer total = namedJdbcTemplate.queryForObject(
-        "select count(*) from " + definition.name() + (whereClause.isBlank() ? "" : whereClause),
+        "select count(*) from " + definition.name() + " t" + whereClause,
         params,
         Integer.class
     );
 
-    return Map.of(
-        "content", rows,
-        "page", page,
-        "size", size,
-        "totalElements", total == null ? 0 : total
-    );
+    namedJdbcTemplate.query(sql, params, resultSetJson.resposta(response, (json, rs) -> {
+      json.writeStartObject();
+      json.writeNumberField("page", page);
+      json.writeNumberField("size", size);
+      json.writeNumberField("totalElements", total == null ? 0 : total);
+      json.writeFieldName("content");
+      resultSetJson.escreverLinhas(json, rs);
+      json.writeEndObject();
+    }));
   }
 
+  @LeituraReplica
   @GetMapping("/{table}/{id}")
-  public Map<String, Object> get(@PathVariable String table, @PathVariable UUID id) {
+  public void get(@PathVariable String table, @PathVariable UUID id, HttpServletResponse response) {
     TableRegistry.TableDef definition = tableRegistry.get(table)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-    if (definition.pk() == null) {
-      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tabela sem chave primaria simples");
-    }
-    return namedJdbcTemplate.queryForMap(
+    exigirPk(definition);
+    namedJdbcTemplate.query(
         "select * from " + definition.name() + " where " + definition.pk() + " = :id",
-        new MapSqlParameterSource("id", id)
+        new MapSqlParameterSource("id", id),
+        rs -> {
+          // conferido antes de abrir a resposta: sem linha ainda da para responder o erro
+          if (!rs.next()) {
+            throw new EmptyResultDataAccessException(1);
+          }
+          return resultSetJson.resposta(response, resultSetJson::escreverLinha).extractData(rs);
+        }
     );
   }
 
@@ -78,9 +108,7 @@ public class GenericCrudController {
   public Map<String, Object> create(@PathVariable String table, @RequestBody Map<String, Object> body) {
     TableRegistry.TableDef definition = tableRegistry.get(table)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-    if (!definition.updatable()) {
-      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Somente leitura");
-    }
+    exigirEscrita(definition);
 
     Map<String, Object> filtered = body.entrySet()
         .stream()
@@ -97,7 +125,9 @@ public class GenericCrudController {
         .collect(Collectors.joining(","));
 
     String sql = "insert into " + definition.name() + " (" + columns + ") values (" + values + ") returning *";
-    return namedJdbcTemplate.queryForMap(sql, new MapSqlParameterSource(filtered));
+    Map<String, Object> row = namedJdbcTemplate.queryForMap(sql, new MapSqlParameterSource(filtered));
+    eventPublisher.publishEvent(new TabelaAlteradaEvent(definition.name(), List.of(row)));
+    return row;
   }
 
   @PatchMapping("/{table}/{id}")
@@ -106,9 +136,7 @@ public class GenericCrudController {
                                     @RequestBody Map<String, Object> body) {
     TableRegistry.TableDef definition = tableRegistry.get(table)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-    if (!definition.updatable()) {
-      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Somente leitura");
-    }
+    exigirEscrita(definition);
 
     Map<String, Object> filtered = body.entrySet()
         .stream()
@@ -116,7 +144,11 @@ public class GenericCrudController {
         .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 
     if (filtered.isEmpty()) {
-      return get(table, id);
+      exigirPk(definition);
+      return namedJdbcTemplate.queryForMap(
+          "select * from " + definition.name() + " where " + definition.pk() + " = :id",
+          new MapSqlParameterSource("id", id)
+      );
     }
 
     String setClause = filtered.keySet().stream()
@@ -125,19 +157,38 @@ public class GenericCrudController {
 
     String sql = "update " + definition.name() + " set " + setClause + " where " + definition.pk() + " = :id returning *";
     MapSqlParameterSource params = new MapSqlParameterSource(filtered).addValue("id", id);
-    return namedJdbcTemplate.queryForMap(sql, params);
+    Map<String, Object> row = namedJdbcTemplate.queryForMap(sql, params);
+    eventPublisher.publishEvent(new TabelaAlteradaEvent(definition.name(), List.of(row)));
+    return row;
   }
 
   @DeleteMapping("/{table}/{id}")
   public void delete(@PathVariable String table, @PathVariable UUID id) {
     TableRegistry.TableDef definition = tableRegistry.get(table)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    exigirEscrita(definition);
+    List<Map<String, Object>> rows = namedJdbcTemplate.queryForList(
+        "delete from " + definition.name() + " where " + definition.pk() + " = :id returning *",
+        new MapSqlParameterSource("id", id)
+    );
+    if (!rows.isEmpty()) {
+      eventPublisher.publishEvent(new TabelaAlteradaEvent(definition.name(), rows));
+    }
+  }
+
+  private static void exigirPk(TableRegistry.TableDef definition) {
+    if (definition.pk() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tabela sem chave primaria simples");
+    }
+  }
+
+  private void exigirEscrita(TableRegistry.TableDef definition) {
     if (!definition.updatable()) {
       throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Somente leitura");
     }
-    namedJdbcTemplate.update(
-        "delete from " + definition.name() + " where " + definition.pk() + " = :id",
-        new MapSqlParameterSource("id", id)
-    );
+    if (TABELAS_RBAC.contains(definition.name())
+        && !permissaoModel.permite(SecurityContextHolder.getContext().getAuthentication(), "rbac.gerenciar")) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Sem permissao: rbac.gerenciar");
+    }
   }
 }
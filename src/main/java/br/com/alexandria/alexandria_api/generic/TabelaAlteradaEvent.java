@@ -0,0 +1,13 @@
+package br.com.alexandria.alexandria_api.generic;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publicado pelo CRUD generico apos insert/update/delete em uma tabela registrada.
+ *
+ * @param tabela nome da tabela alterada
+ * @param linhas linhas afetadas (estado final; no delete, o estado removido)
+ */
+public record TabelaAlteradaEvent(String tabela, List<Map<String, Object>> linhas) {
+}
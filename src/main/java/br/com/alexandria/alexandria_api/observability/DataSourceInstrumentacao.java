@@ -0,0 +1,42 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Envolve os DataSources da aplicacao em {@link InstrumentedDataSource}. Os {@link SqlListener}
+ * so sao resolvidos depois que todos os singletons existem (um BeanPostProcessor nasce antes
+ * deles); statements anteriores, como os do Flyway, nao sao medidos.
+ */
+@Component
+public class DataSourceInstrumentacao implements BeanPostProcessor, SmartInitializingSingleton {
+
+  private final ObjectProvider<SqlListener> listenersProvider;
+  private volatile List<SqlListener> listeners = List.of();
+
+  public DataSourceInstrumentacao(ObjectProvider<SqlListener> listenersProvider) {
+    this.listenersProvider = listenersProvider;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+      return new InstrumentedDataSource(dataSource, this::listeners);
+    }
+    return bean;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    listeners = listenersProvider.orderedStream().toList();
+  }
+
+  private List<SqlListener> listeners() {
+    return listeners;
+  }
+}
@@ -0,0 +1,225 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * DataSource que mede cada statement: as conexoes e statements devolvidos sao proxies finos que
+ * cronometram os execute*, commits e rollbacks, e os result sets sao embrulhados num
+ * {@link ResultSetContado} que conta as linhas lidas; tudo repassado aos {@link SqlListener}.
+ * Fora isso tudo e delegado ao pool (unwrap inclusive, para as metricas do Hikari).
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+  private final Supplier<List<SqlListener>> listeners;
+
+  public InstrumentedDataSource(DataSource target, Supplier<List<SqlListener>> listeners) {
+    super(target);
+    this.listeners = listeners;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return conexao(obtainTargetDataSource().getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return conexao(obtainTargetDataSource().getConnection(username, password));
+  }
+
+  private Connection conexao(Connection alvo) {
+    return (Connection) Proxy.newProxyInstance(
+        getClass().getClassLoader(),
+        new Class<?>[] {Connection.class},
+        new ConexaoHandler(alvo)
+    );
+  }
+
+  private void executado(String sql, long nanos, long linhas, boolean falhou) {
+    for (SqlListener listener : listeners.get()) {
+      listener.executado(sql, nanos, linhas, falhou);
+    }
+  }
+
+  private void lote(String sql, int statements, long nanos, long linhas, boolean falhou) {
+    for (SqlListener listener : listeners.get()) {
+      listener.lote(sql, statements, nanos, linhas, falhou);
+    }
+  }
+
+  private void transacao(String comando, long nanos) {
+    for (SqlListener listener : listeners.get()) {
+      listener.transacao(comando, nanos);
+    }
+  }
+
+  private void linhasLidas(String sql, long linhas) {
+    for (SqlListener listener : listeners.get()) {
+      listener.linhasLidas(sql, linhas);
+    }
+  }
+
+  private static Object invocar(Object alvo, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(alvo, args);
+    } catch (InvocationTargetException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  private final class ConexaoHandler implements InvocationHandler {
+
+    private final Connection alvo;
+
+    ConexaoHandler(Connection alvo) {
+      this.alvo = alvo;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getName().equals("commit") || method.getName().equals("rollback")) {
+        long inicio = System.nanoTime();
+        try {
+          return invocar(alvo, method, args);
+        } finally {
+          transacao(method.getName(), System.nanoTime() - inicio);
+        }
+      }
+      Object resultado = invocar(alvo, method, args);
+      return switch (method.getName()) {
+        case "prepareStatement" -> statement(PreparedStatement.class, resultado, (String) args[0]);
+        case "prepareCall" -> statement(CallableStatement.class, resultado, (String) args[0]);
+        case "createStatement" -> statement(Statement.class, resultado, null);
+        default -> resultado;
+      };
+    }
+  }
+
+  private Object statement(Class<?> tipo, Object alvo, String sql) {
+    return Proxy.newProxyInstance(
+        getClass().getClassLoader(),
+        new Class<?>[] {tipo},
+        new StatementHandler(alvo, sql)
+    );
+  }
+
+  private final class StatementHandler implements InvocationHandler {
+
+    private final Object alvo;
+    private final String sqlPreparado;
+    private String sqlBatch;
+    private int tamanhoLote;
+    private String ultimoSql;
+
+    StatementHandler(Object alvo, String sqlPreparado) {
+      this.alvo = alvo;
+      this.sqlPreparado = sqlPreparado;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String nome = method.getName();
+      if (nome.equals("addBatch")) {
+        tamanhoLote++;
+        if (args != null && args.length == 1 && args[0] instanceof String sql) {
+          sqlBatch = sqlBatch == null ? sql : sqlBatch;
+        }
+      } else if (nome.equals("clearBatch")) {
+        tamanhoLote = 0;
+        sqlBatch = null;
+      }
+      if (!nome.startsWith("execute")) {
+        Object resultado = invocar(alvo, method, args);
+        return nome.equals("getResultSet") && resultado != null
+            ? resultSet((ResultSet) resultado, ultimoSql)
+            : resultado;
+      }
+
+      if (nome.equals("executeBatch") || nome.equals("executeLargeBatch")) {
+        return executarLote(method, args);
+      }
+
+      String sql = sql(args);
+      ultimoSql = sql;
+      long inicio = System.nanoTime();
+      Object resultado;
+      try {
+        resultado = invocar(alvo, method, args);
+      } catch (Throwable ex) {
+        executado(sql, System.nanoTime() - inicio, -1, true);
+        throw ex;
+      }
+      long nanos = System.nanoTime() - inicio;
+      if (resultado instanceof ResultSet rs) {
+        executado(sql, nanos, -1, false);
+        return resultSet(rs, sql);
+      }
+      executado(sql, nanos, linhas(resultado), false);
+      return resultado;
+    }
+
+    private Object executarLote(Method method, Object[] args) throws Throwable {
+      String sql = sqlPreparado != null ? sqlPreparado : sqlBatch;
+      int statements = tamanhoLote;
+      ultimoSql = sql;
+      sqlBatch = null;
+      tamanhoLote = 0;
+      long inicio = System.nanoTime();
+      Object resultado;
+      try {
+        resultado = invocar(alvo, method, args);
+      } catch (Throwable ex) {
+        lote(sql, statements, System.nanoTime() - inicio, -1, true);
+        throw ex;
+      }
+      lote(sql, statements, System.nanoTime() - inicio, linhas(resultado), false);
+      return resultado;
+    }
+
+    private String sql(Object[] args) {
+      return args != null && args.length > 0 && args[0] instanceof String sql ? sql : sqlPreparado;
+    }
+  }
+
+  private static long linhas(Object resultado) {
+    if (resultado instanceof Integer n) {
+      return n;
+    }
+    if (resultado instanceof Long n) {
+      return n;
+    }
+    if (resultado instanceof int[] lote) {
+      long total = 0;
+      for (int n : lote) {
+        total += Math.max(n, 0);
+      }
+      return total;
+    }
+    if (resultado instanceof long[] lote) {
+      long total = 0;
+      for (long n : lote) {
+        total += Math.max(n, 0);
+      }
+      return total;
+    }
+    return -1;
+  }
+
+  private ResultSet resultSet(ResultSet alvo, String sql) {
+    return new ResultSetContado(alvo, linhas -> linhasLidas(sql, linhas));
+  }
+}
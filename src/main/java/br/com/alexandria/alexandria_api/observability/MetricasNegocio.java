@@ -0,0 +1,66 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import br.com.alexandria.alexandria_api.vendas.VendaEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+
+/**
+ * Contadores de negocio: {@code alexandria.vendas} (tag tipo = FINALIZADA/ESTORNADA),
+ * {@code alexandria.estoque.reservas} e {@code alexandria.estoque.movimentacoes} (tag tipo).
+ * Dentro de uma transacao a contagem so acontece apos o commit.
+ */
+@Component
+public class MetricasNegocio {
+
+  private final MeterRegistry registry;
+  private final Counter reservas;
+
+  public MetricasNegocio(MeterRegistry registry) {
+    this.registry = registry;
+    this.reservas = Counter.builder("alexandria.estoque.reservas")
+        .description("Reservas de estoque criadas")
+        .register(registry);
+  }
+
+  @TransactionalEventListener
+  public void onVenda(VendaEvent event) {
+    Counter.builder("alexandria.vendas")
+        .description("Vendas finalizadas e estornadas")
+        .tag("tipo", event.tipo())
+        .register(registry)
+        .increment();
+  }
+
+  public void reserva() {
+    aposCommit(1, reservas);
+  }
+
+  public void movimentacoes(String tipo, long quantidade) {
+    if (quantidade <= 0) {
+      return;
+    }
+    aposCommit(quantidade, Counter.builder("alexandria.estoque.movimentacoes")
+        .description("Movimentacoes gravadas no ledger de estoque")
+        .tag("tipo", tipo.toUpperCase(Locale.ROOT))
+        .register(registry));
+  }
+
+  private static void aposCommit(long quantidade, Counter counter) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      counter.increment(quantidade);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        counter.increment(quantidade);
+      }
+    });
+  }
+}
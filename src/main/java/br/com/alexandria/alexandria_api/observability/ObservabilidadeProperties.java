@@ -0,0 +1,22 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Parametros de observabilidade (prefixo {@code app.observabilidade}).
+ *
+ * @param sql contagem de SQL por requisicao
+ */
+@ConfigurationProperties("app.observabilidade")
+public record ObservabilidadeProperties(@DefaultValue Sql sql) {
+
+  /**
+   * @param cabecalhos  envia Server-Timing, X-Sql-Count e X-Sql-Round-Trips nas respostas
+   * @param nMaisUm     execucoes do mesmo texto de SQL numa requisicao a partir das quais ela e
+   *                    marcada como N+1 (0 = nao verificar)
+   */
+  public record Sql(@DefaultValue("true") boolean cabecalhos,
+                    @DefaultValue("10") int nMaisUm) {
+  }
+}
@@ -0,0 +1,121 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Contagem de idas ao banco da thread atual entre {@link #iniciar()} e {@link #close()}:
+ * statements, round trips (execute*, executeBatch, commit e rollback), tempo no driver e
+ * quantas vezes cada texto de SQL foi executado. O mesmo texto repetido muitas vezes com
+ * parametros diferentes e o padrao N+1 ({@link #repetidos}).
+ *
+ * Usado pelo {@link SqlPorRequisicaoFilter} por requisicao HTTP e direto em testes:
+ * <pre>
+ * try (SqlContagem sql = SqlContagem.iniciar()) {
+ *   vendaService.finalizar(id, request);
+ *   sql.noMaximo(6);
+ * }
+ * </pre>
+ * Escopos podem ser aninhados (o externo tambem conta). SQL executado em outras threads (pools,
+ * listeners assincronos) nao entra na contagem.
+ */
+public final class SqlContagem implements AutoCloseable {
+
+  private static final ThreadLocal<SqlContagem> ATUAL = new ThreadLocal<>();
+  /** Textos distintos acompanhados por escopo (SQL montado dinamicamente nao cresce sem limite). */
+  private static final int MAX_TEXTOS = 256;
+
+  private final SqlContagem anterior;
+  private final Map<String, Integer> porTexto = new HashMap<>();
+  private int statements;
+  private int roundTrips;
+  private long nanos;
+
+  private SqlContagem(SqlContagem anterior) {
+    this.anterior = anterior;
+  }
+
+  public static SqlContagem iniciar() {
+    SqlContagem contagem = new SqlContagem(ATUAL.get());
+    ATUAL.set(contagem);
+    return contagem;
+  }
+
+  static void executado(String sql, int statements, long nanos) {
+    for (SqlContagem c = ATUAL.get(); c != null; c = c.anterior) {
+      c.statements += statements;
+      c.roundTrips++;
+      c.nanos += nanos;
+      if (sql != null && (c.porTexto.size() < MAX_TEXTOS || c.porTexto.containsKey(sql))) {
+        c.porTexto.merge(sql, 1, Integer::sum);
+      }
+    }
+  }
+
+  static void transacao(long nanos) {
+    for (SqlContagem c = ATUAL.get(); c != null; c = c.anterior) {
+      c.roundTrips++;
+      c.nanos += nanos;
+    }
+  }
+
+  public int statements() {
+    return statements;
+  }
+
+  public int roundTrips() {
+    return roundTrips;
+  }
+
+  public Duration tempo() {
+    return Duration.ofNanos(nanos);
+  }
+
+  /** Textos executados pelo menos {@code minimo} vezes, do mais repetido para o menos. */
+  public Map<String, Integer> repetidos(int minimo) {
+    Map<String, Integer> repetidos = new LinkedHashMap<>();
+    porTexto.entrySet().stream()
+        .filter(e -> e.getValue() >= minimo)
+        .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+        .forEach(e -> repetidos.put(e.getKey(), e.getValue()));
+    return repetidos;
+  }
+
+  /** Maior numero de execucoes de um mesmo texto de SQL. */
+  public int maiorRepeticao() {
+    return porTexto.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+  }
+
+  /**
+   * Falha com {@link IllegalStateException} se o escopo passou de {@code maximo} statements,
+   * listando os textos repetidos para achar o N+1.
+   */
+  public SqlContagem noMaximo(int maximo) {
+    if (statements > maximo) {
+      throw new IllegalStateException("Orcamento de SQL excedido: " + statements
+          + " statements (maximo " + maximo + ", " + roundTrips + " round trips); repetidos: "
+          + repetidos(2));
+    }
+    return this;
+  }
+
+  @Override
+  public void close() {
+    if (ATUAL.get() != this) {
+      return;
+    }
+    if (anterior == null) {
+      ATUAL.remove();
+    } else {
+      ATUAL.set(anterior);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return statements + " statements, " + roundTrips + " round trips, " + tempo().toMillis() + " ms";
+  }
+}
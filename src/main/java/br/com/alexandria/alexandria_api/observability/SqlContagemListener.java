@@ -0,0 +1,24 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import org.springframework.stereotype.Component;
+
+/** Repassa as idas ao banco para a {@link SqlContagem} aberta na thread, se houver. */
+@Component
+public class SqlContagemListener implements SqlListener {
+
+  @Override
+  public void executado(String sql, long nanos, long linhas, boolean falhou) {
+    SqlContagem.executado(sql, 1, nanos);
+  }
+
+  @Override
+  public void lote(String sql, int statements, long nanos, long linhas, boolean falhou) {
+    // lote ja e a correcao do N+1: conta os statements, mas nao como repeticao do texto
+    SqlContagem.executado(null, Math.max(statements, 1), nanos);
+  }
+
+  @Override
+  public void transacao(String comando, long nanos) {
+    SqlContagem.transacao(nanos);
+  }
+}
@@ -0,0 +1,34 @@
+package br.com.alexandria.alexandria_api.observability;
+
+/**
+ * Recebe cada ida ao banco feita pelo {@link InstrumentedDataSource}. Chamado na thread que
+ * executou o statement; implementacoes devem ser baratas e nunca lancar excecao.
+ */
+public interface SqlListener {
+
+  /**
+   * Um execute* (ou executeBatch) terminou.
+   *
+   * @param sql    texto do statement (com placeholders)
+   * @param nanos  tempo da chamada ao driver
+   * @param linhas linhas afetadas em escrita; -1 em consultas (ver {@link #linhasLidas})
+   * @param falhou se o driver lancou excecao
+   */
+  void executado(String sql, long nanos, long linhas, boolean falhou);
+
+  /**
+   * Um executeBatch terminou: uma ida ao banco com {@code statements} statements. Por padrao
+   * tratado como um unico {@link #executado}.
+   */
+  default void lote(String sql, int statements, long nanos, long linhas, boolean falhou) {
+    executado(sql, nanos, linhas, falhou);
+  }
+
+  /** Commit ou rollback enviado pela conexao ({@code comando} = nome do metodo JDBC). */
+  default void transacao(String comando, long nanos) {
+  }
+
+  /** Linhas percorridas no ResultSet de uma consulta, informado quando ele e fechado. */
+  default void linhasLidas(String sql, long linhas) {
+  }
+}
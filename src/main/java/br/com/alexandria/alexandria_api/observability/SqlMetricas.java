@@ -0,0 +1,110 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Metricas por statement SQL: timer {@code db.sql} e resumo de linhas {@code db.sql.linhas}, com
+ * tags {@code op} (select/insert/update/delete/outro) e {@code tabela} (tabela principal do
+ * statement). O texto do SQL nunca vira tag; a classificacao de cada texto e guardada em cache e
+ * o numero de tabelas distintas e limitado, entao a cardinalidade fica controlada mesmo com SQL
+ * montado dinamicamente.
+ */
+@Component
+public class SqlMetricas implements SqlListener {
+
+  private static final int MAX_TEXTOS = 4096;
+  private static final int MAX_TABELAS = 256;
+  private static final Pattern TABELA = Pattern.compile(
+      "\\b(from|into|update|join)\\s+(?:only\\s+)?(?:[a-z_][a-z0-9_]*\\.)?([a-z_][a-z0-9_]*)\\b(?!\\()"
+  );
+
+  private final MeterRegistry registry;
+  private final Map<String, Metricas> porTexto = new ConcurrentHashMap<>();
+  private final Map<String, Metricas> porTag = new ConcurrentHashMap<>();
+
+  public SqlMetricas(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void executado(String sql, long nanos, long linhas, boolean falhou) {
+    Metricas metricas = metricas(sql);
+    (falhou ? metricas.falhas() : metricas.tempo()).record(nanos, TimeUnit.NANOSECONDS);
+    if (linhas >= 0) {
+      metricas.linhas().record(linhas);
+    }
+  }
+
+  @Override
+  public void linhasLidas(String sql, long linhas) {
+    metricas(sql).linhas().record(linhas);
+  }
+
+  private Metricas metricas(String sql) {
+    if (sql == null) {
+      return porTag("outro", "outra");
+    }
+    Metricas metricas = porTexto.get(sql);
+    if (metricas == null) {
+      metricas = classificar(sql);
+      if (porTexto.size() < MAX_TEXTOS) {
+        porTexto.put(sql, metricas);
+      }
+    }
+    return metricas;
+  }
+
+  private Metricas classificar(String sql) {
+    String texto = sql.strip().toLowerCase(Locale.ROOT);
+    String op = texto.startsWith("select") || texto.startsWith("with") ? "select"
+        : texto.startsWith("insert") ? "insert"
+        : texto.startsWith("update") ? "update"
+        : texto.startsWith("delete") ? "delete"
+        : "outro";
+    String chave = switch (op) {
+      case "insert" -> "into";
+      case "update" -> "update";
+      default -> "from";
+    };
+    String tabela = "outra";
+    Matcher matcher = TABELA.matcher(texto);
+    while (matcher.find()) {
+      if (matcher.group(1).equals(chave)) {
+        tabela = matcher.group(2);
+        break;
+      }
+    }
+    return porTag(op, tabela);
+  }
+
+  private Metricas porTag(String op, String tabela) {
+    String tag = porTag.containsKey(op + ":" + tabela) || porTag.size() < MAX_TABELAS ? tabela : "outra";
+    return porTag.computeIfAbsent(op + ":" + tag, k -> new Metricas(
+        Timer.builder("db.sql")
+            .description("Tempo de execucao de statements SQL (chamada ao driver)")
+            .tags("op", op, "tabela", tag, "resultado", "ok")
+            .register(registry),
+        Timer.builder("db.sql")
+            .description("Tempo de execucao de statements SQL (chamada ao driver)")
+            .tags("op", op, "tabela", tag, "resultado", "erro")
+            .register(registry),
+        DistributionSummary.builder("db.sql.linhas")
+            .description("Linhas lidas (select) ou afetadas (escrita) por statement")
+            .tags("op", op, "tabela", tag)
+            .register(registry)
+    ));
+  }
+
+  private record Metricas(Timer tempo, Timer falhas, DistributionSummary linhas) {
+  }
+}
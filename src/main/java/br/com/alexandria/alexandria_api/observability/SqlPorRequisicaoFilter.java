@@ -0,0 +1,143 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conta o SQL de cada requisicao ({@link SqlContagem}) e devolve o resultado nos cabecalhos
+ * {@code Server-Timing} (db;dur=ms), {@code X-Sql-Count} e {@code X-Sql-Round-Trips}. Os
+ * cabecalhos sao gravados antes do primeiro byte do corpo, entao em respostas em streaming
+ * refletem o SQL ate aquele ponto.
+ *
+ * Um mesmo texto de SQL executado {@code app.observabilidade.sql.n-mais-um} vezes ou mais marca a
+ * requisicao como N+1: cabecalho {@code X-Sql-Repeated} e um WARN por rota e texto (os seguintes
+ * saem em DEBUG).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class SqlPorRequisicaoFilter extends OncePerRequestFilter {
+
+  private static final Logger log = LoggerFactory.getLogger(SqlPorRequisicaoFilter.class);
+  private static final int MAX_AVISOS = 1000;
+
+  private final ObservabilidadeProperties.Sql config;
+  private final Set<String> avisados = ConcurrentHashMap.newKeySet();
+
+  public SqlPorRequisicaoFilter(ObservabilidadeProperties properties) {
+    this.config = properties.sql();
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+    Resposta resposta = new Resposta(response);
+    try {
+      filterChain.doFilter(request, resposta);
+    } finally {
+      resposta.contagem.close();
+      resposta.cabecalhos();
+      verificarNMaisUm(request, resposta.contagem);
+    }
+  }
+
+  private void verificarNMaisUm(HttpServletRequest request, SqlContagem contagem) {
+    if (config.nMaisUm() <= 0 || contagem.maiorRepeticao() < config.nMaisUm()) {
+      return;
+    }
+    Object padrao = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String rota = request.getMethod() + " " + (padrao != null ? padrao : request.getRequestURI());
+    for (Map.Entry<String, Integer> e : contagem.repetidos(config.nMaisUm()).entrySet()) {
+      String sql = e.getKey().strip().replaceAll("\\s+", " ");
+      boolean primeiro = avisados.size() < MAX_AVISOS && avisados.add(rota + "|" + sql);
+      if (primeiro) {
+        log.warn("Possivel N+1 em {}: {} execucoes de [{}] ({})", rota, e.getValue(), sql, contagem);
+      } else if (log.isDebugEnabled()) {
+        log.debug("Possivel N+1 em {}: {} execucoes de [{}] ({})", rota, e.getValue(), sql, contagem);
+      }
+    }
+  }
+
+  /** Grava os cabecalhos de SQL na primeira vez que o corpo ou o status vai ser enviado. */
+  private final class Resposta extends HttpServletResponseWrapper {
+
+    private final SqlContagem contagem = SqlContagem.iniciar();
+    private boolean gravados;
+
+    Resposta(HttpServletResponse response) {
+      super(response);
+    }
+
+    void cabecalhos() {
+      if (gravados || !config.cabecalhos() || isCommitted()) {
+        return;
+      }
+      gravados = true;
+      HttpServletResponse response = (HttpServletResponse) getResponse();
+      double ms = contagem.tempo().toNanos() / 1_000_000.0;
+      response.addHeader("Server-Timing", String.format(Locale.ROOT,
+          "db;dur=%.2f;desc=\"%d statements, %d round trips\"",
+          ms, contagem.statements(), contagem.roundTrips()));
+      response.setHeader("X-Sql-Count", Integer.toString(contagem.statements()));
+      response.setHeader("X-Sql-Round-Trips", Integer.toString(contagem.roundTrips()));
+      int repeticao = contagem.maiorRepeticao();
+      if (config.nMaisUm() > 0 && repeticao >= config.nMaisUm()) {
+        response.setHeader("X-Sql-Repeated", Integer.toString(repeticao));
+      }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      cabecalhos();
+      return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      cabecalhos();
+      return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      cabecalhos();
+      super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      cabecalhos();
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      cabecalhos();
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      cabecalhos();
+      super.sendRedirect(location);
+    }
+  }
+}
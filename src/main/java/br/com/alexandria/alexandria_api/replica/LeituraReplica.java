@@ -0,0 +1,24 @@
+package br.com.alexandria.alexandria_api.replica;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Endpoint somente leitura: as conexoes da requisicao vao para a replica quando ela esta
+ * configurada ({@code app.datasource.replica.url}), dentro do atraso maximo e o usuario nao
+ * escreveu ha pouco (read-your-writes). No controller vale para todos os metodos. Aplicado pelo
+ * {@link ReplicaInterceptor}; em servicos use {@code @Transactional(readOnly = true)}, que segue
+ * a mesma regra.
+ *
+ * So em endpoints que nao escrevem: a replica e read-only e o statement de escrita falharia.
+ * Nem em respostas que vao para cache compartilhado (ex.: DashboardCache): invalidado apos um
+ * commit, o cache seria recarregado da replica ainda sem a escrita.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface LeituraReplica {
+}
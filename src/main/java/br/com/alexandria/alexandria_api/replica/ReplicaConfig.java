@@ -0,0 +1,87 @@
+package br.com.alexandria.alexandria_api.replica;
+
+import br.com.alexandria.alexandria_api.concorrencia.DataSourceBulkhead;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Com {@code app.datasource.replica.url} o DataSource da aplicacao passa a ser
+ * Lazy(Roteamento(primario, replica)). O primario continua configurado por
+ * {@code spring.datasource} e {@code spring.datasource.hikari}; a replica tem pool proprio,
+ * read-only. Flyway, jobs e toda escrita usam o primario; so {@link LeituraReplica} e transacoes
+ * read-only podem ir para a replica. Com o bulkhead ligado, cada pool tem o seu, abaixo do
+ * roteamento e dimensionado pelo proprio pool.
+ *
+ * Os pools nao sao beans (senao seriam instrumentados duas vezes); fecham junto com esta config.
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica.url:}'.isBlank()")
+public class ReplicaConfig implements DisposableBean {
+
+  private HikariDataSource primario;
+  private HikariDataSource replica;
+
+  @Bean
+  @Primary
+  public DataSource dataSource(DataSourceProperties dataSourceProperties,
+                               ReplicaProperties properties,
+                               ReplicaRoteamento roteamento,
+                               Environment environment,
+                               ObjectProvider<MeterRegistry> registry,
+                               ObjectProvider<DataSourceBulkhead> bulkhead) {
+    primario = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primario));
+    if (primario.getPoolName() == null) {
+      primario.setPoolName("primario");
+    }
+
+    replica = new HikariDataSource();
+    replica.setPoolName("replica");
+    replica.setJdbcUrl(properties.url());
+    replica.setUsername(properties.username() != null ? properties.username() : dataSourceProperties.determineUsername());
+    replica.setPassword(properties.password() != null ? properties.password() : dataSourceProperties.determinePassword());
+    replica.setMaximumPoolSize(properties.maximumPoolSize());
+    replica.setConnectionTimeout(properties.tempoConexao().toMillis());
+    replica.setReadOnly(true);
+
+    // o binder de metricas do Boot so enxerga o pool que o unwrap devolve (o primario)
+    registry.ifAvailable(r -> {
+      primario.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(r));
+      replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(r));
+    });
+    DataSourceBulkhead limites = bulkhead.getIfAvailable();
+    DataSource alvoPrimario = limites == null ? primario : limites.envolver("primario", primario);
+    DataSource alvoReplica = limites == null ? replica : limites.envolver("replica", replica);
+    return new LazyConnectionDataSourceProxy(new RoteamentoDataSource(alvoPrimario, alvoReplica, roteamento));
+  }
+
+  @Bean
+  ReplicaMonitor replicaMonitor(DataSource dataSource, ReplicaRoteamento roteamento, ReplicaProperties properties) {
+    // dataSource so para garantir a ordem: os pools nascem no bean acima
+    return new ReplicaMonitor(primario, replica, roteamento, properties);
+  }
+
+  @Override
+  public void destroy() {
+    if (replica != null) {
+      replica.close();
+    }
+    if (primario != null) {
+      primario.close();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package br.com.alexandria.alexandria_api.replica;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aplica {@link LeituraReplica} e abre a janela de read-your-writes: qualquer requisicao com
+ * metodo de escrita (POST, PUT, PATCH, DELETE) que nao seja de leitura marca o usuario ao terminar.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReplicaInterceptor implements HandlerInterceptor {
+
+  private static final Set<String> METODOS_LEITURA = Set.of("GET", "HEAD", "OPTIONS");
+
+  private final ReplicaRoteamento roteamento;
+  /** Anotacao resolvida uma vez por metodo de controller. */
+  private final Map<Method, Boolean> leituras = new ConcurrentHashMap<>();
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    if (leitura(handler)) {
+      roteamento.iniciarLeitura();
+    }
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    if (leitura(handler)) {
+      roteamento.encerrarLeitura();
+    } else if (!METODOS_LEITURA.contains(request.getMethod())) {
+      roteamento.registrarEscrita();
+    }
+  }
+
+  private boolean leitura(Object handler) {
+    if (!(handler instanceof HandlerMethod method)) {
+      return false;
+    }
+    return leituras.computeIfAbsent(method.getMethod(), m ->
+        method.hasMethodAnnotation(LeituraReplica.class)
+            || method.getBeanType().isAnnotationPresent(LeituraReplica.class));
+  }
+}
@@ -0,0 +1,87 @@
+package br.com.alexandria.alexandria_api.replica;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Mede o atraso de replay da replica e liga/desliga o roteamento de leituras.
+ *
+ * A referencia e o {@code pg_current_wal_lsn()} do primario, lido antes da replica: se a replica
+ * ja aplicou ate ali o atraso e zero (primario ocioso nao parece atrasado); senao o atraso e
+ * {@code now() - pg_last_xact_replay_timestamp()}. Sem WAL receiver (streaming caiu) a replica sai
+ * do roteamento, mesmo com tudo que recebeu ja aplicado. Falha ao consultar tambem tira a replica
+ * de uso ate a proxima medicao boa.
+ */
+class ReplicaMonitor {
+
+  private static final Logger log = LoggerFactory.getLogger(ReplicaMonitor.class);
+
+  private final JdbcTemplate primario;
+  private final JdbcTemplate replica;
+  private final ReplicaRoteamento roteamento;
+  private final double atrasoMaximo;
+  private Boolean ultimoEstado;
+  private boolean avisouSemRecovery;
+
+  ReplicaMonitor(DataSource primario, DataSource replica, ReplicaRoteamento roteamento, ReplicaProperties properties) {
+    this.primario = new JdbcTemplate(primario);
+    this.primario.setQueryTimeout(2);
+    this.replica = new JdbcTemplate(replica);
+    this.replica.setQueryTimeout(2);
+    this.roteamento = roteamento;
+    this.atrasoMaximo = properties.atrasoMaximo().toMillis() / 1000.0;
+  }
+
+  @Scheduled(fixedDelayString = "${app.datasource.replica.verificacao-ms:1000}")
+  void medir() {
+    boolean disponivel;
+    double atraso;
+    String motivo = null;
+    try {
+      String lsnPrimario = primario.queryForObject("select pg_current_wal_lsn()::text", String.class);
+      // pg_stat_wal_receiver so tem linha com o receiver ativo (o pid aparece mesmo sem pg_read_all_stats)
+      Map<String, Object> estado = replica.queryForMap("""
+          select pg_is_in_recovery() as em_recovery,
+                 exists (select 1 from pg_stat_wal_receiver) as recebendo,
+                 case
+                   when not pg_is_in_recovery() then 0
+                   when pg_last_wal_replay_lsn() >= ?::pg_lsn then 0
+                   else extract(epoch from now() - pg_last_xact_replay_timestamp())
+                 end::float8 as atraso
+          """, lsnPrimario);
+      boolean emRecovery = (Boolean) estado.get("em_recovery");
+      if (!emRecovery && !avisouSemRecovery) {
+        avisouSemRecovery = true;
+        log.warn("Replica: o banco em app.datasource.replica.url nao esta em recovery (nao e standby)");
+      }
+      Number medido = (Number) estado.get("atraso");
+      atraso = medido == null ? Double.NaN : medido.doubleValue();
+      if (emRecovery && !(Boolean) estado.get("recebendo")) {
+        motivo = "sem WAL receiver (streaming parado)";
+        disponivel = false;
+      } else if (medido == null) {
+        motivo = "nenhuma transacao aplicada ainda";
+        disponivel = false;
+      } else {
+        disponivel = atraso <= atrasoMaximo;
+      }
+    } catch (RuntimeException ex) {
+      atraso = Double.NaN;
+      disponivel = false;
+      motivo = "falha ao medir atraso: " + ex.getMessage();
+    }
+    if (ultimoEstado != null && ultimoEstado != disponivel) {
+      log.info("Replica {} (atraso {} s{})", disponivel ? "de volta ao roteamento" : "fora do roteamento",
+          atraso, motivo == null ? "" : ", " + motivo);
+    } else if (ultimoEstado == null && !disponivel) {
+      log.warn("Replica fora do roteamento (atraso {} s{})", atraso, motivo == null ? "" : ", " + motivo);
+    }
+    ultimoEstado = disponivel;
+    roteamento.atualizar(disponivel, atraso);
+  }
+}
@@ -0,0 +1,31 @@
+package br.com.alexandria.alexandria_api.replica;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Replica de leitura (prefixo {@code app.datasource.replica}). Sem {@code url} todo o trafego vai
+ * para o {@code spring.datasource}.
+ *
+ * @param url            JDBC da replica (standby em streaming do primario)
+ * @param username       usuario; vazio = o do spring.datasource
+ * @param password       senha; vazia = a do spring.datasource
+ * @param maximumPoolSize conexoes do pool da replica
+ * @param tempoConexao   espera maxima por conexao da replica; estourou, a leitura vai para o primario
+ * @param atrasoMaximo   acima desse atraso de replay as leituras voltam para o primario
+ * @param verificacaoMs  intervalo da medicao do atraso
+ * @param janelaEscrita  depois de uma escrita, as leituras do mesmo usuario ficam no primario
+ *                       por esse tempo (read-your-writes)
+ */
+@ConfigurationProperties("app.datasource.replica")
+public record ReplicaProperties(String url,
+                                String username,
+                                String password,
+                                @DefaultValue("10") int maximumPoolSize,
+                                @DefaultValue("1s") Duration tempoConexao,
+                                @DefaultValue("5s") Duration atrasoMaximo,
+                                @DefaultValue("1000") long verificacaoMs,
+                                @DefaultValue("5s") Duration janelaEscrita) {
+}
@@ -0,0 +1,124 @@
+package br.com.alexandria.alexandria_api.replica;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decide, a cada conexao obtida, se ela vem da replica. Vai para a replica quando a thread esta
+ * numa leitura ({@link LeituraReplica} ou transacao read-only), a replica esta disponivel e dentro
+ * do atraso maximo, e o usuario nao escreveu dentro da janela de read-your-writes. Transacao de
+ * escrita em andamento sempre fica no primario.
+ *
+ * Sem replica configurada {@code disponivel} nunca liga e tudo segue para o primario.
+ *
+ * Os gauges de atraso e disponibilidade sao registrados pelo Boot via {@link MeterBinder}, depois
+ * da construcao (o gauge guarda referencia a este objeto).
+ */
+@Component
+public class ReplicaRoteamento implements MeterBinder {
+
+  private static final ThreadLocal<Boolean> LEITURA = new ThreadLocal<>();
+
+  private final boolean configurada;
+  private final long janelaNanos;
+  private final Map<String, Long> escritas = new ConcurrentHashMap<>();
+  private final Counter paraReplica;
+  private final Counter foraDoAtraso;
+  private final Counter escritaRecente;
+  private volatile boolean disponivel;
+  private volatile double atrasoSegundos;
+
+  public ReplicaRoteamento(ReplicaProperties properties, MeterRegistry registry) {
+    this.configurada = properties.url() != null && !properties.url().isBlank();
+    this.janelaNanos = properties.janelaEscrita().toNanos();
+    this.paraReplica = leituras(registry, "replica", "leitura");
+    this.foraDoAtraso = leituras(registry, "primario", "replica-indisponivel");
+    this.escritaRecente = leituras(registry, "primario", "escrita-recente");
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("db.replica.atraso", this, r -> r.atrasoSegundos)
+        .description("Atraso de replay da replica (s)")
+        .baseUnit("seconds")
+        .register(registry);
+    Gauge.builder("db.replica.disponivel", this, r -> r.disponivel ? 1 : 0)
+        .description("1 quando a replica recebe leituras")
+        .register(registry);
+  }
+
+  private static Counter leituras(MeterRegistry registry, String destino, String motivo) {
+    return Counter.builder("db.roteamento.leituras")
+        .description("Conexoes de leitura por destino")
+        .tag("destino", destino)
+        .tag("motivo", motivo)
+        .register(registry);
+  }
+
+  /** Marca a thread atual como leitura ate {@link #encerrarLeitura()}. */
+  public void iniciarLeitura() {
+    LEITURA.set(Boolean.TRUE);
+  }
+
+  public void encerrarLeitura() {
+    LEITURA.remove();
+  }
+
+  /** Inicio da janela de read-your-writes do usuario autenticado na thread. */
+  public void registrarEscrita() {
+    String usuario = usuario();
+    if (configurada && usuario != null && janelaNanos > 0) {
+      escritas.put(usuario, System.nanoTime());
+    }
+  }
+
+  boolean usarReplica() {
+    boolean leitura = Boolean.TRUE.equals(LEITURA.get())
+        || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    if (!configurada || !leitura
+        || (TransactionSynchronizationManager.isActualTransactionActive()
+            && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+      return false;
+    }
+    if (!disponivel) {
+      foraDoAtraso.increment();
+      return false;
+    }
+    String usuario = usuario();
+    Long escrita = usuario == null ? null : escritas.get(usuario);
+    if (escrita != null && System.nanoTime() - escrita < janelaNanos) {
+      escritaRecente.increment();
+      return false;
+    }
+    paraReplica.increment();
+    return true;
+  }
+
+  /** Conexao com a replica falhou: fora do roteamento ate a proxima medicao boa. */
+  void replicaFalhou() {
+    this.disponivel = false;
+  }
+
+  /** Resultado da medicao do {@link ReplicaMonitor}; tambem descarta janelas vencidas. */
+  void atualizar(boolean disponivel, double atrasoSegundos) {
+    this.disponivel = disponivel;
+    this.atrasoSegundos = atrasoSegundos;
+    long agora = System.nanoTime();
+    escritas.values().removeIf(escrita -> agora - escrita >= janelaNanos);
+  }
+
+  private static String usuario() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    return auth == null || auth instanceof AnonymousAuthenticationToken ? null : auth.getName();
+  }
+}
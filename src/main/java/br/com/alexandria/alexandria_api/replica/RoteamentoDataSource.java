@@ -0,0 +1,59 @@
+package br.com.alexandria.alexandria_api.replica;
+
+import br.com.alexandria.alexandria_api.concorrencia.BulkheadDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Primario ou replica conforme o {@link ReplicaRoteamento}, decidido quando a conexao e de fato
+ * obtida. Fica atras de um LazyConnectionDataSourceProxy: assim, numa transacao read-only, a
+ * conexao so e pedida no primeiro statement, quando o flag read-only ja esta visivel.
+ *
+ * Se a replica nao entrega conexao a leitura cai no primario e a replica sai do roteamento ate a
+ * proxima medicao do {@link ReplicaMonitor}. Bulkhead da replica sem vaga tambem manda a leitura
+ * para o primario, mas sem tirar a replica do roteamento.
+ */
+class RoteamentoDataSource extends AbstractRoutingDataSource {
+
+  private static final String PRIMARIO = "primario";
+  private static final String REPLICA = "replica";
+
+  private final DataSource primario;
+  private final DataSource replica;
+  private final ReplicaRoteamento roteamento;
+
+  RoteamentoDataSource(DataSource primario, DataSource replica, ReplicaRoteamento roteamento) {
+    this.primario = primario;
+    this.replica = replica;
+    this.roteamento = roteamento;
+    setTargetDataSources(Map.of(PRIMARIO, primario, REPLICA, replica));
+    setDefaultTargetDataSource(primario);
+    setLenientFallback(false);
+    afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return roteamento.usarReplica() ? REPLICA : PRIMARIO;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    DataSource alvo = determineTargetDataSource();
+    if (alvo != replica) {
+      return alvo.getConnection();
+    }
+    try {
+      return replica.getConnection();
+    } catch (BulkheadDataSource.BancoSaturadoException ex) {
+      return primario.getConnection();
+    } catch (SQLException ex) {
+      roteamento.replicaFalhou();
+      return primario.getConnection();
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package br.com.alexandria.alexandria_api.util;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Atalhos para as funcoes de particionamento mensal criadas na V4
+ * (criar_particoes_futuras / desanexar_particoes_antigas) e para a particao DEFAULT da V14.
+ */
+public final class ParticoesMensais {
+
+  private ParticoesMensais() {
+  }
+
+  /**
+   * Garante as particoes do mes corrente ate {@code meses} a frente; retorna os nomes. Seguro com
+   * varias instancias rodando o job ao mesmo tempo: criar_particao_mensal (V17) serializa por
+   * advisory lock e quem chega depois so recebe o nome da particao ja criada.
+   */
+  public static List<String> criarFuturas(JdbcTemplate jdbcTemplate, String tabela, int meses) {
+    return jdbcTemplate.queryForList(
+        "select * from criar_particoes_futuras(?::regclass, ?)",
+        String.class,
+        tabela,
+        meses
+    );
+  }
+
+  /**
+   * Desanexa as particoes inteiramente anteriores a {@code antes}. Com {@code schemaArquivo}
+   * a particao e movida para esse schema; com null ela e descartada.
+   */
+  public static List<String> desanexarAntigas(JdbcTemplate jdbcTemplate,
+                                              String tabela,
+                                              LocalDate antes,
+                                              String schemaArquivo) {
+    return jdbcTemplate.queryForList(
+        "select * from desanexar_particoes_antigas(?::regclass, ?, ?)",
+        String.class,
+        tabela,
+        Date.valueOf(antes),
+        schemaArquivo
+    );
+  }
+
+  /**
+   * Linhas na particao DEFAULT de {@code tabela} (0 se ela nao existir): linhas de meses sem
+   * particao propria, que o job deve apontar.
+   */
+  public static long linhasNoDefault(JdbcTemplate jdbcTemplate, String tabela) {
+    String particao = jdbcTemplate.queryForObject(
+        "select particao_default(?::regclass)::text",
+        String.class,
+        tabela
+    );
+    return particao == null ? 0 : jdbcTemplate.queryForObject("select count(*) from " + particao, Long.class);
+  }
+}
@@ -1,5 +1,6 @@
 package br.com.alexandria.alexandria_api.vendas;
 
+import br.com.alexandria.alexandria_api.auth.RequerPermissao;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
@@ -114,11 +115,13 @@ public class VendaController {
     return vendaService.finalizar(id);
   }
 
+  @RequerPermissao("vendas.cancelar")
   @PostMapping("/{id}/cancelar")
   public Map<String, Object> cancelar(@PathVariable UUID id) {
     return vendaService.cancelar(id);
   }
 
+  @RequerPermissao("vendas.estornar")
   @PostMapping("/{id}/estornar")
   public Map<String, Object> estornar(@PathVariable UUID id) {
     return vendaService.estornar(id);
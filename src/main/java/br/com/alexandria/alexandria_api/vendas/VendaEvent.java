@@ -0,0 +1,20 @@
+package br.com.alexandria.alexandria_api.vendas;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Publicado pelo {@link VendaService} quando uma venda e finalizada ou estornada. Ouvintes que
+ * dependem do estado gravado devem usar {@code @TransactionalEventListener} (apos o commit).
+ *
+ * @param vendaId   venda alterada
+ * @param localId   loja da venda (pode ser nulo)
+ * @param tipo      FINALIZADA ou ESTORNADA
+ * @param dataVenda data da venda (no estorno, a data original)
+ * @param itens     livros e quantidades da venda
+ */
+public record VendaEvent(UUID vendaId, UUID localId, String tipo, Instant dataVenda, List<ItemVendido> itens) {
+
+  public record ItemVendido(UUID livroId, int quantidade) {}
+}
@@ -1,7 +1,11 @@
 package br.com.alexandria.alexandria_api.vendas;
 
+import br.com.alexandria.alexandria_api.dashboard.VendasRollupService;
+import br.com.alexandria.alexandria_api.estoque.EstoqueBaixoMonitor;
 import br.com.alexandria.alexandria_api.estoque.EstoqueService;
+import br.com.alexandria.alexandria_api.observability.MetricasNegocio;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -13,7 +17,6 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
-import java.time.Instant;
 import java.util.*;
 
 @Service
@@ -23,6 +26,10 @@ public class VendaService {
   private final JdbcTemplate jdbc;
   private final NamedParameterJdbcTemplate njdbc;
   private final EstoqueService estoque;
+  private final EstoqueBaixoMonitor estoqueBaixo;
+  private final VendasRollupService rollups;
+  private final ApplicationEventPublisher eventPublisher;
+  private final MetricasNegocio metricas;
 
   // ========== ABRIR ===========================================================
 
@@ -194,7 +201,7 @@ public class VendaService {
 
     jdbc.update("""
       insert into pagamentos_venda (id, venda_id, forma_id, valor, status, transacao_ref, criado_em)
-      values (gen_random_uuid(), ?, ?, ?, 'APROVADO', ?, now())
+      values (gen_random_uuid(), ?, ?, ?, 'CONFIRMADO', ?, now())
       """, vendaId, (UUID) r.get("formaId"), toBd(r.get("valor")), (String) r.get("transacaoRef"));
 
     // status informativo
@@ -234,10 +241,18 @@ public class VendaService {
           insert into movimentacoes_estoque (id, livro_id, local_id, tipo, quantidade, motivo, origem_venda_item_id, criado_em)
           values (gen_random_uuid(), ?, ?, 'SAIDA', ?, 'venda', ?, now())
         """, livroId, (UUID) venda.get("local_id"), ((Number) it.get("quantidade")).intValue(), (UUID) it.get("id"));
+        metricas.movimentacoes("SAIDA", 1);
+        estoqueBaixo.tocar(livroId, (UUID) venda.get("local_id"));
       }
     }
 
-    jdbc.update("update vendas set status='FINALIZADA', data_venda=now(), updated_at=now() where id=?", vendaId);
+    // data_venda gravada (inicio da transacao), a mesma que a reconstrucao do ranking le depois
+    Timestamp dataVenda = jdbc.queryForObject(
+        "update vendas set status='FINALIZADA', data_venda=now(), updated_at=now() where id=? returning data_venda",
+        Timestamp.class, vendaId);
+    rollups.registrarFinalizada(vendaId);
+    eventPublisher.publishEvent(new VendaEvent(
+        vendaId, (UUID) venda.get("local_id"), "FINALIZADA", dataVenda.toInstant(), itensVendidos(itens)));
     return getVenda(vendaId);
   }
 
@@ -264,7 +279,8 @@ public class VendaService {
       throw new ResponseStatusException(HttpStatus.CONFLICT, "Apenas vendas finalizadas podem ser estornadas");
 
     // devolve estoque (entrada)
-    for (var it : itens(vendaId)){
+    List<Map<String,Object>> itens = itens(vendaId);
+    for (var it : itens){
       UUID livroId = (UUID) it.get("livro_id");
       int qtd = ((Number) it.get("quantidade")).intValue();
       jdbc.update("update estoques set quantidade = quantidade + ? where livro_id=? and local_id=?",
@@ -273,8 +289,13 @@ public class VendaService {
         insert into movimentacoes_estoque (id, livro_id, local_id, tipo, quantidade, motivo, origem_venda_item_id, criado_em)
         values (gen_random_uuid(), ?, ?, 'ENTRADA', ?, 'estorno', ?, now())
         """, livroId, (UUID) venda.get("local_id"), qtd, (UUID) it.get("id"));
+      metricas.movimentacoes("ENTRADA", 1);
+      estoqueBaixo.tocar(livroId, (UUID) venda.get("local_id"));
     }
     jdbc.update("update vendas set status='ESTORNADA', updated_at=now() where id=?", vendaId);
+    rollups.registrarEstornada(vendaId);
+    eventPublisher.publishEvent(new VendaEvent(
+        vendaId, (UUID) venda.get("local_id"), "ESTORNADA", ((Timestamp) venda.get("data_venda")).toInstant(), itensVendidos(itens)));
     return getVenda(vendaId);
   }
 
@@ -302,6 +323,12 @@ public class VendaService {
     return jdbc.queryForList("select * from itens_venda where venda_id=?", vendaId);
   }
 
+  private static List<VendaEvent.ItemVendido> itensVendidos(List<Map<String,Object>> itens){
+    return itens.stream()
+        .map(it -> new VendaEvent.ItemVendido((UUID) it.get("livro_id"), ((Number) it.get("quantidade")).intValue()))
+        .toList();
+  }
+
   private void assertAberta(Map<String,Object> venda){
     String st = String.valueOf(venda.get("status"));
     if(!"ABERTA".equals(st))
@@ -343,7 +370,7 @@ public class VendaService {
 
   private BigDecimal totalPago(UUID vendaId){
     return njdbc.queryForObject("""
-      select coalesce(sum(valor),0) from pagamentos_venda where venda_id=:v and status='APROVADO'
+      select coalesce(sum(valor),0) from pagamentos_venda where venda_id=:v and status='CONFIRMADO'
       """, new MapSqlParameterSource("v", vendaId), BigDecimal.class);
   }
 
@@ -0,0 +1,26 @@
+-- V10__permissoes_endpoints.sql
+-- Codigos de permissao checados pela API (@RequerPermissao / PermissaoModel). Para nao mudar o
+-- acesso de ninguem na implantacao, todos sao concedidos aos perfis existentes; a restricao
+-- passa a ser feita removendo linhas de perfis_permissoes.
+
+set local search_path = alexandria, public;
+
+insert into permissoes (codigo, descricao) values
+  ('estoque.movimentar', 'Entradas, saidas e ajustes manuais de estoque'),
+  ('estoque.inventario', 'Abrir, contar e fechar inventarios'),
+  ('estoque.verificar',  'Disparar verificacao (e reparo) de saldos de estoque'),
+  ('vendas.cancelar',    'Cancelar vendas em aberto'),
+  ('vendas.estornar',    'Estornar vendas finalizadas'),
+  ('dashboard.refresh',  'Forcar refresh das materialized views dos dashboards'),
+  ('rbac.gerenciar',     'Alterar usuarios, perfis e permissoes pelo CRUD generico')
+on conflict (codigo) do nothing;
+
+insert into perfis_permissoes (perfil_id, permissao_id)
+select p.id, pm.id
+from perfis p
+cross join permissoes pm
+where pm.codigo in ('estoque.movimentar', 'estoque.inventario', 'estoque.verificar',
+                    'vendas.cancelar', 'vendas.estornar', 'dashboard.refresh', 'rbac.gerenciar')
+on conflict do nothing;
+
+-- FIM
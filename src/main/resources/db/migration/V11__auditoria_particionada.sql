@@ -0,0 +1,126 @@
+-- V11__auditoria_particionada.sql
+-- logs_login (por instante) e sessoes (por expira_em) passam a ser particionadas por mes, com as
+-- funcoes da V4. A limpeza vira desanexar/descartar particoes inteiras (AuditoriaParticoesJob)
+-- em vez de DELETE em massa.
+
+set local search_path = alexandria, public;
+
+------------------------------
+-- LOGS DE LOGIN
+------------------------------
+alter table logs_login rename to logs_login_legado;
+alter index logs_login_pkey rename to logs_login_legado_pkey;
+drop index if exists idx_logs_login_usuario, idx_logs_login_instante;
+
+create table logs_login (
+  id              uuid not null default gen_random_uuid(),
+  usuario_id      uuid references usuarios(id) on delete set null,
+  instante        timestamptz not null default now(),
+  sucesso         boolean not null,
+  ip              inet,
+  user_agent      text,
+  mensagem        text,
+  primary key (id, instante)
+) partition by range (instante);
+
+do $$
+declare
+  m date;
+begin
+  for m in
+    select generate_series(
+      date_trunc('month', coalesce((select min(instante) from logs_login_legado), now()) at time zone 'UTC'),
+      date_trunc('month', now() at time zone 'UTC') + interval '3 months',
+      interval '1 month'
+    )::date
+  loop
+    perform criar_particao_mensal('logs_login', m);
+  end loop;
+end$$;
+
+create index if not exists idx_logs_login_usuario on logs_login (usuario_id, instante);
+-- append-only em ordem de instante
+create index if not exists brin_logs_login_instante
+  on logs_login using brin (instante) with (pages_per_range = 32);
+
+insert into logs_login (id, usuario_id, instante, sucesso, ip, user_agent, mensagem)
+select id, usuario_id, instante, sucesso, ip, user_agent, mensagem
+from logs_login_legado;
+
+drop table logs_login_legado;
+
+------------------------------
+-- SESSÕES
+------------------------------
+alter table sessoes rename to sessoes_legado;
+alter index sessoes_pkey rename to sessoes_legado_pkey;
+drop index if exists idx_sessoes_usuario, idx_sessoes_expira, idx_sessoes_jwt_id, idx_sessoes_revogadas;
+
+create table sessoes (
+  id              uuid not null default gen_random_uuid(),
+  usuario_id      uuid references usuarios(id) on delete set null,
+  jwt_id          text not null,
+  criado_em       timestamptz not null default now(),
+  expira_em       timestamptz not null,
+  ip              inet,
+  user_agent      text,
+  revogado        boolean not null default false,
+  revogado_em     timestamptz,
+  primary key (id, expira_em)
+) partition by range (expira_em);
+
+do $$
+declare
+  m date;
+begin
+  for m in
+    select generate_series(
+      date_trunc('month', coalesce((select min(expira_em) from sessoes_legado), now()) at time zone 'UTC'),
+      greatest(
+        date_trunc('month', now() at time zone 'UTC') + interval '3 months',
+        date_trunc('month', coalesce((select max(expira_em) from sessoes_legado), now()) at time zone 'UTC')
+      ),
+      interval '1 month'
+    )::date
+  loop
+    perform criar_particao_mensal('sessoes', m);
+  end loop;
+end$$;
+
+create index if not exists idx_sessoes_usuario on sessoes (usuario_id);
+create index if not exists idx_sessoes_jwt_id on sessoes (jwt_id);
+create index if not exists idx_sessoes_revogadas on sessoes (revogado_em, expira_em) where revogado;
+
+insert into sessoes (id, usuario_id, jwt_id, criado_em, expira_em, ip, user_agent, revogado, revogado_em)
+select id, usuario_id, jwt_id, criado_em, expira_em, ip, user_agent, revogado, revogado_em
+from sessoes_legado;
+
+drop table sessoes_legado;
+
+------------------------------
+-- RLS (mesmas políticas da V2)
+------------------------------
+do $$
+declare
+  has_auth boolean;
+  t text;
+begin
+  select exists (select 1 from pg_roles where rolname = 'authenticated') into has_auth;
+
+  foreach t in array array['logs_login', 'sessoes'] loop
+    execute format('alter table %I enable row level security', t);
+    if has_auth then
+      execute format('create policy alexapp_select_%1$s on %1$I for select to authenticated using (true)', t);
+      execute format('create policy alexapp_insert_%1$s on %1$I for insert to authenticated with check (true)', t);
+      execute format('create policy alexapp_update_%1$s on %1$I for update to authenticated using (true) with check (true)', t);
+      execute format('create policy alexapp_delete_%1$s on %1$I for delete to authenticated using (true)', t);
+    else
+      execute format('create policy alexapp_select_%1$s on %1$I for select using (true)', t);
+      execute format('create policy alexapp_insert_%1$s on %1$I for insert with check (true)', t);
+      execute format('create policy alexapp_update_%1$s on %1$I for update using (true) with check (true)', t);
+      execute format('create policy alexapp_delete_%1$s on %1$I for delete using (true)', t);
+    end if;
+  end loop;
+end$$;
+
+-- FIM
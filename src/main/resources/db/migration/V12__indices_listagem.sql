@@ -0,0 +1,12 @@
+-- V12__indices_listagem.sql
+-- A listagem generica (GET /api/{tabela}) ordena por created_at desc por padrao; sem indice a
+-- primeira pagina de livros, clientes e vendas lia e ordenava a tabela inteira (seq scan + sort).
+-- Apontado pelos testes de plano (PlanosConsultasQuentesTest).
+
+set local search_path = alexandria, public;
+
+create index if not exists idx_livros_created_at on livros(created_at);
+create index if not exists idx_clientes_created_at on clientes(created_at);
+create index if not exists idx_vendas_created_at on vendas(created_at);
+
+-- FIM
@@ -0,0 +1,23 @@
+-- V13__sessoes_revogado_em_trigger.sql
+-- O polling do RevogacaoRegistry so enxerga revogacoes com revogado_em > marca. Quem marcava
+-- revogado = true por outro caminho (CRUD generico, SQL manual) sem preencher revogado_em nunca
+-- chegava as outras instancias. O trigger carimba revogado_em = clock_timestamp() sempre que a
+-- sessao passa a revogada, independentemente do valor enviado.
+
+set local search_path = alexandria, public;
+
+create or replace function sessoes_carimbar_revogacao()
+returns trigger language plpgsql as $$
+begin
+  if new.revogado and (tg_op = 'INSERT' or not old.revogado) then
+    new.revogado_em := clock_timestamp();
+  end if;
+  return new;
+end$$;
+
+-- na tabela particionada: vale para as particoes atuais e as criadas depois
+create trigger tg_sessoes_revogacao
+before insert or update of revogado on sessoes
+for each row execute function sessoes_carimbar_revogacao();
+
+-- FIM
@@ -0,0 +1,97 @@
+-- V14__movimentacoes_particao_default.sql
+-- Sem particao DEFAULT, um insert em movimentacoes_estoque fora dos meses criados (job parado,
+-- relogio errado, data retroativa) falhava com "no partition of relation found for row" e
+-- derrubava a venda/movimentacao. As linhas passam a cair em <tabela>_default, e
+-- criar_particao_mensal move para a particao nova as linhas do mes que estiverem la (criar a
+-- particao com linhas do mesmo intervalo no default falharia). O LedgerParticoesJob avisa quando
+-- o default tem linhas.
+
+set local search_path = alexandria, public;
+
+-- Particao DEFAULT de p_tabela (null se nao houver).
+create or replace function particao_default(p_tabela regclass)
+returns regclass language sql stable as $$
+  select i.inhrelid::regclass
+  from pg_inherits i
+  join pg_class c on c.oid = i.inhrelid
+  where i.inhparent = p_tabela
+    and pg_get_expr(c.relpartbound, c.oid) = 'DEFAULT'
+$$;
+
+-- Cria (se faltar) a particao <tabela>_YYYYMM cobrindo o mes de p_mes (limites em UTC). Linhas do
+-- mes que estejam na particao DEFAULT sao retiradas antes e reinseridas na particao nova.
+create or replace function criar_particao_mensal(p_tabela regclass, p_mes date)
+returns text language plpgsql as $$
+declare
+  v_inicio  date := date_trunc('month', p_mes)::date;
+  v_de      timestamptz := v_inicio::timestamp at time zone 'UTC';
+  v_ate     timestamptz := (v_inicio + interval '1 month')::timestamp at time zone 'UTC';
+  v_schema  text;
+  v_nome    text;
+  v_part    text;
+  v_default regclass;
+  v_chave   text;
+  v_linhas  bigint := 0;
+begin
+  select n.nspname, c.relname into v_schema, v_nome
+  from pg_class c
+  join pg_namespace n on n.oid = c.relnamespace
+  where c.oid = p_tabela;
+
+  v_part := v_nome || '_' || to_char(v_inicio, 'YYYYMM');
+  if to_regclass(format('%I.%I', v_schema, v_part)) is not null then
+    return v_part;
+  end if;
+
+  v_default := particao_default(p_tabela);
+  if v_default is not null then
+    select a.attname into v_chave
+    from pg_partitioned_table p
+    join pg_attribute a on a.attrelid = p.partrelid and a.attnum = p.partattrs[0]
+    where p.partrelid = p_tabela;
+
+    execute format('select count(*) from %s where %I >= %L and %I < %L', v_default, v_chave, v_de, v_chave, v_ate)
+      into v_linhas;
+    if v_linhas > 0 then
+      execute format('create temp table particao_pendente (like %s) on commit drop', p_tabela);
+      execute format(
+        'with movidas as (delete from %s where %I >= %L and %I < %L returning *) insert into particao_pendente select * from movidas',
+        v_default, v_chave, v_de, v_chave, v_ate
+      );
+    end if;
+  end if;
+
+  execute format(
+    'create table %I.%I partition of %s for values from (%L) to (%L)',
+    v_schema, v_part, p_tabela, v_de, v_ate
+  );
+
+  if v_linhas > 0 then
+    execute format('insert into %s select * from particao_pendente', p_tabela);
+    drop table particao_pendente;
+    raise notice '% linhas de % movidas para %', v_linhas, v_default, v_part;
+  end if;
+  return v_part;
+end$$;
+
+-- Cria (se faltar) a particao DEFAULT <tabela>_default.
+create or replace function criar_particao_default(p_tabela regclass)
+returns text language plpgsql as $$
+declare
+  v_schema text;
+  v_nome   text;
+begin
+  select n.nspname, c.relname into v_schema, v_nome
+  from pg_class c
+  join pg_namespace n on n.oid = c.relnamespace
+  where c.oid = p_tabela;
+
+  if particao_default(p_tabela) is null then
+    execute format('create table %I.%I partition of %s default', v_schema, v_nome || '_default', p_tabela);
+  end if;
+  return v_nome || '_default';
+end$$;
+
+select criar_particao_default('movimentacoes_estoque');
+
+-- FIM
@@ -0,0 +1,23 @@
+-- V15__auditoria_particao_default.sql
+-- logs_login e sessoes ganham particao DEFAULT (mesma razao da V14): sem ela, um login com o job
+-- de particoes parado falhava no insert da sessao/log. criar_particao_mensal (V14) ja move as
+-- linhas do mes para a particao nova; o AuditoriaParticoesJob avisa quando o default tem linhas.
+
+set local search_path = alexandria, public;
+
+select criar_particao_default('logs_login');
+select criar_particao_default('sessoes');
+
+-- Sessoes movidas do default para a particao do mes sao reinseridas: no INSERT o trigger da V13
+-- so carimba revogado_em se vier vazio, para nao reapresentar revogacoes antigas ao polling.
+create or replace function sessoes_carimbar_revogacao()
+returns trigger language plpgsql as $$
+begin
+  if new.revogado
+     and ((tg_op = 'INSERT' and new.revogado_em is null) or (tg_op = 'UPDATE' and not old.revogado)) then
+    new.revogado_em := clock_timestamp();
+  end if;
+  return new;
+end$$;
+
+-- FIM
@@ -0,0 +1,14 @@
+-- V16__sessoes_jwt_id_unico.sql
+-- O logout que nao acha a sessao (lote do AuditoriaLoginWriter ainda nao commitado, ou sessao na
+-- fila de outra instancia) grava a sessao ja revogada; o writer insere com on conflict do nothing
+-- e nao a sobrescreve. O conflito precisa de um indice unico por jwt_id, que numa tabela
+-- particionada tem de incluir a chave de particao (expira_em, igual ao exp do token).
+
+set local search_path = alexandria, public;
+
+create unique index if not exists uq_sessoes_jwt_id on sessoes (jwt_id, expira_em);
+
+-- coberto pelo indice unico (jwt_id na frente)
+drop index if exists idx_sessoes_jwt_id;
+
+-- FIM
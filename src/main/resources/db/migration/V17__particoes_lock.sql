@@ -0,0 +1,67 @@
+-- V17__particoes_lock.sql
+-- Os jobs de particoes (LedgerParticoesJob, AuditoriaParticoesJob) rodam no mesmo cron em todas
+-- as instancias: duas criando a mesma particao ao mesmo tempo falhavam com duplicate_table (ou
+-- uma movia linhas do default enquanto a outra criava). criar_particao_mensal passa a tomar um
+-- advisory lock de transacao por tabela antes de conferir se a particao existe.
+
+set local search_path = alexandria, public;
+
+create or replace function criar_particao_mensal(p_tabela regclass, p_mes date)
+returns text language plpgsql as $$
+declare
+  v_inicio  date := date_trunc('month', p_mes)::date;
+  v_de      timestamptz := v_inicio::timestamp at time zone 'UTC';
+  v_ate     timestamptz := (v_inicio + interval '1 month')::timestamp at time zone 'UTC';
+  v_schema  text;
+  v_nome    text;
+  v_part    text;
+  v_default regclass;
+  v_chave   text;
+  v_linhas  bigint := 0;
+begin
+  -- serializa criadores concorrentes da mesma tabela (jobs de varias instancias, chamada manual);
+  -- quem espera ve a particao ja criada abaixo e so devolve o nome
+  perform pg_advisory_xact_lock(hashtext('criar_particao_mensal'), p_tabela::oid::integer);
+
+  select n.nspname, c.relname into v_schema, v_nome
+  from pg_class c
+  join pg_namespace n on n.oid = c.relnamespace
+  where c.oid = p_tabela;
+
+  v_part := v_nome || '_' || to_char(v_inicio, 'YYYYMM');
+  if to_regclass(format('%I.%I', v_schema, v_part)) is not null then
+    return v_part;
+  end if;
+
+  v_default := particao_default(p_tabela);
+  if v_default is not null then
+    select a.attname into v_chave
+    from pg_partitioned_table p
+    join pg_attribute a on a.attrelid = p.partrelid and a.attnum = p.partattrs[0]
+    where p.partrelid = p_tabela;
+
+    execute format('select count(*) from %s where %I >= %L and %I < %L', v_default, v_chave, v_de, v_chave, v_ate)
+      into v_linhas;
+    if v_linhas > 0 then
+      execute format('create temp table particao_pendente (like %s) on commit drop', p_tabela);
+      execute format(
+        'with movidas as (delete from %s where %I >= %L and %I < %L returning *) insert into particao_pendente select * from movidas',
+        v_default, v_chave, v_de, v_chave, v_ate
+      );
+    end if;
+  end if;
+
+  execute format(
+    'create table %I.%I partition of %s for values from (%L) to (%L)',
+    v_schema, v_part, p_tabela, v_de, v_ate
+  );
+
+  if v_linhas > 0 then
+    execute format('insert into %s select * from particao_pendente', p_tabela);
+    drop table particao_pendente;
+    raise notice '% linhas de % movidas para %', v_linhas, v_default, v_part;
+  end if;
+  return v_part;
+end$$;
+
+-- FIM
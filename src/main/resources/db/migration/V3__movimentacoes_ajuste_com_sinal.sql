@@ -0,0 +1,14 @@
+-- V3__movimentacoes_ajuste_com_sinal.sql
+-- AJUSTE carrega o delta com sinal (ex.: fechamento de inventario com contagem menor
+-- que o sistema). ENTRADA/SAIDA continuam estritamente positivas.
+
+set local search_path = alexandria, public;
+
+alter table movimentacoes_estoque
+  drop constraint if exists movimentacoes_estoque_quantidade_check;
+
+alter table movimentacoes_estoque
+  add constraint movimentacoes_estoque_quantidade_check
+  check (quantidade <> 0 and (tipo = 'AJUSTE' or quantidade > 0));
+
+-- FIM
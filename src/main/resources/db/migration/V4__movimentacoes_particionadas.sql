@@ -0,0 +1,168 @@
+-- V4__movimentacoes_particionadas.sql
+-- movimentacoes_estoque passa a ser particionada por mes (range em criado_em), com BRIN em
+-- criado_em e indice composto para o extrato por livro/local (keyset). Particoes antigas podem
+-- ser desanexadas e movidas para o schema "arquivo" (ou descartadas) pelo job da aplicacao.
+
+set local search_path = alexandria, public;
+
+create schema if not exists arquivo;
+
+------------------------------
+-- FUNÇÕES DE PARTICIONAMENTO MENSAL (genéricas)
+------------------------------
+
+-- Cria (se faltar) a particao <tabela>_YYYYMM cobrindo o mes de p_mes (limites em UTC).
+create or replace function criar_particao_mensal(p_tabela regclass, p_mes date)
+returns text language plpgsql as $$
+declare
+  v_inicio date := date_trunc('month', p_mes)::date;
+  v_schema text;
+  v_nome   text;
+  v_part   text;
+begin
+  select n.nspname, c.relname into v_schema, v_nome
+  from pg_class c
+  join pg_namespace n on n.oid = c.relnamespace
+  where c.oid = p_tabela;
+
+  v_part := v_nome || '_' || to_char(v_inicio, 'YYYYMM');
+  if to_regclass(format('%I.%I', v_schema, v_part)) is null then
+    execute format(
+      'create table %I.%I partition of %s for values from (%L) to (%L)',
+      v_schema, v_part, p_tabela,
+      v_inicio::timestamp at time zone 'UTC',
+      (v_inicio + interval '1 month')::timestamp at time zone 'UTC'
+    );
+  end if;
+  return v_part;
+end$$;
+
+-- Garante as particoes do mes corrente ate p_meses a frente.
+create or replace function criar_particoes_futuras(p_tabela regclass, p_meses integer)
+returns setof text language plpgsql as $$
+declare
+  m date;
+begin
+  for m in
+    select generate_series(
+      date_trunc('month', now() at time zone 'UTC'),
+      date_trunc('month', now() at time zone 'UTC') + make_interval(months => greatest(p_meses, 0)),
+      interval '1 month'
+    )::date
+  loop
+    return next criar_particao_mensal(p_tabela, m);
+  end loop;
+end$$;
+
+-- Desanexa as particoes <tabela>_YYYYMM inteiramente anteriores a p_antes. Com p_schema_arquivo
+-- informado a particao e movida para esse schema; com null ela e descartada.
+create or replace function desanexar_particoes_antigas(p_tabela regclass, p_antes date, p_schema_arquivo text)
+returns setof text language plpgsql as $$
+declare
+  r record;
+begin
+  for r in
+    select n.nspname as schema, c.relname as nome
+    from pg_inherits i
+    join pg_class c on c.oid = i.inhrelid
+    join pg_namespace n on n.oid = c.relnamespace
+    where i.inhparent = p_tabela
+      and c.relname ~ '_[0-9]{6}$'
+      and (to_date(right(c.relname, 6), 'YYYYMM') + interval '1 month') <= p_antes
+    order by c.relname
+  loop
+    execute format('alter table %s detach partition %I.%I', p_tabela, r.schema, r.nome);
+    if p_schema_arquivo is null then
+      execute format('drop table %I.%I', r.schema, r.nome);
+    else
+      execute format('alter table %I.%I set schema %I', r.schema, r.nome, p_schema_arquivo);
+    end if;
+    return next r.nome;
+  end loop;
+end$$;
+
+------------------------------
+-- MOVIMENTAÇÕES DE ESTOQUE PARTICIONADAS
+------------------------------
+alter table movimentacoes_estoque rename to movimentacoes_estoque_legado;
+alter index movimentacoes_estoque_pkey rename to movimentacoes_estoque_legado_pkey;
+drop index if exists idx_mov_estoque_livro, idx_mov_estoque_local, idx_mov_estoque_tipo;
+
+create table movimentacoes_estoque (
+  id              uuid not null default gen_random_uuid(),
+  livro_id        uuid not null references livros(id) on delete restrict,
+  local_id        uuid not null references locais_estoque(id) on delete restrict,
+  tipo            tipo_mov_estoque not null,
+  quantidade      integer not null,
+  motivo          text,
+  origem_venda_item_id      uuid,
+  origem_dev_cli_item_id    uuid,
+  origem_dev_forn_id        uuid,
+  criado_em       timestamptz not null default now(),
+  primary key (id, criado_em),
+  constraint movimentacoes_estoque_quantidade_check
+    check (quantidade <> 0 and (tipo = 'AJUSTE' or quantidade > 0)),
+  constraint fk_mov_est_item_venda
+    foreign key (origem_venda_item_id) references itens_venda(id),
+  constraint fk_mov_est_item_dev_cli
+    foreign key (origem_dev_cli_item_id) references itens_devolucao_cliente(id),
+  constraint fk_mov_est_origem_dev_forn
+    foreign key (origem_dev_forn_id) references devolucoes_fornecedores(id)
+) partition by range (criado_em);
+
+-- particoes do primeiro mes com historico ate 3 meses a frente
+do $$
+declare
+  m date;
+begin
+  for m in
+    select generate_series(
+      date_trunc('month', coalesce((select min(criado_em) from movimentacoes_estoque_legado), now()) at time zone 'UTC'),
+      date_trunc('month', now() at time zone 'UTC') + interval '3 months',
+      interval '1 month'
+    )::date
+  loop
+    perform criar_particao_mensal('movimentacoes_estoque', m);
+  end loop;
+end$$;
+
+-- BRIN: o ledger e append-only, criado_em cresce junto com a ordem fisica
+create index if not exists brin_mov_estoque_criado_em
+  on movimentacoes_estoque using brin (criado_em) with (pages_per_range = 32);
+-- extrato por livro/local em ordem cronologica (keyset em criado_em, id)
+create index if not exists idx_mov_estoque_livro_local_criado
+  on movimentacoes_estoque (livro_id, local_id, criado_em, id);
+create index if not exists idx_mov_estoque_local on movimentacoes_estoque (local_id);
+
+insert into movimentacoes_estoque (id, livro_id, local_id, tipo, quantidade, motivo,
+                                   origem_venda_item_id, origem_dev_cli_item_id, origem_dev_forn_id, criado_em)
+select id, livro_id, local_id, tipo, quantidade, motivo,
+       origem_venda_item_id, origem_dev_cli_item_id, origem_dev_forn_id, criado_em
+from movimentacoes_estoque_legado;
+
+drop table movimentacoes_estoque_legado;
+
+------------------------------
+-- RLS (mesmas políticas da V2)
+------------------------------
+do $$
+declare
+  has_auth boolean;
+begin
+  select exists (select 1 from pg_roles where rolname = 'authenticated') into has_auth;
+
+  alter table movimentacoes_estoque enable row level security;
+  if has_auth then
+    create policy alexapp_select_movimentacoes_estoque on movimentacoes_estoque for select to authenticated using (true);
+    create policy alexapp_insert_movimentacoes_estoque on movimentacoes_estoque for insert to authenticated with check (true);
+    create policy alexapp_update_movimentacoes_estoque on movimentacoes_estoque for update to authenticated using (true) with check (true);
+    create policy alexapp_delete_movimentacoes_estoque on movimentacoes_estoque for delete to authenticated using (true);
+  else
+    create policy alexapp_select_movimentacoes_estoque on movimentacoes_estoque for select using (true);
+    create policy alexapp_insert_movimentacoes_estoque on movimentacoes_estoque for insert with check (true);
+    create policy alexapp_update_movimentacoes_estoque on movimentacoes_estoque for update using (true) with check (true);
+    create policy alexapp_delete_movimentacoes_estoque on movimentacoes_estoque for delete using (true);
+  end if;
+end$$;
+
+-- FIM
@@ -0,0 +1,43 @@
+-- V5__verificacao_estoque.sql
+-- Verificador de consistencia estoques x ledger (movimentacoes_estoque / reservas_estoque).
+-- Checkpoints guardam o saldo do ledger por livro/local ate uma marca d'agua, para que as
+-- proximas execucoes so somem as movimentacoes novas.
+
+set local search_path = alexandria, public;
+
+create table if not exists estoque_checkpoints (
+  livro_id        uuid not null,
+  local_id        uuid not null,
+  saldo           integer not null,     -- soma assinada do ledger com criado_em <= ate
+  ate             timestamptz not null,
+  atualizado_em   timestamptz not null default now(),
+  primary key (livro_id, local_id)
+);
+
+create table if not exists estoque_verificacoes (
+  id              uuid primary key default gen_random_uuid(),
+  iniciada_em     timestamptz not null default now(),
+  finalizada_em   timestamptz,
+  marca_dagua     timestamptz not null, -- checkpoints avancam somente ate aqui
+  reparar         boolean not null default false,
+  status          text not null default 'EXECUTANDO' check (status in ('EXECUTANDO','CONCLUIDA','FALHOU')),
+  faixas          integer not null,
+  divergencias    integer not null default 0,
+  reparadas       integer not null default 0,
+  erro            text
+);
+create index if not exists idx_estoque_verificacoes_iniciada on estoque_verificacoes(iniciada_em);
+
+create table if not exists estoque_divergencias (
+  verificacao_id      uuid not null references estoque_verificacoes(id) on delete cascade,
+  livro_id            uuid not null,
+  local_id            uuid not null,
+  quantidade_estoque  integer,          -- null = linha inexistente em estoques
+  quantidade_ledger   integer not null,
+  reservado_estoque   integer,
+  reservado_ledger    integer not null,
+  reparada            boolean not null default false,
+  primary key (verificacao_id, livro_id, local_id)
+);
+
+-- FIM
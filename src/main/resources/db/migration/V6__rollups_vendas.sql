@@ -0,0 +1,53 @@
+-- V6__rollups_vendas.sql
+-- Rollups de vendas finalizadas mantidos na mesma transacao de finalizar/estornar (o custo e
+-- proporcional as vendas novas, nao ao historico). O total por dia e uma view sobre o rollup
+-- por dia x local: poucos locais por dia e nenhuma linha unica disputada por todos os caixas.
+-- Sem checks de valor >= 0: o estorno faz upsert com delta negativo e o ON CONFLICT avalia os
+-- checks sobre a tupla proposta.
+
+set local search_path = alexandria, public;
+
+create table if not exists rollup_vendas_dia_local (
+  dia             date not null,          -- data_venda em UTC
+  local_id        uuid,
+  qtde_vendas     bigint not null default 0,
+  faturamento     numeric(14,2) not null default 0,
+  atualizado_em   timestamptz not null default now(),
+  constraint ux_rollup_vendas_dia_local unique nulls not distinct (dia, local_id)
+);
+
+create table if not exists rollup_vendas_dia_livro (
+  dia             date not null,
+  livro_id        uuid not null,
+  qtd_vendida     bigint not null default 0,
+  receita         numeric(14,2) not null default 0,
+  atualizado_em   timestamptz not null default now(),
+  primary key (dia, livro_id)
+);
+
+create or replace view rollup_vendas_dia as
+select dia,
+       sum(qtde_vendas)::bigint as qtde_vendas,
+       sum(faturamento) as faturamento
+from rollup_vendas_dia_local
+group by dia;
+
+------------------------------
+-- CARGA INICIAL
+------------------------------
+insert into rollup_vendas_dia_local (dia, local_id, qtde_vendas, faturamento)
+select (v.data_venda at time zone 'UTC')::date, v.local_id, count(*), sum(v.total)
+from vendas v
+where v.status = 'FINALIZADA'
+group by 1, 2
+on conflict (dia, local_id) do nothing;
+
+insert into rollup_vendas_dia_livro (dia, livro_id, qtd_vendida, receita)
+select (v.data_venda at time zone 'UTC')::date, iv.livro_id, sum(iv.quantidade), sum(iv.total)
+from itens_venda iv
+join vendas v on v.id = iv.venda_id
+where v.status = 'FINALIZADA'
+group by 1, 2
+on conflict (dia, livro_id) do nothing;
+
+-- FIM
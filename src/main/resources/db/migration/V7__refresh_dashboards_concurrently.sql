@@ -0,0 +1,34 @@
+-- V7__refresh_dashboards_concurrently.sql
+-- A V2 redefiniu refresh_dashboards_concurrently() sem CONCURRENTLY (bloqueando leitores).
+-- Views ja populadas voltam a usar CONCURRENTLY (todas tem indice unico ux_mv_*); uma view
+-- ainda nao populada precisa do refresh comum.
+
+set local search_path = alexandria, public;
+
+create or replace function refresh_dashboards_concurrently()
+returns void
+language plpgsql
+security definer
+set search_path = public
+as $$
+declare
+  r record;
+begin
+  for r in
+    select schemaname, matviewname, ispopulated
+    from pg_matviews
+    where schemaname not in ('pg_catalog','information_schema')
+      and lower(matviewname) in (
+        'mv_dash_vendas_dia','mv_top_livros','mv_estoque_baixo','mv_ticket_medio'
+      )
+  loop
+    if r.ispopulated then
+      execute format('refresh materialized view concurrently %I.%I', r.schemaname, r.matviewname);
+    else
+      execute format('refresh materialized view %I.%I', r.schemaname, r.matviewname);
+    end if;
+  end loop;
+end
+$$;
+
+-- FIM
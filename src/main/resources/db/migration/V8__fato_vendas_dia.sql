@@ -0,0 +1,59 @@
+-- V8__fato_vendas_dia.sql
+-- Fato de vendas finalizadas no grao dia x local x categoria x funcionario, mantido pela
+-- transacao de finalizar/estornar (mesmo caminho dos rollups da V6) e consultado por
+-- GET /api/dash/vendas com qualquer intervalo e agrupamento.
+--
+-- Uma venda pode ter livros de varias categorias, entao as medidas por venda sao guardadas
+-- de duas formas:
+--   qtde_vendas / faturamento  -> atribuidos somente a "categoria principal" da venda (maior
+--                                 receita de itens); somam corretamente em qualquer agrupamento
+--                                 que nao seja por categoria;
+--   qtde_vendas_categoria      -> 1 em cada categoria presente na venda (agrupamento por categoria).
+
+set local search_path = alexandria, public;
+
+create table if not exists fato_vendas_dia (
+  dia                    date not null,   -- data_venda em UTC
+  local_id               uuid,
+  categoria_id           uuid,
+  funcionario_id         uuid,
+  qtde_vendas            bigint not null default 0,
+  qtde_vendas_categoria  bigint not null default 0,
+  qtde_itens             bigint not null default 0,
+  receita                numeric(14,2) not null default 0,  -- soma de itens_venda.total
+  faturamento            numeric(14,2) not null default 0,  -- soma de vendas.total
+  atualizado_em          timestamptz not null default now(),
+  constraint ux_fato_vendas_dia unique nulls not distinct (dia, local_id, categoria_id, funcionario_id)
+);
+
+------------------------------
+-- CARGA INICIAL
+------------------------------
+insert into fato_vendas_dia (dia, local_id, categoria_id, funcionario_id, qtde_vendas,
+                             qtde_vendas_categoria, qtde_itens, receita, faturamento)
+select s.dia, s.local_id, s.categoria_id, s.funcionario_id,
+       count(*) filter (where s.principal),
+       count(*),
+       sum(s.qtde_itens),
+       sum(s.receita),
+       coalesce(sum(s.total_venda) filter (where s.principal), 0)
+from (
+  select v.id,
+         (v.data_venda at time zone 'UTC')::date as dia,
+         v.local_id,
+         l.categoria_id,
+         v.funcionario_id,
+         v.total as total_venda,
+         coalesce(sum(iv.quantidade), 0) as qtde_itens,
+         coalesce(sum(iv.total), 0) as receita,
+         row_number() over (partition by v.id order by coalesce(sum(iv.total), 0) desc, l.categoria_id) = 1 as principal
+  from vendas v
+  left join itens_venda iv on iv.venda_id = v.id
+  left join livros l on l.id = iv.livro_id
+  where v.status = 'FINALIZADA'
+  group by v.id, 2, 3, 4, 5, 6
+) s
+group by 1, 2, 3, 4
+on conflict (dia, local_id, categoria_id, funcionario_id) do nothing;
+
+-- FIM
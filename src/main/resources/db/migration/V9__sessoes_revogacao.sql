@@ -0,0 +1,17 @@
+-- V9__sessoes_revogacao.sql
+-- Tokens passam a ter jti (UUID) gravado em sessoes.jwt_id; o logout revoga pelo jti e registra
+-- quando. As instancias leem as revogacoes novas de forma incremental por revogado_em.
+
+set local search_path = alexandria, public;
+
+alter table sessoes add column if not exists revogado_em timestamptz;
+
+update sessoes set revogado_em = criado_em where revogado and revogado_em is null;
+
+-- logout: update ... where jwt_id = ?
+create index if not exists idx_sessoes_jwt_id on sessoes(jwt_id);
+
+-- polling das revogacoes: somente as linhas revogadas entram no indice
+create index if not exists idx_sessoes_revogadas on sessoes(revogado_em, expira_em) where revogado;
+
+-- FIM
@@ -0,0 +1,120 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import br.com.alexandria.alexandria_api.plano.PostgresDeTeste;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Logout com o lote do {@link AuditoriaLoginWriter} em andamento: a sessao nao esta na fila nem
+ * visivel no banco, e o logout precisa deixa-la revogada de qualquer forma.
+ *
+ * Para prender o lote, uma transacao aberta pelo teste insere (sem commit) uma linha com o mesmo
+ * (jwt_id, expira_em): o insert do writer espera por ela no indice unico. Desfeita essa
+ * transacao, writer e logout concorrem pela linha.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "PLAN_TEST_DB_URL", matches = ".+")
+class LogoutRevogacaoTest {
+
+	@DynamicPropertySource
+	static void postgres(DynamicPropertyRegistry registry) {
+		PostgresDeTeste.propriedades(registry);
+	}
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private DataSource dataSource;
+	@Autowired
+	private JwtService jwtService;
+	@Autowired
+	private AuthService authService;
+	@Autowired
+	private AuditoriaLoginWriter auditoria;
+
+	private String jwtId;
+
+	@AfterEach
+	void limpar() {
+		if (jwtId != null) {
+			jdbcTemplate.update("delete from sessoes where jwt_id = ?", jwtId);
+		}
+	}
+
+	@Test
+	void logoutComLoteDoWriterEmAndamentoDeixaASessaoRevogada() throws Exception {
+		UUID usuarioId = PostgresDeTeste.Amostra.carregar(jdbcTemplate).usuarioId();
+		JwtService.AccessToken token = jwtService.createToken(usuarioId.toString(), List.of());
+		jwtId = token.id();
+
+		try (Connection bloqueio = dataSource.getConnection()) {
+			bloqueio.setAutoCommit(false);
+			try (PreparedStatement ps = bloqueio.prepareStatement(
+					"insert into sessoes (usuario_id, jwt_id, expira_em) values (?, ?, ?)")) {
+				ps.setObject(1, usuarioId);
+				ps.setString(2, jwtId);
+				ps.setTimestamp(3, Timestamp.from(token.expiresAt()));
+				ps.executeUpdate();
+			}
+
+			auditoria.sessao(usuarioId, jwtId, token.expiresAt(), "127.0.0.1", "teste");
+			aguardar(() -> esperandoInsert() >= 1);
+			assertThat(auditoria.pendentes()).isZero();
+
+			Thread logout = new Thread(() -> authService.logout("Bearer " + token.value()), "teste-logout");
+			logout.start();
+			aguardar(() -> esperandoInsert() >= 2);
+
+			bloqueio.rollback();
+			logout.join(10_000);
+			assertThat(logout.isAlive()).isFalse();
+		}
+		aguardar(() -> esperandoInsert() == 0);
+
+		List<Map<String, Object>> linhas = jdbcTemplate.queryForList(
+				"select revogado, revogado_em from sessoes where jwt_id = ?", jwtId);
+		assertThat(linhas).hasSize(1);
+		assertThat(linhas.get(0).get("revogado")).isEqualTo(true);
+		assertThat(linhas.get(0).get("revogado_em")).isNotNull();
+
+		// outra instancia enxerga a revogacao pelo polling
+		RevogacaoRegistry outra = new RevogacaoRegistry(jdbcTemplate, 1024);
+		outra.sincronizar();
+		assertThat(outra.revogado(jwtId)).isTrue();
+	}
+
+	/** Inserts em sessoes parados num lock (writer e/ou logout esperando a transacao do teste). */
+	private int esperandoInsert() {
+		return jdbcTemplate.queryForObject("""
+				select count(*) from pg_stat_activity
+				where wait_event_type = 'Lock' and query like 'insert into sessoes%'
+				""", Integer.class);
+	}
+
+	private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 10_000;
+		while (!condicao.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).as("tempo esgotado").isLessThan(limite);
+			Thread.sleep(20);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package br.com.alexandria.alexandria_api.auth;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PermissaoModelTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private PermissaoModel model;
+
+	@AfterEach
+	void tearDown() {
+		model.encerrar();
+		jdbcTemplate.execute("drop all objects");
+	}
+
+	@Test
+	void primeiraCargaFalhaETentaDeNovoSemEsperarARecargaPeriodica() throws Exception {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:permissoes;DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new JdbcTemplate(h2);
+		model = new PermissaoModel(jdbcTemplate);
+		Authentication admin = new UsernamePasswordAuthenticationToken(
+				"admin", null, List.of(new SimpleGrantedAuthority("ADMIN")));
+
+		// tabelas ainda inexistentes: a carga do inicio falha
+		model.onReady();
+		assertThat(model.carregado()).isFalse();
+		assertThat(model.permite(admin, "vendas.finalizar")).isFalse();
+
+		jdbcTemplate.execute("create table perfis (id int primary key, nome varchar(50))");
+		jdbcTemplate.execute("create table permissoes (id int primary key, codigo varchar(50))");
+		jdbcTemplate.execute("create table perfis_permissoes (perfil_id int, permissao_id int)");
+		jdbcTemplate.update("insert into perfis values (1, 'ADMIN')");
+		jdbcTemplate.update("insert into permissoes values (1, 'vendas.finalizar')");
+		jdbcTemplate.update("insert into perfis_permissoes values (1, 1)");
+
+		long limite = System.currentTimeMillis() + 10_000;
+		while (!model.carregado() && System.currentTimeMillis() < limite) {
+			Thread.sleep(50);
+		}
+		assertThat(model.carregado()).isTrue();
+		assertThat(model.permite(admin, "vendas.finalizar")).isTrue();
+	}
+}
@@ -0,0 +1,461 @@
+package br.com.alexandria.alexandria_api.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga em modelo aberto contra uma instancia rodando da API (normalmente sobre o
+ * banco do {@link GeradorDataset}). Chegadas seguem um processo de Poisson a
+ * {@code carga.taxa} fluxos por segundo, independente de quanto a API demora: cada chegada roda
+ * numa virtual thread, entao lentidao vira fila e aparece na latencia (medida a partir do
+ * instante agendado), sem o "coordinated omission" de um modelo fechado.
+ *
+ * Cenarios (peso em {@code carga.mix}):
+ * <ul>
+ *   <li>pdv: abre venda, adiciona 1 a 4 itens (com reserva), registra pagamento e finaliza;</li>
+ *   <li>estoque: disponibilidade de 20 livros e extrato do ledger de um livro;</li>
+ *   <li>crud: paginas do CRUD generico de livros (ordenada) e clientes (busca);</li>
+ *   <li>dash: vendas-dia, top-livros, vendas por periodo e estoque-baixo.</li>
+ * </ul>
+ *
+ * Ao final imprime, por operacao e por cenario, contagem, erros, vazao e percentis, e grava o
+ * mesmo relatorio em JSON ({@code carga.resultado}).
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=br.com.alexandria.alexandria_api.carga.GeradorCarga \
+ *   -Dcarga.url=http://localhost:8080 -Dcarga.db.url=jdbc:postgresql://localhost:5432/alexandria \
+ *   -Dcarga.taxa=50 -Dcarga.duracao=PT2M
+ * </pre>
+ *
+ * Propriedades (padrao): carga.url (http://localhost:8080), carga.taxa (20 fluxos/s),
+ * carga.duracao (PT1M), carga.aquecimento (PT10S, fora do relatorio),
+ * carga.mix (pdv=50,estoque=20,crud=20,dash=10), carga.app.usuario / carga.app.senha
+ * (carga / carga123), carga.max-em-voo (5000), carga.resultado (target/carga-result.json) e
+ * carga.db.* para amostrar ids (lojas, livros com estoque, clientes, funcionarios, formas).
+ */
+public final class GeradorCarga {
+
+  private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+  private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+  private final String url = System.getProperty("carga.url", "http://localhost:8080");
+  private final double taxa = Double.parseDouble(System.getProperty("carga.taxa", "20"));
+  private final Duration duracao = Duration.parse(System.getProperty("carga.duracao", "PT1M"));
+  private final Duration aquecimento = Duration.parse(System.getProperty("carga.aquecimento", "PT10S"));
+  private final int maxEmVoo = Integer.getInteger("carga.max-em-voo", 5000);
+  private final Map<String, Integer> mix = mix(System.getProperty("carga.mix", "pdv=50,estoque=20,crud=20,dash=10"));
+
+  private final HttpClient http = HttpClient.newBuilder()
+      .connectTimeout(Duration.ofSeconds(5))
+      .executor(Executors.newVirtualThreadPerTaskExecutor())
+      .build();
+  private final Map<String, Estatistica> estatisticas = new ConcurrentHashMap<>();
+  private final AtomicInteger emVoo = new AtomicInteger();
+  private final LongAdder descartados = new LongAdder();
+
+  private Amostras amostras;
+  private String token;
+
+  public static void main(String[] args) throws Exception {
+    new GeradorCarga().executar();
+  }
+
+  private void executar() throws Exception {
+    amostras = Amostras.carregar();
+    token = login();
+    System.out.printf("Carga: %.1f fluxos/s por %s (+%s de aquecimento), mix %s%n", taxa, duracao, aquecimento, mix);
+
+    long inicioMedicao;
+    long fimMedicao;
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      long agora = System.nanoTime();
+      inicioMedicao = agora + aquecimento.toNanos();
+      fimMedicao = inicioMedicao + duracao.toNanos();
+      long proxima = agora;
+      while (proxima < fimMedicao) {
+        long espera = proxima - System.nanoTime();
+        if (espera > 0) {
+          LockSupport.parkNanos(espera);
+        }
+        if (emVoo.get() >= maxEmVoo) {
+          descartados.increment();
+        } else {
+          long agendado = proxima;
+          boolean medir = agendado >= inicioMedicao;
+          String cenario = sortear();
+          emVoo.incrementAndGet();
+          executor.submit(() -> fluxo(cenario, agendado, medir));
+        }
+        // intervalo exponencial = chegadas de Poisson
+        proxima += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) / taxa * 1e9);
+      }
+      executor.shutdown();
+      if (!executor.awaitTermination(TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+        System.out.println("Fluxos ainda em andamento ao fim da espera: " + emVoo.get());
+      }
+    }
+    relatorio(Duration.ofNanos(fimMedicao - inicioMedicao));
+  }
+
+  // ====================== Cenarios ============================================
+
+  private void fluxo(String cenario, long agendado, boolean medir) {
+    boolean ok = false;
+    try {
+      switch (cenario) {
+        case "pdv" -> pdv(medir);
+        case "estoque" -> estoque(medir);
+        case "crud" -> crud(medir);
+        case "dash" -> dash(medir);
+        default -> throw new IllegalArgumentException("Cenario desconhecido: " + cenario);
+      }
+      ok = true;
+    } catch (FalhaRequisicao ex) {
+      // ja contada na operacao
+    } catch (Exception ex) {
+      if (medir) {
+        estatistica("erro." + ex.getClass().getSimpleName()).registrar(0, false);
+      }
+    } finally {
+      emVoo.decrementAndGet();
+      if (medir) {
+        estatistica("fluxo." + cenario).registrar(System.nanoTime() - agendado, ok);
+      }
+    }
+  }
+
+  private void pdv(boolean medir) throws Exception {
+    ThreadLocalRandom r = ThreadLocalRandom.current();
+    int loja = r.nextInt(amostras.lojas.size());
+    UUID localId = amostras.lojas.get(loja);
+    JsonNode venda = chamar(medir, "pdv.abrir", "POST", "/api/vendas", Map.of(
+        "clienteId", escolher(amostras.clientes),
+        "funcionarioId", escolher(amostras.funcionarios),
+        "localId", localId,
+        "origem", "BALCAO"
+    ));
+    String vendaId = venda.path("id").asText();
+
+    BigDecimal total = BigDecimal.ZERO;
+    int itens = 1 + r.nextInt(4);
+    List<UUID> livros = amostras.livrosPorLoja.get(loja);
+    for (int i = 0; i < itens; i++) {
+      BigDecimal preco = BigDecimal.valueOf(1990 + r.nextInt(180) * 100L, 2);
+      chamar(medir, "pdv.item", "POST", "/api/vendas/" + vendaId + "/itens", Map.of(
+          "livroId", escolher(livros),
+          "quantidade", 1,
+          "precoUnit", preco,
+          "desconto", BigDecimal.ZERO
+      ));
+      total = total.add(preco);
+    }
+    chamar(medir, "pdv.pagamento", "POST", "/api/vendas/" + vendaId + "/pagamentos", Map.of(
+        "formaId", escolher(amostras.formas),
+        "valor", total
+    ));
+    chamar(medir, "pdv.finalizar", "POST", "/api/vendas/" + vendaId + "/finalizar", null);
+  }
+
+  private void estoque(boolean medir) throws Exception {
+    ThreadLocalRandom r = ThreadLocalRandom.current();
+    int loja = r.nextInt(amostras.lojas.size());
+    List<UUID> livros = amostras.livrosPorLoja.get(loja);
+    List<UUID> ids = new ArrayList<>(20);
+    for (int i = 0; i < 20; i++) {
+      ids.add(escolher(livros));
+    }
+    chamar(medir, "estoque.disponibilidade", "POST", "/api/estoque/disponibilidade", Map.of("livroIds", ids));
+    chamar(medir, "estoque.extrato", "GET", "/api/estoque/movimentacoes?livroId=" + escolher(livros)
+        + "&localId=" + amostras.lojas.get(loja) + "&limite=50", null);
+  }
+
+  private void crud(boolean medir) throws Exception {
+    ThreadLocalRandom r = ThreadLocalRandom.current();
+    chamar(medir, "crud.livros", "GET", "/api/livros?page=" + r.nextInt(50) + "&size=20&sort=titulo%20asc", null);
+    chamar(medir, "crud.clientes.busca", "GET", "/api/clientes?size=20&q="
+        + List.of("Silva", "Ana", "Costa", "Lima", "Rocha").get(r.nextInt(5)), null);
+  }
+
+  private void dash(boolean medir) throws Exception {
+    LocalDate hoje = LocalDate.now(ZoneOffset.UTC);
+    chamar(medir, "dash.vendas-dia", "GET", "/api/dash/vendas-dia", null);
+    chamar(medir, "dash.top-livros", "GET", "/api/dash/top-livros", null);
+    chamar(medir, "dash.vendas", "GET", "/api/dash/vendas?from=" + hoje.minusDays(90) + "&to=" + hoje
+        + "&groupBy=" + List.of("dia", "local", "categoria").get(ThreadLocalRandom.current().nextInt(3)), null);
+    chamar(medir, "dash.estoque-baixo", "GET", "/api/dash/estoque-baixo", null);
+  }
+
+  // ====================== HTTP ================================================
+
+  private JsonNode chamar(boolean medir, String operacao, String metodo, String caminho, Object corpo) throws Exception {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url + caminho))
+        .timeout(TIMEOUT)
+        .header("Authorization", "Bearer " + token)
+        .header("Accept", "application/json");
+    if (corpo != null) {
+      builder.header("Content-Type", "application/json")
+          .method(metodo, HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(corpo)));
+    } else {
+      builder.method(metodo, HttpRequest.BodyPublishers.noBody());
+    }
+    long inicio = System.nanoTime();
+    HttpResponse<byte[]> resposta;
+    try {
+      resposta = http.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+    } catch (IOException ex) {
+      if (medir) {
+        estatistica(operacao).registrar(System.nanoTime() - inicio, false);
+        estatistica(operacao).status("io");
+      }
+      throw new FalhaRequisicao();
+    }
+    boolean ok = resposta.statusCode() < 400;
+    if (medir) {
+      Estatistica estatistica = estatistica(operacao);
+      estatistica.registrar(System.nanoTime() - inicio, ok);
+      if (!ok) {
+        estatistica.status(Integer.toString(resposta.statusCode()));
+      }
+    }
+    if (!ok) {
+      throw new FalhaRequisicao();
+    }
+    return resposta.body().length == 0 ? JSON.createObjectNode() : JSON.readTree(resposta.body());
+  }
+
+  private String login() throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/api/auth/login"))
+        .timeout(TIMEOUT)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(Map.of(
+            "username", System.getProperty("carga.app.usuario", "carga"),
+            "password", System.getProperty("carga.app.senha", "carga123")
+        ))))
+        .build();
+    HttpResponse<byte[]> resposta = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    if (resposta.statusCode() != 200) {
+      throw new IllegalStateException("Login do gerador de carga falhou: HTTP " + resposta.statusCode());
+    }
+    return JSON.readTree(resposta.body()).path("accessToken").asText();
+  }
+
+  /** Falha HTTP ja registrada na operacao; interrompe o fluxo. */
+  private static final class FalhaRequisicao extends Exception {
+    FalhaRequisicao() {
+      super(null, null, false, false);
+    }
+  }
+
+  // ====================== Relatorio ===========================================
+
+  private Estatistica estatistica(String nome) {
+    return estatisticas.computeIfAbsent(nome, k -> new Estatistica());
+  }
+
+  private void relatorio(Duration janela) throws IOException {
+    double segundos = janela.toNanos() / 1e9;
+    Map<String, Object> operacoes = new LinkedHashMap<>();
+    System.out.printf("%n%-26s %8s %7s %8s %9s %9s %9s %9s %9s%n",
+        "operacao", "n", "erros", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+    for (Map.Entry<String, Estatistica> e : new TreeMap<>(estatisticas).entrySet()) {
+      Estatistica est = e.getValue();
+      long[] amostras = est.ordenadas();
+      Map<String, Object> linha = new LinkedHashMap<>();
+      linha.put("n", amostras.length);
+      linha.put("erros", est.erros.sum());
+      linha.put("status_erro", new TreeMap<>(est.statusErro));
+      linha.put("req_s", amostras.length / segundos);
+      linha.put("p50_ms", percentil(amostras, 0.50));
+      linha.put("p90_ms", percentil(amostras, 0.90));
+      linha.put("p99_ms", percentil(amostras, 0.99));
+      linha.put("p999_ms", percentil(amostras, 0.999));
+      linha.put("max_ms", amostras.length == 0 ? 0 : amostras[amostras.length - 1] / 1e6);
+      operacoes.put(e.getKey(), linha);
+      System.out.printf("%-26s %8d %7d %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+          e.getKey(), amostras.length, est.erros.sum(), amostras.length / segundos,
+          linha.get("p50_ms"), linha.get("p90_ms"), linha.get("p99_ms"), linha.get("p999_ms"), linha.get("max_ms"));
+    }
+    if (descartados.sum() > 0) {
+      System.out.printf("Chegadas descartadas (carga.max-em-voo=%d atingido): %d%n", maxEmVoo, descartados.sum());
+    }
+
+    Map<String, Object> resultado = new LinkedHashMap<>();
+    resultado.put("instante", Instant.now().toString());
+    resultado.put("url", url);
+    resultado.put("taxa_fluxos_s", taxa);
+    resultado.put("duracao_s", segundos);
+    resultado.put("mix", mix);
+    resultado.put("descartados", descartados.sum());
+    resultado.put("operacoes", operacoes);
+    Path arquivo = Path.of(System.getProperty("carga.resultado", "target/carga-result.json"));
+    if (arquivo.getParent() != null) {
+      Files.createDirectories(arquivo.getParent());
+    }
+    JSON.writeValue(arquivo.toFile(), resultado);
+    System.out.println("Resultado em " + arquivo.toAbsolutePath());
+  }
+
+  private static double percentil(long[] ordenadas, double p) {
+    if (ordenadas.length == 0) {
+      return 0;
+    }
+    int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+    return ordenadas[Math.max(0, Math.min(indice, ordenadas.length - 1))] / 1e6;
+  }
+
+  /** Latencias (ns) de uma operacao; poucas dezenas de milhares por execucao, guardadas cruas. */
+  private static final class Estatistica {
+
+    private final LongAdder erros = new LongAdder();
+    private final Map<String, LongAdder> statusErro = new ConcurrentHashMap<>();
+    private long[] amostras = new long[1024];
+    private int tamanho;
+
+    synchronized void registrar(long nanos, boolean ok) {
+      if (tamanho == amostras.length) {
+        amostras = Arrays.copyOf(amostras, tamanho * 2);
+      }
+      amostras[tamanho++] = nanos;
+      if (!ok) {
+        erros.increment();
+      }
+    }
+
+    void status(String status) {
+      statusErro.computeIfAbsent(status, k -> new LongAdder()).increment();
+    }
+
+    synchronized long[] ordenadas() {
+      long[] copia = Arrays.copyOf(amostras, tamanho);
+      Arrays.sort(copia);
+      return copia;
+    }
+  }
+
+  // ====================== Amostras ============================================
+
+  private String sortear() {
+    int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+    int alvo = ThreadLocalRandom.current().nextInt(total);
+    for (Map.Entry<String, Integer> e : mix.entrySet()) {
+      alvo -= e.getValue();
+      if (alvo < 0) {
+        return e.getKey();
+      }
+    }
+    throw new IllegalStateException("carga.mix vazio");
+  }
+
+  private static Map<String, Integer> mix(String definicao) {
+    Set<String> cenarios = Set.of("pdv", "estoque", "crud", "dash");
+    Map<String, Integer> mix = new LinkedHashMap<>();
+    for (String parte : definicao.split(",")) {
+      String[] kv = parte.trim().split("=");
+      if (!cenarios.contains(kv[0])) {
+        throw new IllegalArgumentException("Cenario desconhecido em carga.mix: " + kv[0]);
+      }
+      int peso = Integer.parseInt(kv[1]);
+      if (peso > 0) {
+        mix.put(kv[0], peso);
+      }
+    }
+    if (mix.isEmpty()) {
+      throw new IllegalArgumentException("carga.mix sem cenarios: " + definicao);
+    }
+    return mix;
+  }
+
+  private static <T> T escolher(List<T> lista) {
+    return lista.get(ThreadLocalRandom.current().nextInt(lista.size()));
+  }
+
+  /** Ids reais lidos do banco uma vez, antes da carga. */
+  private record Amostras(List<UUID> lojas,
+                          List<List<UUID>> livrosPorLoja,
+                          List<UUID> clientes,
+                          List<UUID> funcionarios,
+                          List<UUID> formas) {
+
+    static Amostras carregar() throws SQLException {
+      try (Connection conexao = DriverManager.getConnection(
+          System.getProperty("carga.db.url", "jdbc:postgresql://localhost:5432/alexandria"),
+          System.getProperty("carga.db.usuario", "postgres"),
+          System.getProperty("carga.db.senha", ""))) {
+        try (Statement st = conexao.createStatement()) {
+          st.execute("set search_path = alexandria, public");
+        }
+        List<UUID> lojas = ids(conexao, "select id from locais_estoque where tipo = 'LOJA' order by nome");
+        List<List<UUID>> livros = new ArrayList<>();
+        for (UUID loja : lojas) {
+          // livros com folga para reservar: a carga nao esgota o estoque logo no inicio
+          livros.add(ids(conexao, "select livro_id from estoques where local_id = '" + loja
+              + "' and quantidade - reservado >= 20 order by random() limit 5000"));
+        }
+        Amostras amostras = new Amostras(
+            lojas,
+            livros,
+            ids(conexao, "select id from clientes order by random() limit 5000"),
+            ids(conexao, "select id from funcionarios where ativo limit 1000"),
+            ids(conexao, "select id from formas_pagamento where ativo")
+        );
+        if (lojas.isEmpty() || livros.stream().anyMatch(List::isEmpty) || amostras.clientes.isEmpty()
+            || amostras.funcionarios.isEmpty() || amostras.formas.isEmpty()) {
+          throw new IllegalStateException("Banco sem dados para a carga (rode o GeradorDataset): " + amostras.resumo());
+        }
+        System.out.println("Amostras: " + amostras.resumo());
+        return amostras;
+      }
+    }
+
+    private static List<UUID> ids(Connection conexao, String sql) throws SQLException {
+      List<UUID> ids = new ArrayList<>();
+      try (Statement st = conexao.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+        while (rs.next()) {
+          ids.add(rs.getObject(1, UUID.class));
+        }
+      }
+      return ids;
+    }
+
+    String resumo() {
+      return lojas.size() + " lojas, " + livrosPorLoja.stream().mapToInt(List::size).sum() + " livros, "
+          + clientes.size() + " clientes, " + funcionarios.size() + " funcionarios, " + formas.size() + " formas";
+    }
+  }
+}
@@ -0,0 +1,495 @@
+package br.com.alexandria.alexandria_api.carga;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Gera um dataset sintetico de livraria direto num PostgreSQL local ja migrado pelo Flyway
+ * (instancia do desenvolvedor), tudo via COPY:
+ * categorias, editoras, locais_estoque (lojas + deposito), funcionarios, livros, clientes,
+ * estoques (livro x local), vendas com itens_venda e o ledger de movimentacoes_estoque
+ * coerente com estoques (ENTRADA inicial + SAIDA por item vendido). No fim recalcula rollups,
+ * fato_vendas_dia e as materialized views e roda ANALYZE.
+ *
+ * Tudo e derivado de {@code carga.semente}: os mesmos parametros geram os mesmos ids. Os livros
+ * mais vendidos seguem uma cauda longa (poucos titulos concentram as vendas) e as vendas ficam
+ * em ordem de data, como num banco real (importa para o BRIN e as particoes do ledger).
+ *
+ * Cria tambem o usuario {@code carga} (perfil CARGA com todas as permissoes) usado pelo
+ * {@link GeradorCarga}.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=br.com.alexandria.alexandria_api.carga.GeradorDataset \
+ *   -Dcarga.db.url=jdbc:postgresql://localhost:5432/alexandria -Dcarga.db.usuario=postgres \
+ *   -Dcarga.vendas=1000000
+ * </pre>
+ *
+ * Propriedades (padrao): carga.livros (200000), carga.clientes (200000), carga.lojas (3),
+ * carga.funcionarios (60), carga.vendas (1000000), carga.meses (12), carga.semente (42),
+ * carga.limpar (false: recusa rodar se ja houver livros; true: TRUNCATE antes).
+ */
+public final class GeradorDataset {
+
+  private static final int LIVRO = 1;
+  private static final int CLIENTE = 2;
+  private static final int LOCAL = 3;
+  private static final int FUNCIONARIO = 4;
+  private static final int EDITORA = 5;
+  private static final int CATEGORIA = 6;
+  private static final int VENDA = 7;
+  private static final int ITEM = 8;
+  private static final int MOVIMENTACAO = 9;
+  private static final int ESTOQUE = 10;
+
+  private static final int CATEGORIAS = 40;
+  private static final int EDITORAS = 400;
+  private static final int MAX_ITENS = 6;
+
+  private static final String[] PALAVRAS = {
+      "Sombra", "Mar", "Cidade", "Memorias", "Jardim", "Noite", "Vento", "Tempo", "Caminho",
+      "Silencio", "Casa", "Rio", "Fogo", "Estrela", "Ilha", "Segredo", "Livro", "Viagem",
+      "Sertao", "Montanha", "Cartas", "Historia", "Ultimo", "Primeiro", "Invisivel", "Perdido"
+  };
+  private static final String[] NOMES = {
+      "Ana", "Bruno", "Carla", "Diego", "Elisa", "Fabio", "Gabriela", "Heitor", "Isabel",
+      "Joao", "Karina", "Lucas", "Marina", "Nuno", "Olivia", "Paulo", "Renata", "Sergio",
+      "Tatiana", "Vitor"
+  };
+  private static final String[] SOBRENOMES = {
+      "Silva", "Souza", "Oliveira", "Santos", "Pereira", "Lima", "Carvalho", "Ferreira",
+      "Almeida", "Costa", "Gomes", "Ribeiro", "Martins", "Rocha", "Barbosa", "Araujo"
+  };
+
+  private final long semente = Long.getLong("carga.semente", 42);
+  private final int livros = Integer.getInteger("carga.livros", 200_000);
+  private final int clientes = Integer.getInteger("carga.clientes", 200_000);
+  private final int lojas = Math.max(1, Integer.getInteger("carga.lojas", 3));
+  private final int funcionarios = Math.max(1, Integer.getInteger("carga.funcionarios", 60));
+  private final long vendas = Long.getLong("carga.vendas", 1_000_000);
+  private final int meses = Math.max(1, Integer.getInteger("carga.meses", 12));
+  private final boolean limpar = Boolean.getBoolean("carga.limpar");
+
+  private final Instant fim = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+  private final Instant inicio = fim.minus(Duration.ofDays(30L * meses));
+
+  public static void main(String[] args) throws Exception {
+    new GeradorDataset().executar();
+  }
+
+  private void executar() throws Exception {
+    try (Connection conexao = conectar()) {
+      prepararBanco(conexao);
+      long t0 = System.nanoTime();
+
+      etapa("categorias", () -> copiar(conexao, "categorias (id, nome, slug)", CATEGORIAS, (i, r, l) ->
+          l.campos(uuid(CATEGORIA, i), "Categoria " + i, "categoria-" + i)));
+      etapa("editoras", () -> copiar(conexao, "editoras (id, nome, cnpj)", EDITORAS, (i, r, l) ->
+          l.campos(uuid(EDITORA, i), "Editora " + palavra(i) + " " + i, String.format("%014d", i))));
+      etapa("locais_estoque", () -> copiar(conexao, "locais_estoque (id, nome, tipo)", lojas + 1L, (i, r, l) ->
+          l.campos(uuid(LOCAL, i), i < lojas ? "Loja " + (i + 1) : "Deposito Central", i < lojas ? "LOJA" : "DEPOSITO")));
+      etapa("funcionarios", () -> copiar(conexao, "funcionarios (id, nome, cpf, email)", funcionarios, (i, r, l) ->
+          l.campos(uuid(FUNCIONARIO, i), nome(r), String.format("%011d", i), "funcionario" + i + "@alexandria.local")));
+      etapa("livros", () -> copiar(conexao,
+          "livros (id, isbn_13, titulo, subtitulo, edicao, ano_publicacao, paginas, idioma, editora_id, categoria_id, created_at)",
+          livros, (i, r, l) -> l.campos(
+              uuid(LIVRO, i),
+              "978" + String.format("%010d", i),
+              PALAVRAS[r.nextInt(PALAVRAS.length)] + " " + PALAVRAS[r.nextInt(PALAVRAS.length)] + " " + i,
+              r.nextInt(3) == 0 ? "Volume " + (1 + r.nextInt(5)) : null,
+              1 + r.nextInt(4),
+              1950 + r.nextInt(76),
+              80 + r.nextInt(700),
+              r.nextInt(5) == 0 ? "en" : "pt-BR",
+              uuid(EDITORA, r.nextInt(EDITORAS)),
+              uuid(CATEGORIA, r.nextInt(CATEGORIAS)),
+              inicio.minus(Duration.ofDays(r.nextInt(3650)))
+          )));
+      etapa("clientes", () -> copiar(conexao,
+          "clientes (id, tipo_pessoa, nome, cpf_cnpj, email, telefone, data_nascimento, created_at)",
+          clientes, (i, r, l) -> {
+            String nome = nome(r);
+            l.campos(
+                uuid(CLIENTE, i),
+                r.nextInt(20) == 0 ? "PJ" : "PF",
+                nome,
+                String.format("%011d", 10_000_000_000L + i),
+                "cliente" + i + "@exemplo.com.br",
+                "119" + String.format("%08d", r.nextInt(100_000_000)),
+                LocalDate.of(1950 + r.nextInt(55), 1 + r.nextInt(12), 1 + r.nextInt(28)),
+                inicio.plusSeconds(r.nextLong(Duration.between(inicio, fim).getSeconds()))
+            );
+          }));
+      // todo livro em todo local; o estoque final fica entre 0 e 60 (parte abaixo do minimo)
+      etapa("estoques", () -> copiar(conexao, "estoques (id, livro_id, local_id, quantidade, minimo)",
+          (long) livros * (lojas + 1), (i, r, l) -> l.campos(
+              uuid(ESTOQUE, i), uuid(LIVRO, i / (lojas + 1)), uuid(LOCAL, i % (lojas + 1)), r.nextInt(61), 5)));
+
+      etapa("formas_pagamento", () -> atualizar(conexao, """
+          insert into formas_pagamento (codigo, descricao)
+          values ('DINHEIRO', 'Dinheiro'), ('PIX', 'Pix'), ('CARTAO', 'Cartao')
+          on conflict (codigo) do nothing
+          """));
+
+      criarParticoesLedger(conexao);
+      etapa("vendas", () -> copiar(conexao,
+          "vendas (id, codigo, data_venda, cliente_id, funcionario_id, local_id, status, origem, subtotal, desconto_total, total, created_at, updated_at)",
+          vendas, (i, r, l) -> {
+            Venda v = venda(i);
+            l.campos(v.id, "V" + i, v.data, v.cliente, v.funcionario, uuid(LOCAL, v.loja), v.status,
+                "BALCAO", centavos(v.subtotal()), centavos(v.desconto()), centavos(v.subtotal() - v.desconto()),
+                v.data, v.data);
+          }));
+      etapa("itens_venda", () -> copiar(conexao,
+          "itens_venda (id, venda_id, livro_id, quantidade, preco_unitario, desconto_valor, total, created_at, updated_at)",
+          vendas, (i, r, l) -> {
+            Venda v = venda(i);
+            for (int j = 0; j < v.livros.length; j++) {
+              l.campos(uuid(ITEM, i * MAX_ITENS + j), v.id, uuid(LIVRO, v.livros[j]), v.quantidades[j],
+                  centavos(v.precos[j]), centavos(v.descontos[j]),
+                  centavos(v.precos[j] * v.quantidades[j] - v.descontos[j]), v.data, v.data);
+            }
+          }));
+      etapa("movimentacoes_estoque (SAIDA)", () -> copiar(conexao,
+          "movimentacoes_estoque (id, livro_id, local_id, tipo, quantidade, motivo, origem_venda_item_id, criado_em)",
+          vendas, (i, r, l) -> {
+            Venda v = venda(i);
+            if (!v.status.equals("FINALIZADA")) {
+              return;
+            }
+            for (int j = 0; j < v.livros.length; j++) {
+              l.campos(uuid(MOVIMENTACAO, i * MAX_ITENS + j), uuid(LIVRO, v.livros[j]), uuid(LOCAL, v.loja),
+                  "SAIDA", v.quantidades[j], "venda", uuid(ITEM, i * MAX_ITENS + j), v.data);
+            }
+          }));
+      etapa("movimentacoes_estoque (ENTRADA inicial)", () -> atualizar(conexao, """
+          insert into movimentacoes_estoque (livro_id, local_id, tipo, quantidade, motivo, criado_em)
+          select e.livro_id, e.local_id, 'ENTRADA', e.quantidade + coalesce(s.saidas, 0), 'carga inicial', cast(? as timestamptz)
+          from estoques e
+          left join (
+            select livro_id, local_id, sum(quantidade) as saidas
+            from movimentacoes_estoque
+            where tipo = 'SAIDA'
+            group by livro_id, local_id
+          ) s on s.livro_id = e.livro_id and s.local_id = e.local_id
+          where e.quantidade + coalesce(s.saidas, 0) > 0
+          """, Timestamp.from(inicio.minus(Duration.ofDays(1)))));
+
+      etapa("rollups e fato_vendas_dia", () -> recalcularAgregados(conexao));
+      etapa("materialized views", () -> atualizar(conexao, "select refresh_dashboards_concurrently()"));
+      etapa("usuario carga", () -> criarUsuarioCarga(conexao));
+      etapa("analyze", () -> atualizar(conexao, "analyze"));
+
+      System.out.printf("Dataset pronto em %d s%n", Duration.ofNanos(System.nanoTime() - t0).toSeconds());
+    }
+  }
+
+  // ====================== Vendas ==============================================
+
+  /** Venda i, sempre igual para a mesma semente (vendas, itens e ledger sao gerados em passadas separadas). */
+  private Venda venda(long i) {
+    SplittableRandom r = new SplittableRandom(misturar(semente * 31 + VENDA) ^ i);
+    long janela = Duration.between(inicio, fim).getSeconds();
+    // vendas em ordem de data, com ruido de alguns minutos
+    long segundo = Math.min(janela - 1, Math.max(0, janela * i / Math.max(vendas, 1) + r.nextLong(-300, 300)));
+    int n = 1 + (int) Math.floor(Math.pow(r.nextDouble(), 2) * MAX_ITENS);
+    int[] livrosVenda = new int[n];
+    int[] quantidades = new int[n];
+    long[] precos = new long[n];
+    long[] descontos = new long[n];
+    boolean comDesconto = r.nextInt(10) == 0;
+    for (int j = 0; j < n; j++) {
+      // cauda longa: indices baixos concentram as vendas
+      livrosVenda[j] = (int) Math.floor(Math.pow(r.nextDouble(), 3) * livros);
+      quantidades[j] = r.nextInt(10) < 8 ? 1 : 2 + r.nextInt(3);
+      precos[j] = precoCentavos(livrosVenda[j]);
+      descontos[j] = comDesconto ? precos[j] * quantidades[j] / 10 : 0;
+    }
+    int status = r.nextInt(100);
+    return new Venda(
+        uuid(VENDA, i),
+        r.nextInt(lojas),
+        r.nextInt(10) < 7 ? uuid(CLIENTE, r.nextInt(clientes)) : null,
+        uuid(FUNCIONARIO, r.nextInt(funcionarios)),
+        inicio.plusSeconds(segundo),
+        status < 97 ? "FINALIZADA" : "CANCELADA",
+        livrosVenda, quantidades, precos, descontos
+    );
+  }
+
+  private record Venda(UUID id, int loja, UUID cliente, UUID funcionario, Instant data, String status,
+                       int[] livros, int[] quantidades, long[] precos, long[] descontos) {
+
+    long subtotal() {
+      long total = 0;
+      for (int j = 0; j < livros.length; j++) {
+        total += precos[j] * quantidades[j];
+      }
+      return total;
+    }
+
+    long desconto() {
+      long total = 0;
+      for (long d : descontos) {
+        total += d;
+      }
+      return total;
+    }
+  }
+
+  /** Preco fixo por livro, entre 19,90 e 199,90. */
+  static long precoCentavos(int livro) {
+    return 1990 + Math.floorMod(misturar(livro), 180) * 100L;
+  }
+
+  // ====================== Banco ===============================================
+
+  private static Connection conectar() throws SQLException {
+    Connection conexao = DriverManager.getConnection(
+        System.getProperty("carga.db.url", "jdbc:postgresql://localhost:5432/alexandria"),
+        System.getProperty("carga.db.usuario", "postgres"),
+        System.getProperty("carga.db.senha", "")
+    );
+    try (Statement st = conexao.createStatement()) {
+      st.execute("set search_path = alexandria, public");
+      st.execute("set synchronous_commit = off");
+    }
+    return conexao;
+  }
+
+  private void prepararBanco(Connection conexao) throws SQLException {
+    long existentes;
+    try (Statement st = conexao.createStatement(); ResultSet rs = st.executeQuery("select count(*) from livros")) {
+      rs.next();
+      existentes = rs.getLong(1);
+    }
+    if (existentes == 0) {
+      return;
+    }
+    if (!limpar) {
+      throw new IllegalStateException("O banco ja tem " + existentes
+          + " livros; use um banco recem-migrado ou -Dcarga.limpar=true (TRUNCATE dos dados de negocio)");
+    }
+    atualizar(conexao, """
+        truncate movimentacoes_estoque, itens_venda, pagamentos_venda, vendas, reservas_estoque,
+                 estoques, livros, clientes, funcionarios, locais_estoque, editoras, categorias,
+                 rollup_vendas_dia_local, rollup_vendas_dia_livro, fato_vendas_dia
+        cascade
+        """);
+  }
+
+  private void criarParticoesLedger(Connection conexao) throws SQLException {
+    atualizar(conexao, """
+        select criar_particao_mensal('movimentacoes_estoque', m::date)
+        from generate_series(
+          date_trunc('month', cast(? as timestamptz) at time zone 'UTC'),
+          date_trunc('month', now() at time zone 'UTC') + interval '3 months',
+          interval '1 month'
+        ) m
+        """, Timestamp.from(inicio.minus(Duration.ofDays(1))));
+  }
+
+  private static void recalcularAgregados(Connection conexao) throws SQLException {
+    atualizar(conexao, "truncate rollup_vendas_dia_local, rollup_vendas_dia_livro, fato_vendas_dia");
+    // mesma carga inicial da V6 e da V8
+    atualizar(conexao, """
+        insert into rollup_vendas_dia_local (dia, local_id, qtde_vendas, faturamento)
+        select (v.data_venda at time zone 'UTC')::date, v.local_id, count(*), sum(v.total)
+        from vendas v
+        where v.status = 'FINALIZADA'
+        group by 1, 2
+        """);
+    atualizar(conexao, """
+        insert into rollup_vendas_dia_livro (dia, livro_id, qtd_vendida, receita)
+        select (v.data_venda at time zone 'UTC')::date, iv.livro_id, sum(iv.quantidade), sum(iv.total)
+        from itens_venda iv
+        join vendas v on v.id = iv.venda_id
+        where v.status = 'FINALIZADA'
+        group by 1, 2
+        """);
+    atualizar(conexao, """
+        insert into fato_vendas_dia (dia, local_id, categoria_id, funcionario_id, qtde_vendas,
+                                     qtde_vendas_categoria, qtde_itens, receita, faturamento)
+        select s.dia, s.local_id, s.categoria_id, s.funcionario_id,
+               count(*) filter (where s.principal),
+               count(*),
+               sum(s.qtde_itens),
+               sum(s.receita),
+               coalesce(sum(s.total_venda) filter (where s.principal), 0)
+        from (
+          select v.id,
+                 (v.data_venda at time zone 'UTC')::date as dia,
+                 v.local_id,
+                 l.categoria_id,
+                 v.funcionario_id,
+                 v.total as total_venda,
+                 coalesce(sum(iv.quantidade), 0) as qtde_itens,
+                 coalesce(sum(iv.total), 0) as receita,
+                 row_number() over (partition by v.id order by coalesce(sum(iv.total), 0) desc, l.categoria_id) = 1 as principal
+          from vendas v
+          left join itens_venda iv on iv.venda_id = v.id
+          left join livros l on l.id = iv.livro_id
+          where v.status = 'FINALIZADA'
+          group by v.id, 2, 3, 4, 5, 6
+        ) s
+        group by 1, 2, 3, 4
+        """);
+  }
+
+  private static void criarUsuarioCarga(Connection conexao) throws SQLException {
+    String senha = System.getProperty("carga.app.senha", "carga123");
+    atualizar(conexao, """
+        insert into perfis (nome, descricao) values ('CARGA', 'Usuario do gerador de carga')
+        on conflict (nome) do nothing
+        """);
+    atualizar(conexao, """
+        insert into perfis_permissoes (perfil_id, permissao_id)
+        select p.id, pm.id from perfis p cross join permissoes pm
+        where p.nome = 'CARGA'
+        on conflict do nothing
+        """);
+    atualizar(conexao, """
+        insert into usuarios (username, email, senha_hash) values ('carga', 'carga@alexandria.local', ?)
+        on conflict (username) do update set senha_hash = excluded.senha_hash, ativo = true
+        """, new BCryptPasswordEncoder().encode(senha));
+    atualizar(conexao, """
+        insert into usuarios_perfis (usuario_id, perfil_id)
+        select u.id, p.id from usuarios u, perfis p
+        where u.username = 'carga' and p.nome = 'CARGA'
+        on conflict do nothing
+        """);
+  }
+
+  private static void atualizar(Connection conexao, String sql, Object... args) throws SQLException {
+    try (PreparedStatement ps = conexao.prepareStatement(sql)) {
+      for (int i = 0; i < args.length; i++) {
+        ps.setObject(i + 1, args[i]);
+      }
+      ps.execute();
+    }
+  }
+
+  // ====================== COPY ================================================
+
+  @FunctionalInterface
+  private interface Linhas {
+    void gerar(long i, SplittableRandom r, Copy linha) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface Etapa {
+    void executar() throws Exception;
+  }
+
+  private static void etapa(String nome, Etapa etapa) throws Exception {
+    long t0 = System.nanoTime();
+    etapa.executar();
+    System.out.printf("%-40s %8d ms%n", nome, Duration.ofNanos(System.nanoTime() - t0).toMillis());
+  }
+
+  /** COPY ... FROM STDIN com {@code total} chamadas ao gerador (cada uma escreve 0..n linhas). */
+  private void copiar(Connection conexao, String destino, long total, Linhas linhas) throws Exception {
+    long linhasEscritas;
+    try (Copy copy = new Copy(conexao, "copy " + destino + " from stdin")) {
+      for (long i = 0; i < total; i++) {
+        linhas.gerar(i, new SplittableRandom(misturar(semente * 31 + destino.hashCode()) ^ i), copy);
+      }
+      linhasEscritas = copy.linhas;
+    }
+    System.out.printf("  %,d linhas em %s%n", linhasEscritas, destino.substring(0, destino.indexOf(' ')));
+  }
+
+  /** Formato texto do COPY: campos separados por tab, \N para nulo. */
+  private static final class Copy implements AutoCloseable {
+
+    private final Writer writer;
+    private long linhas;
+
+    Copy(Connection conexao, String sql) throws SQLException {
+      PGCopyOutputStream saida = new PGCopyOutputStream(conexao.unwrap(PGConnection.class), sql, 1 << 16);
+      this.writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    void campos(Object... valores) throws IOException {
+      for (int i = 0; i < valores.length; i++) {
+        if (i > 0) {
+          writer.write('\t');
+        }
+        Object valor = valores[i];
+        if (valor == null) {
+          writer.write("\\N");
+        } else {
+          escrever(valor.toString());
+        }
+      }
+      writer.write('\n');
+      linhas++;
+    }
+
+    private void escrever(String texto) throws IOException {
+      for (int i = 0; i < texto.length(); i++) {
+        char c = texto.charAt(i);
+        switch (c) {
+          case '\\' -> writer.write("\\\\");
+          case '\t' -> writer.write("\\t");
+          case '\n' -> writer.write("\\n");
+          case '\r' -> writer.write("\\r");
+          default -> writer.write(c);
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+
+  // ====================== Valores =============================================
+
+  private UUID uuid(int tipo, long i) {
+    long alto = misturar(misturar(semente * 31 + tipo) + i);
+    long baixo = misturar(alto ^ i);
+    return new UUID((alto & ~0xF000L) | 0x4000L, (baixo & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+  }
+
+  /** Finalizador do SplitMix64. */
+  private static long misturar(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static String centavos(long valor) {
+    return valor / 100 + "." + (valor % 100 < 10 ? "0" : "") + valor % 100;
+  }
+
+  private static String palavra(long i) {
+    return PALAVRAS[(int) (i % PALAVRAS.length)];
+  }
+
+  private static String nome(SplittableRandom r) {
+    return NOMES[r.nextInt(NOMES.length)] + " " + SOBRENOMES[r.nextInt(SOBRENOMES.length)]
+        + " " + SOBRENOMES[r.nextInt(SOBRENOMES.length)];
+  }
+}
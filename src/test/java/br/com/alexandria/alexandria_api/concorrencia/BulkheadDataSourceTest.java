@@ -0,0 +1,47 @@
+package br.com.alexandria.alexandria_api.concorrencia;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadDataSourceTest {
+
+	private BulkheadDataSource dataSource;
+
+	@BeforeEach
+	void setUp() {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:bulkhead;DB_CLOSE_DELAY=-1");
+		dataSource = new BulkheadDataSource(h2, 2, 10, Duration.ofMillis(50));
+	}
+
+	@Test
+	void recusaAlemDasPermissoesELiberaNoClose() throws Exception {
+		Connection primeira = dataSource.getConnection();
+		Connection segunda = dataSource.getConnection();
+		assertThat(dataSource.emUso()).isEqualTo(2);
+
+		assertThatThrownBy(dataSource::getConnection)
+				.isInstanceOf(BulkheadDataSource.BancoSaturadoException.class)
+				.hasMessageContaining("50 ms");
+		assertThat(dataSource.rejeitadas()).isEqualTo(1);
+
+		// close repetido devolve a permissao uma unica vez
+		primeira.close();
+		primeira.close();
+		assertThat(dataSource.emUso()).isEqualTo(1);
+
+		try (Connection terceira = dataSource.getConnection()) {
+			assertThat(terceira.isValid(1)).isTrue();
+		}
+		segunda.close();
+		assertThat(dataSource.emUso()).isZero();
+		assertThat(dataSource.naFila()).isZero();
+	}
+}
@@ -0,0 +1,66 @@
+package br.com.alexandria.alexandria_api.dashboard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DashboardCacheTest {
+
+	@Test
+	void tamanhoFicaLimitadoComChavesDistintas() {
+		DashboardCache cache = cache(Duration.ofMinutes(1), 10);
+		for (int i = 0; i < 1_000; i++) {
+			String chave = "vendas:" + i;
+			assertThat(cache.obterJson(DashboardCache.GRUPO_VENDAS, chave, () -> json(chave))).isEqualTo(json(chave));
+			assertThat(cache.tamanho()).isLessThanOrEqualTo(10);
+		}
+	}
+
+	@Test
+	void cheioDeEntradasValidasCarregaSemGuardar() {
+		DashboardCache cache = cache(Duration.ofMinutes(1), 1);
+		AtomicInteger cargas = new AtomicInteger();
+		cache.obterJson(DashboardCache.GRUPO_VENDAS, "a", () -> json("a"));
+		cache.obterJson(DashboardCache.GRUPO_VENDAS, "b", () -> json("b" + cargas.incrementAndGet()));
+		cache.obterJson(DashboardCache.GRUPO_VENDAS, "b", () -> json("b" + cargas.incrementAndGet()));
+
+		assertThat(cargas).hasValue(2);
+		assertThat(cache.tamanho()).isEqualTo(1);
+	}
+
+	@Test
+	void entradasInvalidadasOuVencidasAbremEspaco() throws InterruptedException {
+		DashboardCache cache = cache(Duration.ofMinutes(1), 2);
+		cache.obterJson(DashboardCache.GRUPO_VENDAS, "a", () -> json("a"));
+		cache.obterJson(DashboardCache.GRUPO_ESTOQUE, "b", () -> json("b"));
+		cache.invalidar(DashboardCache.GRUPO_VENDAS);
+
+		cache.obterJson(DashboardCache.GRUPO_ESTOQUE, "c", () -> json("c"));
+		assertThat(cache.tamanho()).isEqualTo(2);
+		assertThat(cache.obterJson(DashboardCache.GRUPO_ESTOQUE, "c", () -> json("outro"))).isEqualTo(json("c"));
+
+		DashboardCache curto = cache(Duration.ofMillis(1), 100);
+		for (int i = 0; i < 50; i++) {
+			String chave = "k" + i;
+			curto.obterJson(DashboardCache.GRUPO_VENDAS, chave, () -> json(chave));
+		}
+		Thread.sleep(5);
+		curto.limpar();
+		assertThat(curto.tamanho()).isZero();
+	}
+
+	private static DashboardCache cache(Duration ttl, int maxEntradas) {
+		DashboardProperties properties = new DashboardProperties(
+				new DashboardProperties.Refresh(2000, 60), ttl, maxEntradas, new DashboardProperties.TopLivros(128, 4));
+		return new DashboardCache(new ObjectMapper(), properties);
+	}
+
+	private static byte[] json(String valor) {
+		return ('"' + valor + '"').getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,31 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Asserts de MockMvc sobre os cabecalhos do {@link SqlPorRequisicaoFilter}, para fixar o numero
+ * de statements de um endpoint e quebrar o build quando ele cresce.
+ */
+public final class OrcamentoSql {
+
+	private OrcamentoSql() {
+	}
+
+	public static ResultMatcher noMaximo(int statements) {
+		return result -> {
+			String valor = result.getResponse().getHeader("X-Sql-Count");
+			assertThat(valor).as("cabecalho X-Sql-Count").isNotNull();
+			assertThat(Integer.parseInt(valor))
+					.as("statements SQL em %s", result.getRequest().getRequestURI())
+					.isLessThanOrEqualTo(statements);
+		};
+	}
+
+	public static ResultMatcher semNMaisUm() {
+		return result -> assertThat(result.getResponse().getHeader("X-Sql-Repeated"))
+				.as("X-Sql-Repeated em %s", result.getRequest().getRequestURI())
+				.isNull();
+	}
+}
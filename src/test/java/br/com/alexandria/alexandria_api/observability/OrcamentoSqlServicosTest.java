@@ -0,0 +1,144 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import br.com.alexandria.alexandria_api.estoque.EstoqueService;
+import br.com.alexandria.alexandria_api.generic.GenericCrudController;
+import br.com.alexandria.alexandria_api.plano.PostgresDeTeste;
+import br.com.alexandria.alexandria_api.vendas.VendaService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Orcamento de statements ({@link SqlContagem#noMaximo}) das operacoes quentes rodando de verdade
+ * contra o PostgreSQL populado de {@link PostgresDeTeste}; as escritas ficam numa transacao
+ * desfeita no fim. As vendas tem {@value #ITENS} itens, entao um orcamento fixo tambem pega o
+ * custo por item: se ele crescer (N+1 novo), o total passa do limite.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "PLAN_TEST_DB_URL", matches = ".+")
+class OrcamentoSqlServicosTest {
+
+	private static final int ITENS = 3;
+
+	@DynamicPropertySource
+	static void postgres(DynamicPropertyRegistry registry) {
+		PostgresDeTeste.propriedades(registry);
+	}
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private VendaService vendaService;
+	@Autowired
+	private EstoqueService estoqueService;
+	@Autowired
+	private GenericCrudController genericCrudController;
+
+	private PostgresDeTeste.Amostra amostra;
+	private List<UUID> livros;
+
+	@BeforeAll
+	void carregar() {
+		amostra = PostgresDeTeste.Amostra.carregar(jdbcTemplate);
+		livros = jdbcTemplate.queryForList("select id from livros limit " + ITENS, UUID.class);
+	}
+
+	@Test
+	void addItem() {
+		desfazendo(() -> {
+			UUID vendaId = abrirVenda();
+			try (SqlContagem sql = SqlContagem.iniciar()) {
+				vendaService.addItem(vendaId, item(amostra.livroId()));
+				// venda, disponivel, reserva (ensure + insert + update), item, recalc (4 + update), item
+				sql.noMaximo(12);
+			}
+		});
+	}
+
+	@Test
+	void finalizar() {
+		desfazendo(() -> {
+			UUID vendaId = abrirVenda();
+			for (UUID livroId : livros) {
+				vendaService.addItem(vendaId, item(livroId));
+			}
+			try (SqlContagem sql = SqlContagem.iniciar()) {
+				vendaService.finalizar(vendaId);
+				// fixo: venda, pagos, total, itens, status, 3 rollups, venda; por item: consumir (4)
+				sql.noMaximo(9 + 4 * ITENS);
+			}
+		});
+	}
+
+	@Test
+	void fecharInventario() {
+		desfazendo(() -> {
+			UUID inventarioId = (UUID) estoqueService.abrirInventario(amostra.localId(), "orcamento").get("id");
+			for (UUID livroId : livros) {
+				estoqueService.contarItem(inventarioId, livroId, 7);
+			}
+			try (SqlContagem sql = SqlContagem.iniciar()) {
+				estoqueService.fecharInventario(inventarioId);
+				// set-based: inventario, um lote (linhas de estoque + ajuste) e o fechamento, com qualquer numero de itens
+				sql.noMaximo(4);
+				assertThat(sql.repetidos(2)).isEmpty();
+			}
+		});
+	}
+
+	@Test
+	void genericCrudList() {
+		try (SqlContagem sql = SqlContagem.iniciar()) {
+			genericCrudController.list("livros", 0, 20, null, "created_at desc", new MockHttpServletResponse());
+			// count + pagina
+			sql.noMaximo(2);
+		}
+	}
+
+	private UUID abrirVenda() {
+		for (UUID livroId : livros) {
+			// saldo para as reservas dos itens
+			estoqueService.movimentar(new EstoqueService.Movimentacao(livroId, amostra.localId(), "ENTRADA", 1, "orcamento"));
+		}
+		estoqueService.movimentar(new EstoqueService.Movimentacao(
+				amostra.livroId(), amostra.localId(), "ENTRADA", 1, "orcamento"));
+		return (UUID) vendaService.abrir(Map.of(
+				"clienteId", amostra.clienteId(),
+				"funcionarioId", amostra.funcionarioId(),
+				"localId", amostra.localId(),
+				"origem", "BALCAO")).get("id");
+	}
+
+	/** Preco zero: finalizar nao exige pagamento. */
+	private static Map<String, Object> item(UUID livroId) {
+		return Map.of("livroId", livroId, "quantidade", 1, "precoUnit", BigDecimal.ZERO);
+	}
+
+	private void desfazendo(Runnable acao) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			status.setRollbackOnly();
+			acao.run();
+		});
+	}
+}
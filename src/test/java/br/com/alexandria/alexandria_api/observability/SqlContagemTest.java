@@ -0,0 +1,142 @@
+package br.com.alexandria.alexandria_api.observability;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SqlContagemTest {
+
+	private InstrumentedDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:sql_contagem;DB_CLOSE_DELAY=-1");
+		dataSource = new InstrumentedDataSource(h2, () -> List.of(new SqlContagemListener()));
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("create table if not exists livros (id int primary key, titulo varchar(100))");
+		jdbcTemplate.execute("delete from livros");
+	}
+
+	@Test
+	void contaStatementsLotesETransacoes() {
+		TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		try (SqlContagem sql = SqlContagem.iniciar()) {
+			tx.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+					"insert into livros (id, titulo) values (?, ?)",
+					List.of(new Object[] {1, "a"}, new Object[] {2, "b"}, new Object[] {3, "c"})
+			));
+			jdbcTemplate.queryForObject("select count(*) from livros", Integer.class);
+
+			// 3 inserts num lote + 1 select; round trips: lote, commit e select
+			assertThat(sql.statements()).isEqualTo(4);
+			assertThat(sql.roundTrips()).isEqualTo(3);
+			assertThat(sql.repetidos(2)).isEmpty();
+		}
+	}
+
+	@Test
+	void detectaNMaisUmEFalhaAcimaDoOrcamento() {
+		try (SqlContagem externa = SqlContagem.iniciar()) {
+			try (SqlContagem sql = SqlContagem.iniciar()) {
+				for (int id = 1; id <= 5; id++) {
+					jdbcTemplate.queryForList("select titulo from livros where id = ?", id);
+				}
+				Map<String, Integer> repetidos = sql.repetidos(5);
+				assertThat(repetidos).containsEntry("select titulo from livros where id = ?", 5);
+				assertThatThrownBy(() -> sql.noMaximo(4))
+						.isInstanceOf(IllegalStateException.class)
+						.hasMessageContaining("5 statements");
+			}
+			jdbcTemplate.queryForList("select 1");
+			assertThat(externa.statements()).isEqualTo(6);
+		}
+	}
+
+	@Test
+	void contaLinhasLidasAoFecharOResultSet() {
+		List<String> lidas = new ArrayList<>();
+		JdbcTemplate jdbc = new JdbcTemplate(new InstrumentedDataSource(dataSource.getTargetDataSource(),
+				() -> List.of(new SqlListener() {
+					@Override
+					public void executado(String sql, long nanos, long linhas, boolean falhou) {
+					}
+
+					@Override
+					public void linhasLidas(String sql, long linhas) {
+						lidas.add(sql + "=" + linhas);
+					}
+				})));
+		jdbc.batchUpdate("insert into livros (id, titulo) values (?, ?)",
+				List.of(new Object[] {1, "a"}, new Object[] {2, "b"}, new Object[] {3, "c"}));
+
+		assertThat(jdbc.queryForList("select titulo from livros order by id", String.class)).hasSize(3);
+		assertThat(jdbc.queryForObject("select count(*) from livros", Integer.class)).isEqualTo(3);
+
+		assertThat(lidas).containsExactly(
+				"select titulo from livros order by id=3",
+				"select count(*) from livros=1");
+	}
+
+	@Test
+	void cabecalhosPorRequisicao() throws Exception {
+		MockMvc mvc = MockMvcBuilders.standaloneSetup(new LivrosController(jdbcTemplate))
+				.addFilters(new SqlPorRequisicaoFilter(
+						new ObservabilidadeProperties(new ObservabilidadeProperties.Sql(true, 3))))
+				.build();
+
+		mvc.perform(get("/lista"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Sql-Count", "1"))
+				.andExpect(header().exists("Server-Timing"))
+				.andExpect(OrcamentoSql.noMaximo(1))
+				.andExpect(OrcamentoSql.semNMaisUm());
+
+		mvc.perform(get("/um-a-um"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Sql-Count", "4"))
+				.andExpect(header().string("X-Sql-Repeated", "3"));
+	}
+
+	@RestController
+	static class LivrosController {
+
+		private final JdbcTemplate jdbcTemplate;
+
+		LivrosController(JdbcTemplate jdbcTemplate) {
+			this.jdbcTemplate = jdbcTemplate;
+		}
+
+		@GetMapping("/lista")
+		List<Map<String, Object>> lista() {
+			return jdbcTemplate.queryForList("select id, titulo from livros where id in (1, 2, 3)");
+		}
+
+		@GetMapping("/um-a-um")
+		List<Object> umAUm() {
+			List<Integer> ids = jdbcTemplate.queryForList("select id from livros", Integer.class);
+			for (int id = 1; id <= 3; id++) {
+				jdbcTemplate.queryForList("select titulo from livros where id = ?", id);
+			}
+			return List.copyOf(ids);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package br.com.alexandria.alexandria_api.plano;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plano estimado ({@code EXPLAIN (FORMAT JSON)}, sem executar) de um statement, com os parametros
+ * ja ligados ou como plano generico ({@link #explicarGenerico}), e asserts sobre o formato dele. Indices de particoes sao reportados pelo indice da
+ * tabela particionada ({@code pg_partition_root}), entao o assert nao depende do nome da particao.
+ */
+public final class PlanoConsulta {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private final String nome;
+	private final JsonNode raiz;
+	private final List<JsonNode> nos = new ArrayList<>();
+	private final JdbcTemplate jdbcTemplate;
+
+	private PlanoConsulta(String nome, JsonNode raiz, JdbcTemplate jdbcTemplate) {
+		this.nome = nome;
+		this.raiz = raiz;
+		this.jdbcTemplate = jdbcTemplate;
+		coletar(raiz);
+	}
+
+	public static PlanoConsulta explicar(JdbcTemplate jdbcTemplate, String nome, String sql, Object... args) {
+		String json = jdbcTemplate.queryForObject("explain (format json) " + sql, String.class, args);
+		try {
+			return new PlanoConsulta(nome, JSON.readTree(json).get(0).get("Plan"), jdbcTemplate);
+		} catch (Exception e) {
+			throw new IllegalStateException("EXPLAIN invalido para " + nome + ": " + json, e);
+		}
+	}
+
+	/**
+	 * Plano generico ({@code EXPLAIN (GENERIC_PLAN)}, PostgreSQL 16+) do texto com placeholders
+	 * JDBC, como capturado pelo {@link SqlCapturado}: nao precisa dos valores dos parametros. A conexao
+	 * deve estar em {@code preferQueryMode=simple} ({@link PostgresDeTeste#explain()}).
+	 */
+	public static PlanoConsulta explicarGenerico(JdbcTemplate jdbcTemplate, String nome, String sql) {
+		String json = jdbcTemplate.queryForObject(
+				"explain (generic_plan, format json) " + numerarParametros(sql), String.class);
+		try {
+			return new PlanoConsulta(nome, JSON.readTree(json).get(0).get("Plan"), jdbcTemplate);
+		} catch (Exception e) {
+			throw new IllegalStateException("EXPLAIN invalido para " + nome + ": " + json, e);
+		}
+	}
+
+	/** {@code ?} fora de literais e identificadores entre aspas vira {@code $1, $2...}. */
+	static String numerarParametros(String sql) {
+		StringBuilder texto = new StringBuilder(sql.length() + 16);
+		int parametro = 0;
+		char aspas = 0;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (aspas != 0) {
+				if (c == aspas) {
+					aspas = 0;
+				}
+			} else if (c == '\'' || c == '"') {
+				aspas = c;
+			} else if (c == '?') {
+				texto.append('$').append(++parametro);
+				continue;
+			}
+			texto.append(c);
+		}
+		return texto.toString();
+	}
+
+	/** Nenhum Seq Scan sobre relacao com mais de {@code linhas} linhas estimadas (pg_class.reltuples). */
+	public PlanoConsulta semSeqScanAcimaDe(long linhas) {
+		for (JsonNode no : nos) {
+			if (!"Seq Scan".equals(no.path("Node Type").asText())) {
+				continue;
+			}
+			String relacao = no.path("Relation Name").asText();
+			Long tamanho = jdbcTemplate.queryForObject(
+					"select coalesce(max(reltuples), 0)::bigint from pg_class where oid = to_regclass(?)",
+					Long.class, relacao);
+			assertThat(tamanho)
+					.as("%s: Seq Scan em %s (%d linhas)%n%s", nome, relacao, tamanho, this)
+					.isLessThanOrEqualTo(linhas);
+		}
+		return this;
+	}
+
+	/** Pelo menos um dos indices aparece no plano (Index Scan, Index Only Scan ou Bitmap Index Scan). */
+	public PlanoConsulta usaIndice(String... indices) {
+		assertThat(indices()).as("%s: indices usados%n%s", nome, this).containsAnyOf(indices);
+		return this;
+	}
+
+	/** Custo total estimado do no raiz no maximo {@code custo} (unidades do planner). */
+	public PlanoConsulta custoNoMaximo(double custo) {
+		assertThat(raiz.path("Total Cost").asDouble())
+				.as("%s: custo estimado%n%s", nome, this)
+				.isLessThanOrEqualTo(custo);
+		return this;
+	}
+
+	/** Indices usados, ja traduzidos para o indice da tabela particionada quando for o caso. */
+	public Set<String> indices() {
+		Set<String> indices = new LinkedHashSet<>();
+		for (JsonNode no : nos) {
+			String indice = no.path("Index Name").asText(null);
+			if (indice != null) {
+				indices.add(jdbcTemplate.queryForObject(
+						"select coalesce(pg_partition_root(to_regclass(?)), to_regclass(?))::text",
+						String.class, indice, indice));
+			}
+		}
+		return indices;
+	}
+
+	private void coletar(JsonNode no) {
+		nos.add(no);
+		for (JsonNode filho : no.path("Plans")) {
+			coletar(filho);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder texto = new StringBuilder();
+		imprimir(raiz, 0, texto);
+		return texto.toString();
+	}
+
+	private static void imprimir(JsonNode no, int nivel, StringBuilder texto) {
+		texto.append("  ".repeat(nivel)).append("-> ").append(no.path("Node Type").asText());
+		for (String campo : Arrays.asList("Relation Name", "Index Name")) {
+			if (no.has(campo)) {
+				texto.append(' ').append(no.get(campo).asText());
+			}
+		}
+		texto.append(String.format(Locale.ROOT, " (cost=%.2f rows=%d)%n",
+				no.path("Total Cost").asDouble(), no.path("Plan Rows").asLong()));
+		for (JsonNode filho : no.path("Plans")) {
+			imprimir(filho, nivel + 1, texto);
+		}
+	}
+}
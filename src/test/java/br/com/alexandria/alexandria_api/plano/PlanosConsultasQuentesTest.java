@@ -0,0 +1,261 @@
+package br.com.alexandria.alexandria_api.plano;
+
+import br.com.alexandria.alexandria_api.auth.AuthService;
+import br.com.alexandria.alexandria_api.auth.JwtService;
+import br.com.alexandria.alexandria_api.estoque.EstoqueService;
+import br.com.alexandria.alexandria_api.generic.GenericCrudController;
+import br.com.alexandria.alexandria_api.vendas.VendaService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Guarda de performance para o SQL quente de VendaService, EstoqueService, AuthService e
+ * GenericCrudController: os servicos rodam de verdade (escritas numa transacao desfeita no fim),
+ * o {@link SqlCapturado} grava o texto de cada statement que chegou ao banco e cada um passa por
+ * {@code EXPLAIN (GENERIC_PLAN)}. Nenhum plano pode ter Seq Scan sobre tabela grande; os
+ * statements das {@link Esperado expectativas} devem usar o indice esperado e ficar abaixo de um
+ * custo. Quebra quando um indice some ou uma mudanca no SQL de um servico impede o uso dele; se o
+ * texto mudou e a expectativa nao casa mais com nada, o teste tambem falha.
+ *
+ * So roda contra um PostgreSQL 16+ migrado e populado (GeradorDataset, tamanhos padrao), ver
+ * {@link PostgresDeTeste}. {@code PLAN_TEST_SEQ_SCAN_MAX} muda o tamanho de tabela a partir do
+ * qual um Seq Scan reprova (padrao 1000 linhas).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "PLAN_TEST_DB_URL", matches = ".+")
+class PlanosConsultasQuentesTest {
+
+	@DynamicPropertySource
+	static void postgres(DynamicPropertyRegistry registry) {
+		PostgresDeTeste.propriedades(registry);
+	}
+
+	@TestConfiguration
+	static class Captura {
+		@Bean
+		SqlCapturado sqlCapturado() {
+			return new SqlCapturado();
+		}
+	}
+
+	/**
+	 * Statement que contem {@code trecho} (espacos normalizados) usa um dos {@code indices} e custa
+	 * no maximo {@code custo}; sem indices, so o custo e conferido. O plano generico estima os
+	 * parametros as cegas (ex.: limit ? vira 10% da tabela), entao os custos ficam acima dos de um
+	 * plano com valores.
+	 */
+	private record Esperado(String trecho, double custo, String... indices) {
+	}
+
+	/** count(*) sem filtro do list() percorre a tabela toda: so o custo vale. */
+	private static final List<String> VARREDURAS = List.of("select count(*) from ");
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private VendaService vendaService;
+	@Autowired
+	private EstoqueService estoqueService;
+	@Autowired
+	private AuthService authService;
+	@Autowired
+	private JwtService jwtService;
+	@Autowired
+	private GenericCrudController genericCrudController;
+
+	private JdbcTemplate explain;
+	private PostgresDeTeste.Amostra amostra;
+	private long seqScanMax;
+
+	@BeforeAll
+	void carregar() {
+		explain = PostgresDeTeste.explain();
+		amostra = PostgresDeTeste.Amostra.carregar(jdbcTemplate);
+		seqScanMax = Long.parseLong(System.getenv().getOrDefault("PLAN_TEST_SEQ_SCAN_MAX", "1000"));
+	}
+
+	@Test
+	void vendas() {
+		Set<String> textos = SqlCapturado.gravar(() -> desfazendo(() -> {
+			// garante saldo para a reserva do addItem
+			estoqueService.movimentar(new EstoqueService.Movimentacao(
+					amostra.livroId(), amostra.localId(), "ENTRADA", 1, "plano"));
+			UUID vendaId = (UUID) vendaService.abrir(Map.of(
+					"clienteId", amostra.clienteId(),
+					"funcionarioId", amostra.funcionarioId(),
+					"localId", amostra.localId(),
+					"origem", "BALCAO")).get("id");
+			// preco zero: finalizar nao exige pagamento
+			vendaService.addItem(vendaId, Map.of(
+					"livroId", amostra.livroId(),
+					"quantidade", 1,
+					"precoUnit", BigDecimal.ZERO));
+			vendaService.finalizar(vendaId);
+		}));
+
+		verificar(textos, List.of(
+				new Esperado("select * from vendas where id=?", 20, "vendas_pkey"),
+				new Esperado("select * from itens_venda where id=?", 20, "itens_venda_pkey"),
+				new Esperado("select * from itens_venda where venda_id=?", 50,
+						"idx_itens_venda_venda", "idx_itens_venda_venda_livro"),
+				new Esperado("sum(preco_unitario * quantidade),0) from itens_venda where venda_id=?", 50,
+						"idx_itens_venda_venda", "idx_itens_venda_venda_livro"),
+				new Esperado("update vendas set subtotal=?", 20, "vendas_pkey"),
+				new Esperado("from pagamentos_venda where venda_id=?", 50),
+				new Esperado("insert into reservas_estoque", 20),
+				new Esperado("update estoques set reservado = reservado + ?", 20, "estoques_livro_id_local_id_key"),
+				new Esperado("update estoques set reservado = reservado - ?, quantidade = quantidade - ?", 20,
+						"estoques_livro_id_local_id_key"),
+				new Esperado("update reservas_estoque set status = 'CONSUMIDA'", 20, "reservas_estoque_pkey"),
+				new Esperado("insert into rollup_vendas_dia_local", 50, "vendas_pkey"),
+				new Esperado("insert into rollup_vendas_dia_livro", 100, "vendas_pkey"),
+				new Esperado("insert into fato_vendas_dia", 200, "vendas_pkey")));
+	}
+
+	@Test
+	void estoque() {
+		Set<String> textos = SqlCapturado.gravar(() -> desfazendo(() -> {
+			estoqueService.movimentar(new EstoqueService.Movimentacao(
+					amostra.livroId(), amostra.localId(), "ENTRADA", 1, "plano"));
+			UUID reservaId = (UUID) estoqueService.reservar(new EstoqueService.Reserva(
+					amostra.livroId(), amostra.localId(), null, 1)).get("id");
+			estoqueService.liberar(reservaId);
+			estoqueService.disponibilidade(List.of(amostra.livroId(), UUID.randomUUID()), List.of(amostra.localId()));
+			estoqueService.disponibilidade(List.of(amostra.livroId()), null);
+			estoqueService.extrato(amostra.livroId(), amostra.localId(), null, null, 50);
+			estoqueService.extrato(amostra.livroId(), amostra.localId(),
+					Instant.now().minusSeconds(30L * 24 * 3600), UUID.randomUUID(), 50);
+			UUID inventarioId = (UUID) estoqueService.abrirInventario(amostra.localId(), "plano").get("id");
+			estoqueService.contarItem(inventarioId, amostra.livroId(), 3);
+			estoqueService.fecharInventario(inventarioId);
+		}));
+
+		verificar(textos, List.of(
+				new Esperado("coalesce(quantidade, 0) - coalesce(reservado, 0) as disponivel", 20,
+						"estoques_livro_id_local_id_key"),
+				new Esperado("update estoques set quantidade = quantidade + ?", 20, "estoques_livro_id_local_id_key"),
+				new Esperado("update estoques set reservado = reservado + ?", 20, "estoques_livro_id_local_id_key"),
+				new Esperado("update estoques set reservado = reservado - ? where", 20, "estoques_livro_id_local_id_key"),
+				new Esperado("select * from reservas_estoque where id = ?", 20, "reservas_estoque_pkey"),
+				new Esperado("quantidade - reservado as disponivel from estoques", 300,
+						"idx_estoques_livro", "estoques_livro_id_local_id_key"),
+				new Esperado("from movimentacoes_estoque where livro_id = ? and local_id = ?", 500,
+						"idx_mov_estoque_livro_local_criado"),
+				new Esperado("insert into itens_inventario", 50, "estoques_livro_id_local_id_key"),
+				new Esperado("update inventarios set finalizado_em", 20)));
+	}
+
+	@Test
+	void auth() {
+		String token = jwtService.createToken(amostra.usuarioId().toString(), List.of()).value();
+		Set<String> textos = SqlCapturado.gravar(() -> {
+			assertThatThrownBy(() -> authService.login("plano-" + UUID.randomUUID(), "x", null))
+					.isInstanceOf(ResponseStatusException.class);
+			SecurityContextHolder.getContext().setAuthentication(
+					new UsernamePasswordAuthenticationToken(amostra.usuarioId().toString(), null, List.of()));
+			try {
+				assertThatThrownBy(() -> authService.changePassword("plano-" + UUID.randomUUID(), "nova"))
+						.isInstanceOf(ResponseStatusException.class);
+			} finally {
+				SecurityContextHolder.clearContext();
+			}
+			// sessao que nunca foi gravada: nao revoga nada
+			authService.logout("Bearer " + token);
+		});
+
+		verificar(textos, List.of(
+				new Esperado("where u.username = ?", 100),
+				new Esperado("select senha_hash from usuarios where id=?", 20),
+				new Esperado("update sessoes set revogado = true", 200)));
+	}
+
+	@Test
+	void genericCrud() {
+		List<Esperado> esperados = new ArrayList<>();
+		Map<String, UUID> ids = new LinkedHashMap<>();
+		for (String tabela : new String[] {"livros", "clientes", "vendas"}) {
+			ids.put(tabela, jdbcTemplate.queryForObject("select id from " + tabela + " limit 1", UUID.class));
+		}
+		Set<String> textos = SqlCapturado.gravar(() -> {
+			for (String tabela : ids.keySet()) {
+				genericCrudController.list(tabela, 0, 20, null, "created_at desc", new MockHttpServletResponse());
+				genericCrudController.get(tabela, ids.get(tabela), new MockHttpServletResponse());
+				// o plano generico le "limit ?" como 10% da tabela; vendas tem ~5x as linhas dos cadastros
+				double teto = tabela.equals("vendas") ? 3_000 : 1_000;
+				esperados.add(new Esperado("select * from " + tabela + " t order by", teto, "idx_" + tabela + "_created_at"));
+				esperados.add(new Esperado("select * from " + tabela + " where id", 20, tabela + "_pkey"));
+				esperados.add(new Esperado("select count(*) from " + tabela, teto));
+			}
+		});
+
+		verificar(textos, esperados);
+	}
+
+	private void desfazendo(Runnable acao) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			status.setRollbackOnly();
+			acao.run();
+		});
+	}
+
+	private void verificar(Set<String> textos, List<Esperado> esperados) {
+		assertThat(textos).as("nenhum SQL capturado").isNotEmpty();
+		List<String> normalizados = textos.stream().map(PlanosConsultasQuentesTest::normalizar).toList();
+		for (Esperado esperado : esperados) {
+			assertThat(normalizados)
+					.as("nenhum statement executado contem '%s'; o SQL do servico mudou?", esperado.trecho())
+					.anyMatch(texto -> texto.contains(esperado.trecho()));
+		}
+
+		for (String texto : normalizados) {
+			PlanoConsulta plano = PlanoConsulta.explicarGenerico(explain, texto, texto);
+			if (VARREDURAS.stream().noneMatch(texto::startsWith)) {
+				plano.semSeqScanAcimaDe(seqScanMax);
+			}
+			for (Esperado esperado : esperados) {
+				if (texto.contains(esperado.trecho())) {
+					if (esperado.indices().length > 0) {
+						plano.usaIndice(esperado.indices());
+					}
+					plano.custoNoMaximo(esperado.custo());
+				}
+			}
+		}
+	}
+
+	private static String normalizar(String sql) {
+		return sql.strip().replaceAll("\\s+", " ");
+	}
+}
@@ -0,0 +1,61 @@
+package br.com.alexandria.alexandria_api.plano;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Contexto Spring contra o PostgreSQL migrado e populado (GeradorDataset) apontado por
+ * {@code PLAN_TEST_DB_URL} (com {@code currentSchema=alexandria,public}); usuario e senha em
+ * {@code PLAN_TEST_DB_USER}/{@code PLAN_TEST_DB_PASSWORD}. Os testes que usam devem ser
+ * {@code @EnabledIfEnvironmentVariable(named = "PLAN_TEST_DB_URL", matches = ".+")} e escrever
+ * so dentro de transacoes desfeitas no fim.
+ */
+public final class PostgresDeTeste {
+
+	private PostgresDeTeste() {
+	}
+
+	/** Para um {@code @DynamicPropertySource}: troca o H2 do perfil de teste pelo PostgreSQL. */
+	public static void propriedades(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", () -> System.getenv("PLAN_TEST_DB_URL"));
+		registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("PLAN_TEST_DB_USER", "postgres"));
+		registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("PLAN_TEST_DB_PASSWORD", ""));
+		registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+	}
+
+	/**
+	 * Conexao propria em {@code preferQueryMode=simple}, para o {@code EXPLAIN (GENERIC_PLAN)}: no
+	 * protocolo estendido o driver cobraria valores para os {@code $n} do texto explicado.
+	 */
+	public static JdbcTemplate explain() {
+		String url = System.getenv("PLAN_TEST_DB_URL");
+		return new JdbcTemplate(new SingleConnectionDataSource(
+				url + (url.contains("?") ? "&" : "?") + "preferQueryMode=simple",
+				System.getenv().getOrDefault("PLAN_TEST_DB_USER", "postgres"),
+				System.getenv().getOrDefault("PLAN_TEST_DB_PASSWORD", ""),
+				true));
+	}
+
+	/** Ids reais para montar uma venda, movimentar estoque e logar. */
+	public record Amostra(UUID clienteId, UUID funcionarioId, UUID localId, UUID livroId, UUID formaId, UUID usuarioId) {
+
+		public static Amostra carregar(JdbcTemplate jdbcTemplate) {
+			// o par livro/local com o maior extrato
+			Map<String, Object> estoque = jdbcTemplate.queryForMap("""
+					select livro_id, local_id from movimentacoes_estoque
+					group by livro_id, local_id order by count(*) desc limit 1
+					""");
+			return new Amostra(
+					jdbcTemplate.queryForObject("select id from clientes limit 1", UUID.class),
+					jdbcTemplate.queryForObject("select id from funcionarios limit 1", UUID.class),
+					(UUID) estoque.get("local_id"),
+					(UUID) estoque.get("livro_id"),
+					jdbcTemplate.queryForObject("select id from formas_pagamento limit 1", UUID.class),
+					jdbcTemplate.queryForObject("select id from usuarios limit 1", UUID.class));
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package br.com.alexandria.alexandria_api.plano;
+
+import br.com.alexandria.alexandria_api.observability.SqlListener;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * {@link SqlListener} de teste: guarda os textos de SQL que a thread atual executou dentro de
+ * {@link #gravar}. Registrado como bean, recebe tudo que passa pelo InstrumentedDataSource,
+ * entao o que se captura e exatamente o que os servicos mandaram ao banco.
+ */
+public class SqlCapturado implements SqlListener {
+
+	private static final ThreadLocal<Set<String>> ATUAL = new ThreadLocal<>();
+
+	/** Textos distintos (com placeholders), na ordem da primeira execucao. */
+	public static Set<String> gravar(Runnable acao) {
+		Set<String> anterior = ATUAL.get();
+		Set<String> textos = new LinkedHashSet<>();
+		ATUAL.set(textos);
+		try {
+			acao.run();
+		} finally {
+			ATUAL.set(anterior);
+			if (anterior != null) {
+				anterior.addAll(textos);
+			}
+		}
+		return textos;
+	}
+
+	@Override
+	public void executado(String sql, long nanos, long linhas, boolean falhou) {
+		Set<String> textos = ATUAL.get();
+		if (textos != null && sql != null && !falhou) {
+			textos.add(sql);
+		}
+	}
+}